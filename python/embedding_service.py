@@ -1,20 +1,46 @@
-from fastapi import FastAPI
+import struct
+
+import numpy as np
+from fastapi import FastAPI, Header, Response
 from pydantic import BaseModel
 from sentence_transformers import SentenceTransformer
-from typing import List
+from typing import List, Optional, Union
 
 app = FastAPI(title="Embedding Service")
 model = SentenceTransformer("sentence-transformers/all-MiniLM-L6-v2")
 
+# Little-endian header: magic, row count, dimension; float32 rows follow.
+FLOAT32_MATRIX = "application/x-float32-matrix"
+MATRIX_HEADER = struct.Struct("<4sII")
+
 class EmbedRequest(BaseModel):
     inputs: List[str]
 
 class EmbedResponse(BaseModel):
     embeddings: List[List[float]]
 
+def accepts_matrix(accept: Optional[str]) -> bool:
+    for part in (accept or "").split(","):
+        media_type, *params = [p.strip() for p in part.split(";")]
+        if media_type.lower() != FLOAT32_MATRIX:
+            continue
+        q = next((p.split("=", 1)[1] for p in params if p.lower().startswith("q=")), "1")
+        try:
+            return float(q) > 0
+        except ValueError:
+            return False
+    return False
+
 @app.post("/embed", response_model=EmbedResponse)
-def embed(request: EmbedRequest) -> EmbedResponse:
-    if not request.inputs:
-        return EmbedResponse(embeddings=[])
-    embeddings = model.encode(request.inputs, convert_to_numpy=True)
+def embed(request: EmbedRequest, response: Response,
+          accept: Optional[str] = Header(default=None)) -> Union[EmbedResponse, Response]:
+    response.headers["Vary"] = "Accept"
+    if request.inputs:
+        embeddings = model.encode(request.inputs, convert_to_numpy=True)
+    else:
+        embeddings = np.zeros((0, model.get_sentence_embedding_dimension()), dtype=np.float32)
+    if accepts_matrix(accept):
+        matrix = np.ascontiguousarray(embeddings, dtype="<f4")
+        body = MATRIX_HEADER.pack(b"F32M", matrix.shape[0], matrix.shape[1]) + matrix.tobytes()
+        return Response(content=body, media_type=FLOAT32_MATRIX, headers={"Vary": "Accept"})
     return EmbedResponse(embeddings=embeddings.tolist())
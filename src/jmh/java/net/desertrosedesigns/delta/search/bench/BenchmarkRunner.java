@@ -0,0 +1,59 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the JMH benchmarks with the project's defaults layered under any standard JMH command-line
+ * options: the GC profiler, for allocation rate per operation, and JSON results written to
+ * {@code target/jmh/results-<timestamp>.json} so two runs can be compared with {@link ResultDiff}.
+ */
+public final class BenchmarkRunner {
+
+    private static final Path RESULTS = Path.of("target", "jmh");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        boolean gcProfiled = commandLine.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()));
+        if (!gcProfiled) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Files.createDirectories(RESULTS);
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result(RESULTS.resolve("results-" + stamp + ".json").toString());
+            if (!commandLine.getResultFormat().hasValue()) {
+                options.resultFormat(ResultFormatType.JSON);
+            }
+        }
+        new Runner(options.build()).run();
+    }
+}
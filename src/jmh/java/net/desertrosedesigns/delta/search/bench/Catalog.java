@@ -0,0 +1,127 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.model.ProductField;
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark catalog generated from {@code data/products.csv}. The real products come first; larger
+ * catalogs repeat them with fresh sourceIds and slightly perturbed embeddings, so neighbourhoods stay
+ * realistic while the corpus grows to the requested size.
+ */
+public final class Catalog {
+
+    public static final Path SOURCE = Path.of("data", "products.csv");
+
+    private final List<Map<String, Object>> rows;
+    private final List<float[]> vectors;
+
+    private Catalog(List<Map<String, Object>> rows, List<float[]> vectors) {
+        this.rows = rows;
+        this.vectors = vectors;
+    }
+
+    /**
+     * Loads {@code size} products, or just the file's products when {@code size} is not positive.
+     */
+    public static Catalog load(int size, HashingEmbeddingService embedder) {
+        List<Map<String, Object>> base = readProducts(SOURCE);
+        int target = size > 0 ? size : base.size();
+        List<Map<String, Object>> rows = new ArrayList<>(target);
+        List<float[]> vectors = new ArrayList<>(target);
+        float[][] baseVectors = new float[base.size()][];
+        float noise = (float) (0.3 / Math.sqrt(embedder.dimension()));
+        Random random = new Random(17);
+        for (int i = 0; i < target; i++) {
+            int source = i % base.size();
+            if (baseVectors[source] == null) {
+                Map<String, Object> product = base.get(source);
+                baseVectors[source] = embedder.compute(product.get("title") + " " + product.get("text"));
+            }
+            Map<String, Object> row = new HashMap<>(base.get(source));
+            row.put(ProductField.SOURCE_ID.property(), "p-" + i);
+            rows.add(row);
+            if (i < base.size()) {
+                vectors.add(baseVectors[source]);
+            } else {
+                float[] vector = baseVectors[source].clone();
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] += (float) random.nextGaussian() * noise;
+                }
+                vectors.add(VectorUtils.normalizeInPlace(vector));
+            }
+        }
+        return new Catalog(rows, vectors);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Stored product properties keyed by Neo4j property name, without the embedding.
+     */
+    public Map<String, Object> properties(int ordinal) {
+        return rows.get(ordinal);
+    }
+
+    public float[] vector(int ordinal) {
+        return vectors.get(ordinal);
+    }
+
+    public String title(int ordinal) {
+        return (String) rows.get(ordinal).get(ProductField.TITLE.property());
+    }
+
+    private static List<Map<String, Object>> readProducts(Path source) {
+        if (!Files.exists(source)) {
+            throw new IllegalStateException(source.toAbsolutePath() + " not found; run benchmarks from the project root");
+        }
+        List<Map<String, Object>> products = new ArrayList<>();
+        try (CSVParser parser = CSVParser.parse(source.toFile(), StandardCharsets.UTF_8,
+                CSVFormat.Builder.create(CSVFormat.DEFAULT).setHeader().setSkipHeaderRecord(true).build())) {
+            for (CSVRecord record : parser) {
+                Map<String, String> values = record.toMap();
+                String title = values.getOrDefault("title", "");
+                String description = values.getOrDefault("description", "");
+                String itemDetails = values.getOrDefault("item_details", "");
+                List<String> categories = parseCategories(values.getOrDefault("categories", ""));
+                Map<String, Object> product = new HashMap<>();
+                product.put(ProductField.TITLE.property(), title);
+                product.put(ProductField.DESCRIPTION.property(), description);
+                product.put(ProductField.ITEM_DETAILS.property(), itemDetails);
+                product.put(ProductField.CATEGORIES.property(), categories);
+                product.put(ProductField.TEXT.property(), Stream.of(title, description, itemDetails, String.join(" ", categories))
+                        .filter(s -> !s.isBlank())
+                        .collect(Collectors.joining(" ")));
+                products.add(product);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return products;
+    }
+
+    private static List<String> parseCategories(String raw) {
+        String cleaned = raw.replace("[", "").replace("]", "");
+        return Stream.of(cleaned.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+}
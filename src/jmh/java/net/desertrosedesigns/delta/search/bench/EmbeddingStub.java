@@ -0,0 +1,140 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.desertrosedesigns.delta.search.service.EmbeddingWireEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stand-in for the sentence-transformer service that implements the {@code /embed} contract
+ * with {@link HashingEmbeddingService} vectors, so load tests need no GPU, model download or network.
+ * Every call waits {@code --latency} plus up to {@code --jitter}, drawn from a seeded generator, to
+ * model the real service's cost. Answers in the binary float32 matrix format when the request accepts
+ * it, and in JSON otherwise.
+ * <p>
+ * Usage: {@code EmbeddingStub [--port 8000] [--dimension 384] [--latency PT0.01S] [--jitter PT0.005S]
+ * [--per-input PT0S] [--threads 64] [--seed 1]}. Point the app at it with
+ * {@code EMBEDDING_SERVICE_URL=http://localhost:8000/embed}.
+ */
+public final class EmbeddingStub implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HashingEmbeddingService embedder;
+    private final Duration latency;
+    private final Duration jitter;
+    private final Duration perInput;
+    private final SplittableRandom random;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public EmbeddingStub(int port, int dimension, Duration latency, Duration jitter, Duration perInput, int threads,
+                         long seed) throws IOException {
+        this.embedder = new HashingEmbeddingService(dimension, 64);
+        this.latency = latency;
+        this.jitter = jitter;
+        this.perInput = perInput;
+        this.random = new SplittableRandom(seed);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.createContext("/embed", this::embed);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadTest.options(args);
+        EmbeddingStub stub = new EmbeddingStub(
+                Integer.parseInt(options.getOrDefault("port", "8000")),
+                Integer.parseInt(options.getOrDefault("dimension", "384")),
+                Duration.parse(options.getOrDefault("latency", "PT0.01S")),
+                Duration.parse(options.getOrDefault("jitter", "PT0.005S")),
+                Duration.parse(options.getOrDefault("per-input", "PT0S")),
+                Integer.parseInt(options.getOrDefault("threads", "64")),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        System.out.println("embedding stub listening on http://localhost:" + stub.port() + "/embed");
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            List<String> inputs;
+            try (InputStream body = exchange.getRequestBody()) {
+                inputs = inputs(JSON.readTree(body));
+            } catch (IOException | IllegalArgumentException e) {
+                byte[] error = JSON.writeValueAsBytes(Map.of("error", String.valueOf(e.getMessage())));
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(400, error.length);
+                exchange.getResponseBody().write(error);
+                return;
+            }
+            List<float[]> vectors = new ArrayList<>(inputs.size());
+            for (String input : inputs) {
+                vectors.add(embedder.embedVector(input));
+            }
+            pause(inputs.size());
+
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean binary = accept != null && accept.contains(EmbeddingWireEncoder.MEDIA_TYPE);
+            byte[] response = binary ? EmbeddingWireEncoder.encode(vectors) : JSON.writeValueAsBytes(Map.of("embeddings", vectors));
+            exchange.getResponseHeaders().set("Content-Type", binary ? EmbeddingWireEncoder.MEDIA_TYPE : "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<String> inputs(JsonNode request) {
+        JsonNode inputs = request == null ? null : request.get("inputs");
+        if (inputs == null || !inputs.isArray()) {
+            throw new IllegalArgumentException("expected {\"inputs\": [...]}");
+        }
+        List<String> texts = new ArrayList<>(inputs.size());
+        inputs.forEach(input -> texts.add(input.asText()));
+        return texts;
+    }
+
+    private void pause(int inputs) {
+        long nanos = latency.toNanos() + perInput.toNanos() * inputs;
+        if (!jitter.isZero()) {
+            synchronized (random) {
+                nanos += random.nextLong(jitter.toNanos() + 1);
+            }
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
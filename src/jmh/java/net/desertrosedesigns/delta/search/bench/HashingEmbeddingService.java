@@ -0,0 +1,103 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.service.EmbeddingService;
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic stand-in for the sentence-transformer service. Each token maps to a fixed random
+ * direction and a text embeds to the normalized sum of its tokens, so texts that share words land near
+ * each other. Results are memoized per text, as the real service's cache would, so benchmarks measure
+ * the search path rather than the embedder.
+ */
+public final class HashingEmbeddingService implements EmbeddingService {
+
+    private final int dimension;
+    private final int maxTokens;
+    private final Map<String, float[]> tokenVectors = new ConcurrentHashMap<>();
+    private final Map<String, float[]> embeddings = new ConcurrentHashMap<>();
+
+    public HashingEmbeddingService(int dimension, int maxTokens) {
+        this.dimension = dimension;
+        this.maxTokens = maxTokens;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        float[] vector = embedVector(text);
+        List<Double> boxed = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            boxed.add((double) value);
+        }
+        return boxed;
+    }
+
+    @Override
+    public float[] embedVector(String text) {
+        return embeddings.computeIfAbsent(text, this::compute);
+    }
+
+    /**
+     * Answers on the calling thread, like the real service does for cached texts.
+     */
+    @Override
+    public Mono<float[]> embedVectorAsync(String text) {
+        return Mono.fromSupplier(() -> embedVector(text));
+    }
+
+    @Override
+    public Mono<List<float[]>> embedVectorsAsync(List<String> texts) {
+        return Mono.fromSupplier(() -> texts.stream().map(this::embedVector).toList());
+    }
+
+    /**
+     * Embeds without memoizing, for building large catalogs without holding every vector twice.
+     */
+    public float[] compute(String text) {
+        float[] sum = new float[dimension];
+        int tokens = 0;
+        for (String token : tokenize(text)) {
+            if (tokens++ == maxTokens) {
+                break;
+            }
+            float[] direction = tokenVectors.computeIfAbsent(token, this::direction);
+            for (int i = 0; i < dimension; i++) {
+                sum[i] += direction[i];
+            }
+        }
+        if (tokens == 0) {
+            sum[0] = 1;
+        }
+        return VectorUtils.normalizeInPlace(sum);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private float[] direction(String token) {
+        Random random = new Random(token.hashCode() * 0x9E3779B97F4A7C15L);
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,69 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
+import net.desertrosedesigns.delta.search.util.HybridScorer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Candidate fusion as the hybrid search runs it: two best-first lists of {@code depth} candidates that
+ * overlap by half, plus exact vector scores for the text-only half.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HybridScorerBenchmark {
+
+    @Param({"50", "200"})
+    public int depth;
+
+    @Param({"WEIGHTED", "RRF"})
+    public FusionStrategy strategy;
+
+    @Param({"20"})
+    public int limit;
+
+    private List<HybridScorer.Candidate> text;
+    private List<HybridScorer.Candidate> vector;
+    private Map<String, Double> textOnlyVectorScores;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        text = new ArrayList<>(depth);
+        vector = new ArrayList<>(depth);
+        textOnlyVectorScores = new HashMap<>();
+        for (int i = 0; i < depth; i++) {
+            String textId = "p-" + i;
+            text.add(new HybridScorer.Candidate(textId, 20.0 - i * (10.0 / depth)));
+            vector.add(new HybridScorer.Candidate("p-" + (i + depth / 2), 0.9 - i * (0.4 / depth)));
+            if (i < depth / 2) {
+                textOnlyVectorScores.put(textId, 0.3 + random.nextDouble() * 0.2);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<HybridScorer.Fused> fuse() {
+        return HybridScorer.fuse(text, vector, textOnlyVectorScores, strategy, 60, limit);
+    }
+}
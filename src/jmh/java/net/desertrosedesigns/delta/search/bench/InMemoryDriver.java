@@ -0,0 +1,279 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.model.ProductField;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransactionCallback;
+import org.neo4j.driver.async.AsyncTransactionContext;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.internal.InternalRecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Driver} that answers the handful of Cypher statements the search services issue from a
+ * {@link Catalog} held in memory: the embedding load with its change watermark, the full-text query (a
+ * small TF-IDF scorer) and lookups by sourceId. Anything else fails with a {@link ClientException},
+ * which is also how the native vector mode sees a missing index. Query results are memoized so benchmarks time the services, not
+ * this stand-in.
+ */
+public final class InMemoryDriver {
+
+    private final Catalog catalog;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<String, List<Record>> memo = new ConcurrentHashMap<>();
+
+    private InMemoryDriver(Catalog catalog) {
+        this.catalog = catalog;
+        for (int i = 0; i < catalog.size(); i++) {
+            Map<String, Object> product = catalog.properties(i);
+            ordinals.put((String) product.get(ProductField.SOURCE_ID.property()), i);
+            for (String token : HashingEmbeddingService.tokenize(searchableText(product))) {
+                postings.computeIfAbsent(token, t -> new HashMap<>()).merge(i, 1, Integer::sum);
+            }
+        }
+    }
+
+    public static Driver create(Catalog catalog) {
+        return new InMemoryDriver(catalog).driver();
+    }
+
+    private Driver driver() {
+        return proxy(Driver.class, (method, args) -> switch (method.getName()) {
+            case "session" -> args != null && args.length > 0 && args[0] == AsyncSession.class
+                    ? asyncSession()
+                    : session();
+            case "close", "verifyConnectivity" -> null;
+            case "closeAsync", "verifyConnectivityAsync" -> CompletableFuture.completedFuture(null);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private Session session() {
+        return proxy(Session.class, (method, args) -> switch (method.getName()) {
+            case "readTransaction", "executeRead", "writeTransaction", "executeWrite" -> {
+                if (args[0] instanceof TransactionWork<?> work) {
+                    yield work.execute(transaction(Transaction.class));
+                }
+                yield ((TransactionCallback<?>) args[0]).execute(transaction(TransactionContext.class));
+            }
+            case "run" -> result(run(args));
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private <T> T transaction(Class<T> type) {
+        return proxy(type, (method, args) -> switch (method.getName()) {
+            case "run" -> result(run(args));
+            case "close", "commit", "rollback" -> null;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private AsyncSession asyncSession() {
+        AsyncTransactionContext tx = proxy(AsyncTransactionContext.class, (method, args) -> {
+            if (!method.getName().equals("runAsync")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            try {
+                return CompletableFuture.completedFuture(cursor(run(args)));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        return proxy(AsyncSession.class, (method, args) -> switch (method.getName()) {
+            case "executeReadAsync", "executeWriteAsync" -> ((AsyncTransactionCallback<?>) args[0]).execute(tx);
+            case "closeAsync" -> CompletableFuture.completedFuture(null);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static Result result(List<Record> records) {
+        Iterator<Record> iterator = records.iterator();
+        return proxy(Result.class, (method, args) -> switch (method.getName()) {
+            case "hasNext", "next", "forEachRemaining", "remove" -> invoke(method, iterator, args);
+            case "list" -> map(remaining(iterator), args);
+            case "stream" -> StreamSupport.stream(((Iterable<Record>) () -> iterator).spliterator(), false);
+            case "single" -> iterator.next();
+            case "keys" -> records.isEmpty() ? List.of() : records.get(0).keys();
+            case "consume" -> null;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static ResultCursor cursor(List<Record> records) {
+        return proxy(ResultCursor.class, (method, args) -> switch (method.getName()) {
+            case "listAsync" -> CompletableFuture.completedFuture(map(records, args));
+            case "keys" -> records.isEmpty() ? List.of() : records.get(0).keys();
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private List<Record> run(Object[] args) {
+        String cypher = args[0] instanceof Query query ? query.text() : (String) args[0];
+        @SuppressWarnings("unchecked")
+        Map<String, Object> parameters = args.length > 1 && args[1] instanceof Map<?, ?> map
+                ? (Map<String, Object>) map
+                : Map.of();
+        if (cypher.contains("p.embedding IS NOT NULL")) {
+            return embeddings();
+        }
+        if (cypher.equals("RETURN timestamp() AS now")) {
+            return List.of(new InternalRecord(List.of("now"), new Value[]{Values.value(System.currentTimeMillis())}));
+        }
+        return memo.computeIfAbsent(cypher + parameters, key -> {
+            if (cypher.contains("db.index.fulltext.queryNodes")) {
+                return fullText(cypher, (String) parameters.get("query"), ((Number) parameters.get("limit")).intValue());
+            }
+            if (cypher.contains("node.sourceId IN $sourceIds")) {
+                return bySourceId(cypher, (Collection<?>) parameters.get("sourceIds"));
+            }
+            throw new ClientException("Neo.ClientError.Procedure.ProcedureNotFound", "not supported in memory: " + cypher);
+        });
+    }
+
+    private List<Record> embeddings() {
+        List<String> keys = List.of("sourceId", "embedding", "title", "categories");
+        List<Record> records = new ArrayList<>(catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            Map<String, Object> properties = catalog.properties(i);
+            records.add(new InternalRecord(keys, new Value[]{
+                    Values.value(properties.get(ProductField.SOURCE_ID.property())),
+                    Values.value(catalog.vector(i)),
+                    Values.value(properties.get(ProductField.TITLE.property())),
+                    Values.value(properties.get(ProductField.CATEGORIES.property()))}));
+        }
+        return records;
+    }
+
+    private List<Record> fullText(String cypher, String query, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String token : new HashSet<>(HashingEmbeddingService.tokenize(query))) {
+            Map<Integer, Integer> docs = postings.get(token);
+            if (docs == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (double) catalog.size() / docs.size());
+            docs.forEach((doc, tf) -> scores.merge(doc, Math.sqrt(tf) * idf, Double::sum));
+        }
+        List<ProductField> fields = projectedFields(cypher);
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(hit -> record(hit.getKey(), fields, hit.getValue()))
+                .toList();
+    }
+
+    private List<Record> bySourceId(String cypher, Collection<?> sourceIds) {
+        List<ProductField> fields = projectedFields(cypher);
+        List<Record> records = new ArrayList<>(sourceIds.size());
+        for (Object sourceId : sourceIds) {
+            Integer ordinal = ordinals.get(sourceId);
+            if (ordinal != null) {
+                records.add(record(ordinal, fields, null));
+            }
+        }
+        return records;
+    }
+
+    private Record record(int ordinal, List<ProductField> fields, Double score) {
+        List<String> keys = new ArrayList<>(fields.size() + 1);
+        List<Value> values = new ArrayList<>(fields.size() + 1);
+        for (ProductField field : fields) {
+            keys.add(field.property());
+            values.add(Values.value(catalog.properties(ordinal).get(field.property())));
+        }
+        if (score != null) {
+            keys.add("score");
+            values.add(Values.value(score));
+        }
+        return new InternalRecord(keys, values.toArray(Value[]::new));
+    }
+
+    private static List<ProductField> projectedFields(String cypher) {
+        return Stream.of(ProductField.values())
+                .filter(field -> cypher.contains("node." + field.property() + " AS "))
+                .toList();
+    }
+
+    private static String searchableText(Map<String, Object> product) {
+        Set<String> parts = new HashSet<>();
+        for (ProductField field : ProductField.values()) {
+            Object value = product.get(field.property());
+            if (field != ProductField.SOURCE_ID && value != null) {
+                parts.add(value instanceof List<?> list ? String.join(" ", list.stream().map(String::valueOf).toList())
+                        : value.toString());
+            }
+        }
+        return String.join(" ", parts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> map(List<Record> records, Object[] args) {
+        if (args == null || args.length == 0) {
+            return new ArrayList<>(records);
+        }
+        return records.stream().map(record -> ((Function<Record, Object>) args[0]).apply(record)).toList();
+    }
+
+    private static List<Record> remaining(Iterator<Record> iterator) {
+        List<Record> records = new ArrayList<>();
+        iterator.forEachRemaining(records::add);
+        return records;
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocation = (proxy, method, args) -> switch (method.getName()) {
+            case "toString" -> "in-memory " + type.getSimpleName();
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> handler.handle(method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(InMemoryDriver.class.getClassLoader(), new Class<?>[]{type}, invocation));
+    }
+}
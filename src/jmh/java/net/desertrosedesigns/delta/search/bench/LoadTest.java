@@ -0,0 +1,425 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a JSONL query log against a running instance and reports latency percentiles, recorded in
+ * HdrHistograms, and error rates per endpoint. Each line is one request:
+ * <pre>
+ * {"endpoint":"text","q":"hoop earrings","limit":10}
+ * {"endpoint":"hybrid","q":"red dress","fusion":"rrf","categories":"Dresses"}
+ * {"endpoint":"import","file":"data/products.csv","mode":"delta"}
+ * </pre>
+ * {@code endpoint} is a search under {@code /api/search/} ({@code text}, {@code embedding},
+ * {@code hybrid}, {@code faceted}, {@code suggest}) whose other fields become query parameters, or
+ * {@code import}, which posts {@code file} to {@code /api/products/import} and waits for the job to
+ * finish (without a file it runs the blocking {@code GET} import). The log is replayed in order and
+ * wraps around until the run ends.
+ * <p>
+ * With {@code --rate} the load is open-loop: requests start on a fixed schedule whether or not earlier
+ * ones have finished, and latency is measured from the scheduled start, so a stalled server shows up
+ * as queueing delay rather than as fewer, faster requests. Otherwise {@code --concurrency} clients
+ * each send their next request when the last one finishes. Latencies are of successful requests;
+ * failures are counted by status or exception. Results are printed and written to
+ * {@code target/load/results-<timestamp>.json}.
+ * <p>
+ * Usage: {@code LoadTest --log data/queries.jsonl [--target http://localhost:8080] [--rate 200 |
+ * --concurrency 16] [--duration PT60S] [--warmup PT10S] [--timeout PT30S] [--import-timeout PT30M]
+ * [--client-deadline PT2S] [--report-interval PT10S]}.
+ */
+public final class LoadTest {
+
+    private static final Path RESULTS = Path.of("target", "load");
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Set<String> SEARCHES = Set.of("text", "embedding", "hybrid", "faceted", "suggest");
+
+    private final URI target;
+    private final List<Entry> workload;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final Duration importTimeout;
+    private final Duration clientDeadline;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Phaser outstanding = new Phaser(1);
+    private final AtomicLong next = new AtomicLong();
+    private volatile long measureFrom;
+
+    LoadTest(URI target, List<Entry> workload, Duration timeout, Duration importTimeout, Duration clientDeadline) {
+        this.target = target;
+        this.workload = workload;
+        this.timeout = timeout;
+        this.importTimeout = importTimeout;
+        this.clientDeadline = clientDeadline;
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        for (Entry entry : workload) {
+            endpoints.computeIfAbsent(entry.endpoint(), Endpoint::new);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = options(args);
+        if (!options.containsKey("log")) {
+            System.err.println("usage: LoadTest --log <queries.jsonl> [--target http://localhost:8080] "
+                    + "[--rate <requests/s> | --concurrency <clients>] [--duration PT60S] [--warmup PT10S]");
+            System.exit(1);
+            return;
+        }
+        List<Entry> workload = read(Path.of(options.get("log")));
+        if (workload.isEmpty()) {
+            throw new IllegalArgumentException("query log " + options.get("log") + " has no requests");
+        }
+        LoadTest test = new LoadTest(URI.create(options.getOrDefault("target", "http://localhost:8080")), workload,
+                Duration.parse(options.getOrDefault("timeout", "PT30S")),
+                Duration.parse(options.getOrDefault("import-timeout", "PT30M")),
+                options.containsKey("client-deadline") ? Duration.parse(options.get("client-deadline")) : null);
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT60S"));
+        Duration reportInterval = Duration.parse(options.getOrDefault("report-interval", "PT10S"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+
+        String load = rate > 0 ? "open loop at %.1f requests/s".formatted(rate) : concurrency + " concurrent clients";
+        System.out.printf("replaying %d requests from %s against %s, %s, %s warmup then %s%n", workload.size(),
+                options.get("log"), test.target, load, warmup, duration);
+        Map<String, Object> results = test.run(rate, concurrency, warmup, duration, reportInterval);
+        results.put("target", test.target.toString());
+        results.put("log", options.get("log"));
+        results.put("load", load);
+
+        Files.createDirectories(RESULTS);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path output = RESULTS.resolve("results-" + stamp + ".json");
+        JSON.writeValue(output.toFile(), results);
+        System.out.println("results written to " + output);
+    }
+
+    /**
+     * Runs the warmup and the measured phase, printing interval percentiles every
+     * {@code reportInterval}, and returns the measured results per endpoint.
+     */
+    Map<String, Object> run(double rate, int concurrency, Duration warmup, Duration duration, Duration reportInterval)
+            throws InterruptedException {
+        long started = System.nanoTime();
+        measureFrom = started + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> report(started), reportInterval.toNanos(), reportInterval.toNanos(),
+                TimeUnit.NANOSECONDS);
+        try {
+            if (rate > 0) {
+                openLoop(rate, end);
+            } else {
+                // Each client holds a party until it is done, so the wait below cannot end between two requests.
+                outstanding.bulkRegister(concurrency);
+                for (int i = 0; i < concurrency; i++) {
+                    closedLoop(end);
+                }
+            }
+            outstanding.arriveAndAwaitAdvance();
+        } finally {
+            reporter.shutdownNow();
+            reporter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        report(started);
+
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+        Map<String, Object> results = new LinkedHashMap<>();
+        Map<String, Object> summaries = new LinkedHashMap<>();
+        System.out.printf("%n%-10s %9s %9s %8s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "ok/s",
+                "errors", "err%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.values().stream().sorted((a, b) -> a.name.compareTo(b.name)).forEach(endpoint -> {
+            Map<String, Object> summary = endpoint.summary(seconds);
+            summaries.put(endpoint.name, summary);
+            System.out.printf("%-10s %9d %9.1f %8d %6.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint.name,
+                    summary.get("requests"), summary.get("throughput"), summary.get("errors"),
+                    100 * (Double) summary.get("errorRate"), millis(endpoint.total, 50), millis(endpoint.total, 90),
+                    millis(endpoint.total, 99), millis(endpoint.total, 99.9), endpoint.total.getMaxValue() / 1000.0);
+            endpoint.errorsByReason.forEach((reason, count) ->
+                    System.out.printf("           %8d x %s%n", count.sum(), reason));
+        });
+        results.put("durationSeconds", seconds);
+        results.put("endpoints", summaries);
+        return results;
+    }
+
+    /**
+     * Starts requests on a fixed schedule. A request's latency includes any time it waited past its
+     * scheduled start, including waiting for this loop.
+     */
+    private void openLoop(double rate, long end) {
+        double interval = 1e9 / rate;
+        long started = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long scheduled = started + (long) (i * interval);
+            if (scheduled >= end) {
+                return;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(workload.get((int) (i % workload.size())), scheduled);
+        }
+    }
+
+    /**
+     * One client that sends its next request as soon as the last one finishes, until {@code end}.
+     */
+    private void closedLoop(long end) {
+        long now = System.nanoTime();
+        if (now >= end) {
+            outstanding.arriveAndDeregister();
+            return;
+        }
+        Entry entry = workload.get((int) (next.getAndIncrement() % workload.size()));
+        send(entry, now).whenCompleteAsync((ignored, error) -> closedLoop(end));
+    }
+
+    private CompletableFuture<Void> send(Entry entry, long scheduled) {
+        Endpoint endpoint = endpoints.get(entry.endpoint());
+        outstanding.register();
+        CompletableFuture<String> response;
+        try {
+            response = client.sendAsync(request(entry), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(result -> failure(entry, result));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((failure, error) -> {
+            boolean measured = scheduled >= measureFrom;
+            if (measured) {
+                if (error != null) {
+                    endpoint.fail(reason(error));
+                } else if (failure != null) {
+                    endpoint.fail(failure);
+                } else {
+                    endpoint.latencies.recordValue(Math.max(0, (System.nanoTime() - scheduled) / 1000));
+                }
+            }
+            outstanding.arriveAndDeregister();
+            return null;
+        });
+    }
+
+    private HttpRequest request(Entry entry) {
+        if (entry.endpoint().equals("import")) {
+            String mode = "?mode=" + encode(entry.parameters().getOrDefault("mode", "delta"));
+            HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(importTimeout);
+            String file = entry.parameters().get("file");
+            if (file == null) {
+                return builder.uri(target.resolve("/api/products/import" + mode)).GET().build();
+            }
+            try {
+                return builder.uri(target.resolve("/api/products/import" + mode))
+                        .header("Content-Type", "text/csv")
+                        .header("Accept", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofFile(Path.of(file)))
+                        .build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        StringBuilder query = new StringBuilder();
+        entry.parameters().forEach((name, value) -> query.append(query.isEmpty() ? '?' : '&')
+                .append(encode(name)).append('=').append(encode(value)));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target.resolve("/api/search/" + entry.endpoint() + query))
+                .timeout(timeout)
+                .GET();
+        if (clientDeadline != null) {
+            builder.header("X-Request-Timeout", Long.toString(clientDeadline.toMillis()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Why a response counts as failed, or {@code null}. A streamed import that answered {@code 202}
+     * failed if its last progress event says so.
+     */
+    private static String failure(Entry entry, HttpResponse<String> response) {
+        if (response.statusCode() >= 400) {
+            return "status " + response.statusCode();
+        }
+        if (entry.endpoint().equals("import") && response.statusCode() == 202) {
+            String body = response.body().strip();
+            String last = body.substring(body.lastIndexOf('\n') + 1);
+            try {
+                String status = JSON.readTree(last).path("status").asText("");
+                if (!status.equals("SUCCEEDED")) {
+                    return "import " + (status.isEmpty() ? "without a final status" : status);
+                }
+            } catch (IOException e) {
+                return "import progress unreadable";
+            }
+        }
+        return null;
+    }
+
+    private static String reason(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause instanceof CompletionException) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private void report(long started) {
+        long now = System.nanoTime();
+        boolean measured = now >= measureFrom;
+        StringBuilder line = new StringBuilder("%5ds %s".formatted((now - started) / 1_000_000_000L,
+                measured ? "" : "(warmup) "));
+        endpoints.values().stream().sorted((a, b) -> a.name.compareTo(b.name)).forEach(endpoint -> {
+            Histogram interval = endpoint.flush(measured);
+            line.append("  %s %d p99=%.1fms errors=%d".formatted(endpoint.name, interval.getTotalCount(),
+                    interval.getValueAtPercentile(99) / 1000.0, endpoint.intervalErrors.sumThenReset()));
+        });
+        System.out.println(line);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The requests in a JSONL query log, skipping blank lines.
+     */
+    static List<Entry> read(Path log) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        int number = 0;
+        for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node = JSON.readTree(line);
+            String endpoint = node.path("endpoint").asText("");
+            if (!endpoint.equals("import") && !SEARCHES.contains(endpoint)) {
+                throw new IllegalArgumentException(log + ":" + number + ": unknown endpoint '" + endpoint + "'");
+            }
+            if (SEARCHES.contains(endpoint) && !node.hasNonNull("q")) {
+                throw new IllegalArgumentException(log + ":" + number + ": a search needs \"q\"");
+            }
+            Map<String, String> parameters = new LinkedHashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!field.getKey().equals("endpoint") && !field.getValue().isNull()) {
+                    parameters.put(field.getKey(), field.getValue().asText());
+                }
+            }
+            entries.add(new Entry(endpoint, parameters));
+        }
+        return entries;
+    }
+
+    /**
+     * {@code --name value} pairs; a flag without a value maps to {@code "true"}.
+     */
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("expected an option but got " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(name, hasValue ? args[++i] : "true");
+        }
+        return options;
+    }
+
+    record Entry(String endpoint, Map<String, String> parameters) {
+    }
+
+    /**
+     * Latencies in microseconds, recorded by response callbacks and drained by the reporter.
+     */
+    private static final class Endpoint {
+        private final String name;
+        private final Recorder latencies = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder intervalErrors = new LongAdder();
+        private final Map<String, LongAdder> errorsByReason = new ConcurrentHashMap<>();
+        private Histogram interval;
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        private void fail(String reason) {
+            errors.increment();
+            intervalErrors.increment();
+            errorsByReason.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        }
+
+        /**
+         * The latencies since the last flush, added to the total when {@code keep}.
+         */
+        private synchronized Histogram flush(boolean keep) {
+            interval = latencies.getIntervalHistogram(interval);
+            if (keep) {
+                total.add(interval);
+            }
+            return interval;
+        }
+
+        private synchronized Map<String, Object> summary(double seconds) {
+            long succeeded = total.getTotalCount();
+            long failed = errors.sum();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", succeeded + failed);
+            summary.put("throughput", succeeded / seconds);
+            summary.put("errors", failed);
+            summary.put("errorRate", succeeded + failed == 0 ? 0.0 : (double) failed / (succeeded + failed));
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("p50", millis(total, 50));
+            percentiles.put("p90", millis(total, 90));
+            percentiles.put("p99", millis(total, 99));
+            percentiles.put("p99.9", millis(total, 99.9));
+            percentiles.put("max", total.getMaxValue() / 1000.0);
+            summary.put("latencyMillis", percentiles);
+            Map<String, Long> reasons = new LinkedHashMap<>();
+            errorsByReason.forEach((reason, count) -> reasons.put(reason, count.sum()));
+            summary.put("errorsByReason", reasons);
+            return summary;
+        }
+    }
+}
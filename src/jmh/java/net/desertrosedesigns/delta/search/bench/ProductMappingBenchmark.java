@@ -0,0 +1,89 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row-to-DTO mapping for one page of 20 results. {@code fromNode} maps whole node property maps
+ * including the stored embedding; the projection variants map the narrower rows the search queries
+ * return.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+    private static final int PAGE = 20;
+    private static final Set<ProductField> TITLE_ONLY = EnumSet.of(ProductField.SOURCE_ID, ProductField.TITLE);
+
+    private final List<Map<String, Object>> nodes = new ArrayList<>();
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private int page;
+
+    @Setup
+    public void setUp() {
+        HashingEmbeddingService embedder = new HashingEmbeddingService(384, 64);
+        Catalog catalog = Catalog.load(0, embedder);
+        for (int i = 0; i < catalog.size(); i++) {
+            Map<String, Object> node = new HashMap<>(catalog.properties(i));
+            List<Double> embedding = new ArrayList<>();
+            for (float value : catalog.vector(i)) {
+                embedding.add((double) value);
+            }
+            node.put("embedding", embedding);
+            nodes.add(node);
+            rows.add(catalog.properties(i));
+        }
+    }
+
+    @Benchmark
+    public void fromNode(Blackhole blackhole) {
+        int start = nextPage();
+        for (int i = start; i < start + PAGE; i++) {
+            blackhole.consume(ProductDto.fromNode(nodes.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void fromProjectionAllFields(Blackhole blackhole) {
+        int start = nextPage();
+        for (int i = start; i < start + PAGE; i++) {
+            blackhole.consume(ProductDto.fromProjection(rows.get(i), ProductField.ALL));
+        }
+    }
+
+    @Benchmark
+    public void fromProjectionTitleOnly(Blackhole blackhole) {
+        int start = nextPage();
+        for (int i = start; i < start + PAGE; i++) {
+            blackhole.consume(ProductDto.fromProjection(rows.get(i), TITLE_ONLY));
+        }
+    }
+
+    private int nextPage() {
+        page = (page + PAGE) % (rows.size() - PAGE);
+        return page;
+    }
+}
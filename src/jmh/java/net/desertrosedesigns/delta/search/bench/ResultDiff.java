@@ -0,0 +1,102 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark: primary score and allocation per
+ * operation, baseline then candidate. A change counts as a regression when it is worse by more than the
+ * threshold (default 5%) and by more than the two runs' combined error; the exit status is 1 if any
+ * benchmark regressed, so the diff can gate a build.
+ * <p>
+ * Usage: {@code ResultDiff <baseline.json> <candidate.json> [threshold-percent]}
+ */
+public final class ResultDiff {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private ResultDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ResultDiff <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5.0;
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> candidate = read(Path.of(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n",
+                "benchmark", "baseline", "candidate", "change", "B/op before", "B/op after");
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-70s %14s%n", entry.getKey(), "(missing in candidate)");
+                continue;
+            }
+            JsonNode before = entry.getValue();
+            double oldScore = before.at("/primaryMetric/score").asDouble();
+            double newScore = after.at("/primaryMetric/score").asDouble();
+            double error = finite(before.at("/primaryMetric/scoreError").asDouble())
+                    + finite(after.at("/primaryMetric/scoreError").asDouble());
+            boolean higherIsBetter = "thrpt".equals(before.path("mode").asText());
+            double change = oldScore == 0 ? 0 : (newScore - oldScore) / oldScore * 100;
+            double worsening = higherIsBetter ? -change : change;
+            boolean regressed = worsening > threshold && Math.abs(newScore - oldScore) > error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.6g %14.6g %+8.1f%% %12s %12s%s%n",
+                    entry.getKey(), oldScore, newScore, change, allocation(before), allocation(after),
+                    regressed ? "  REGRESSION" : "");
+        }
+        candidate.keySet().stream()
+                .filter(key -> !baseline.containsKey(key))
+                .forEach(key -> System.out.printf("%-70s %14s%n", key, "(new)"));
+        System.out.printf("%d regression(s) beyond %.1f%%%n", regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            results.put(key(result), result);
+        }
+        return results;
+    }
+
+    private static String key(JsonNode result) {
+        String benchmark = result.path("benchmark").asText();
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+        while (params.hasNext()) {
+            Map.Entry<String, JsonNode> param = params.next();
+            key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return key.append(" [").append(result.path("mode").asText()).append(']').toString();
+    }
+
+    private static String allocation(JsonNode result) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            // Older JMH versions prefix profiler metrics with a middle dot.
+            if (metric.getKey().endsWith(ALLOCATION)) {
+                return String.format("%.1f", metric.getValue().path("score").asDouble());
+            }
+        }
+        return "-";
+    }
+
+    private static double finite(double value) {
+        return Double.isFinite(value) ? value : 0;
+    }
+}
@@ -0,0 +1,158 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.model.ProductField;
+import net.desertrosedesigns.delta.search.model.SearchResultDto;
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import net.desertrosedesigns.delta.search.service.AdmissionControl;
+import net.desertrosedesigns.delta.search.service.CorpusSnapshots;
+import net.desertrosedesigns.delta.search.service.Instrumentation;
+import net.desertrosedesigns.delta.search.service.ProductSearchService;
+import net.desertrosedesigns.delta.search.service.ProductVectorIndex;
+import net.desertrosedesigns.delta.search.service.SearchOptions;
+import net.desertrosedesigns.delta.search.service.SearchResultCache;
+import net.desertrosedesigns.delta.search.service.VectorSearchMode;
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
+import org.neo4j.driver.Driver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ProductSearchService} calls against an {@link InMemoryDriver} and a
+ * {@link HashingEmbeddingService}, so the numbers cover candidate generation, fusion, product
+ * hydration and DTO mapping without network or database time. Queries are short prefixes of catalog
+ * titles, cycled per thread. Sample-time mode reports latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SearchServiceBenchmark {
+
+    private static final int QUERIES = 64;
+
+    /** Catalog size; 0 means exactly the products in {@code data/products.csv}. */
+    @Param({"0", "20000"})
+    public int catalogSize;
+
+    @Param({"20"})
+    public int limit;
+
+    private ProductVectorIndex vectorIndex;
+    private ProductSearchService searchService;
+    private List<String> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HashingEmbeddingService embedder = new HashingEmbeddingService(384, 64);
+        Catalog catalog = Catalog.load(catalogSize, embedder);
+        Driver driver = InMemoryDriver.create(catalog);
+        vectorIndex = new ProductVectorIndex(driver, new CorpusSnapshots(driver, "", 2, true),
+                16, 200, 64, "int8", 100, 0, 4096, 5000, 10);
+        vectorIndex.rebuild();
+        // The result cache is off: with it on, every iteration after the first would measure cache hits.
+        searchService = new ProductSearchService(driver, embedder, vectorIndex, Instrumentation.noop(),
+                new SearchResultCache(driver, false, 0, Duration.ofSeconds(5)),
+                new AdmissionControl(Instrumentation.noop(), false, 32, 4, 256, 0.9, Duration.ofSeconds(1),
+                        Duration.ofSeconds(5)),
+                "hnsw", 50, 50, "weighted", 60, 1000, 8, 1, Duration.ofMillis(500));
+
+        queries = new ArrayList<>(QUERIES);
+        int step = Math.max(1, catalog.size() / QUERIES);
+        for (int i = 0; queries.size() < QUERIES && i < catalog.size(); i += step) {
+            List<String> tokens = HashingEmbeddingService.tokenize(catalog.title(i));
+            if (!tokens.isEmpty()) {
+                queries.add(String.join(" ", tokens.subList(0, Math.min(3, tokens.size()))));
+            }
+        }
+        // Build the HNSW graph and fill the stand-ins' memos before measuring.
+        for (String query : queries) {
+            hybrid(query, FusionStrategy.WEIGHTED, VectorSearchMode.HNSW);
+            embedding(query, VectorSearchMode.HNSW);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        vectorIndex.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String query(SearchServiceBenchmark benchmark) {
+            next = (next + 1) % benchmark.queries.size();
+            return benchmark.queries.get(next);
+        }
+    }
+
+    @Benchmark
+    public List<SearchResultDto> textSearch(Cursor cursor) {
+        return searchService.textSearch(cursor.query(this), SearchOptions.of(limit)).block();
+    }
+
+    @Benchmark
+    public List<SearchResultDto> textSearchTitleOnly(Cursor cursor) {
+        return searchService.textSearch(cursor.query(this), new SearchOptions(limit, null, null, null,
+                EnumSet.of(ProductField.TITLE))).block();
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest(Cursor cursor) {
+        // The first few keystrokes of each query, as a search box would send them.
+        String query = cursor.query(this);
+        return searchService.suggest(query.substring(0, Math.min(4, query.length())), 10).block();
+    }
+
+    @Benchmark
+    public List<SearchResultDto> embeddingHnsw(Cursor cursor) {
+        return embedding(cursor.query(this), VectorSearchMode.HNSW);
+    }
+
+    @Benchmark
+    public List<SearchResultDto> embeddingQuantized(Cursor cursor) {
+        return embedding(cursor.query(this), VectorSearchMode.QUANTIZED);
+    }
+
+    @Benchmark
+    public List<SearchResultDto> embeddingExact(Cursor cursor) {
+        return embedding(cursor.query(this), VectorSearchMode.EXACT);
+    }
+
+    @Benchmark
+    public List<SearchResultDto> hybridWeighted(Cursor cursor) {
+        return hybrid(cursor.query(this), FusionStrategy.WEIGHTED, VectorSearchMode.HNSW);
+    }
+
+    @Benchmark
+    public List<SearchResultDto> hybridRrf(Cursor cursor) {
+        return hybrid(cursor.query(this), FusionStrategy.RRF, VectorSearchMode.HNSW);
+    }
+
+    private List<SearchResultDto> embedding(String query, VectorSearchMode mode) {
+        return searchService.embeddingSearch(query, new SearchOptions(limit, null, mode, null, null)).block();
+    }
+
+    private List<SearchResultDto> hybrid(String query, FusionStrategy fusion, VectorSearchMode mode) {
+        return searchService.hybridSearch(query, new SearchOptions(limit, null, mode, fusion, null)).block();
+    }
+}
@@ -0,0 +1,96 @@
+package net.desertrosedesigns.delta.search.bench;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link VectorUtils} kernels at embedding dimension. {@code cosineBoxed} is the {@code List<Double>}
+ * path the embedding client still exposes, kept for comparison with the primitive kernels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorMathBenchmark {
+
+    @Param({"384"})
+    public int dimension;
+
+    private float[] a;
+    private float[] b;
+    private List<Double> boxedA;
+    private List<Double> boxedB;
+    private byte[] codesA;
+    private byte[] codesB;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        a = new float[dimension];
+        b = new float[dimension];
+        codesA = new byte[dimension];
+        codesB = new byte[dimension];
+        for (int i = 0; i < dimension; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+            codesA[i] = (byte) random.nextInt(256);
+            codesB[i] = (byte) random.nextInt(256);
+        }
+        boxedA = toList(a);
+        boxedB = toList(b);
+    }
+
+    @Benchmark
+    public float dot() {
+        return VectorUtils.dot(a, b);
+    }
+
+    @Benchmark
+    public float cosine() {
+        return VectorUtils.cosineSimilarity(a, b);
+    }
+
+    @Benchmark
+    public float[] normalize() {
+        return VectorUtils.normalize(a);
+    }
+
+    @Benchmark
+    public int dotInt8() {
+        return VectorUtils.dot(codesA, 0, codesB, 0, dimension);
+    }
+
+    @Benchmark
+    public double cosineBoxed() {
+        return VectorUtils.cosineSimilarity(boxedA, boxedB);
+    }
+
+    @Benchmark
+    public float[] toFloatArray() {
+        return VectorUtils.toFloatArray(boxedA);
+    }
+
+    private static List<Double> toList(float[] vector) {
+        Double[] boxed = new Double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            boxed[i] = (double) vector[i];
+        }
+        return List.of(boxed);
+    }
+}
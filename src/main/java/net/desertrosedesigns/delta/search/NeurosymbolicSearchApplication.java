@@ -2,8 +2,10 @@ package net.desertrosedesigns.delta.search;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NeurosymbolicSearchApplication {
     public static void main(String[] args) {
         SpringApplication.run(NeurosymbolicSearchApplication.class, args);
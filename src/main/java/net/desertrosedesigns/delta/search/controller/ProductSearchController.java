@@ -1,60 +1,358 @@
 package net.desertrosedesigns.delta.search.controller;
 
+import net.desertrosedesigns.delta.search.ingest.ImportAlreadyRunningException;
+import net.desertrosedesigns.delta.search.ingest.ImportJob;
+import net.desertrosedesigns.delta.search.ingest.ImportJobs;
+import net.desertrosedesigns.delta.search.ingest.ImportMode;
+import net.desertrosedesigns.delta.search.ingest.ImportProgress;
+import net.desertrosedesigns.delta.search.ingest.ImportSummary;
 import net.desertrosedesigns.delta.search.ingest.ProductCsvImporter;
+import net.desertrosedesigns.delta.search.ingest.UnknownImportJobException;
+import net.desertrosedesigns.delta.search.model.BatchSearchRequest;
+import net.desertrosedesigns.delta.search.model.BatchSearchResult;
+import net.desertrosedesigns.delta.search.model.FacetedSearchResult;
+import net.desertrosedesigns.delta.search.model.ProductField;
 import net.desertrosedesigns.delta.search.model.SearchResultDto;
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import net.desertrosedesigns.delta.search.service.BatchQuery;
+import net.desertrosedesigns.delta.search.service.Deadline;
+import net.desertrosedesigns.delta.search.service.EmbeddingCache;
 import net.desertrosedesigns.delta.search.service.ProductSearchService;
+import net.desertrosedesigns.delta.search.service.SearchOptions;
+import net.desertrosedesigns.delta.search.service.SearchRejectedException;
+import net.desertrosedesigns.delta.search.service.SearchResultCache;
+import net.desertrosedesigns.delta.search.service.SearchType;
+import net.desertrosedesigns.delta.search.service.VectorSearchMode;
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api")
 public class ProductSearchController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductSearchController.class);
+    static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
 
     private final ProductCsvImporter importer;
+    private final ImportJobs importJobs;
     private final ProductSearchService searchService;
+    private final EmbeddingCache embeddingCache;
+    private final SearchResultCache resultCache;
 
-    public ProductSearchController(ProductCsvImporter importer, ProductSearchService searchService) {
+    public ProductSearchController(ProductCsvImporter importer,
+                                   ImportJobs importJobs,
+                                   ProductSearchService searchService,
+                                   EmbeddingCache embeddingCache,
+                                   SearchResultCache resultCache) {
         this.importer = importer;
+        this.importJobs = importJobs;
         this.searchService = searchService;
+        this.embeddingCache = embeddingCache;
+        this.resultCache = resultCache;
     }
 
     @GetMapping("/products/import")
-    public ResponseEntity<Map<String, Object>> importProducts() {
+    public ResponseEntity<Map<String, Object>> importProducts(@RequestParam(value = "mode", defaultValue = "delta") String mode) {
+        ImportMode importMode;
         try {
-            int count = importer.importProducts();
-            return ResponseEntity.ok(Map.of("imported", count));
+            importMode = ImportMode.parse(mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "unknown import mode", "mode", mode));
+        }
+        try {
+            ImportSummary summary = importer.importProducts(importMode);
+            return ResponseEntity.ok(Map.of(
+                    "imported", summary.written(),
+                    "parsed", summary.parsed(),
+                    "unchanged", summary.unchanged(),
+                    "deleted", summary.deleted()));
+        } catch (ImportAlreadyRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             log.error("product import failed", e);
             return ResponseEntity.status(500).body(Map.of("error", "import failed", "reason", e.getMessage()));
         }
     }
 
+    /**
+     * Imports the CSV in the request body, gzip-compressed or not, as a background job and streams its
+     * progress as NDJSON or server-sent events until it finishes. The job keeps running if the progress
+     * stream is dropped, but not if the upload is. {@code resume} reruns an interrupted job over the same
+     * file from its checkpoint.
+     */
+    @PostMapping(value = "/products/import",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<Flux<ImportProgress>> startImport(@RequestParam(value = "mode", defaultValue = "delta") String mode,
+                                                            @RequestParam(value = "resume", required = false) String resume,
+                                                            InputStream body) {
+        ImportMode importMode = parseOptional(mode, ImportMode::parse, "import mode");
+        if (resume != null && resume.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "resume must name an import job");
+        }
+        ImportJob job;
+        try {
+            job = importJobs.start(importMode, body, resume);
+        } catch (ImportAlreadyRunningException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (UnknownImportJobException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/products/import/jobs/" + job.id()))
+                .body(importJobs.progress(job));
+    }
+
+    @GetMapping("/products/import/jobs/{id}")
+    public ImportProgress importJob(@PathVariable("id") String id) {
+        return job(id).progress();
+    }
+
+    @GetMapping(value = "/products/import/jobs/{id}/progress",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<ImportProgress> importJobProgress(@PathVariable("id") String id) {
+        return importJobs.progress(job(id));
+    }
+
+    /**
+     * Stops the job before its next row. Products written so far are kept as its resume checkpoint.
+     */
+    @DeleteMapping("/products/import/jobs/{id}")
+    public ResponseEntity<ImportProgress> cancelImportJob(@PathVariable("id") String id) {
+        ImportJob job = job(id);
+        job.cancel();
+        return ResponseEntity.accepted().body(job.progress());
+    }
+
     @GetMapping("/search/text")
-    public List<SearchResultDto> textSearch(@RequestParam("q") String query,
-                                            @RequestParam(value = "limit", defaultValue = "20") int limit) {
-        return searchService.textSearch(query, limit);
+    public Mono<List<SearchResultDto>> textSearch(@RequestParam("q") String query,
+                                                  @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                  @RequestParam(value = "fields", required = false) String fields,
+                                                  @RequestParam(value = "categories", required = false) String categories) {
+        return withClientDeadline(Mono.defer(() -> searchService.textSearch(query,
+                new SearchOptions(limit, null, null, null, parseFields(fields), parseCategories(categories)))));
     }
 
     @GetMapping("/search/embedding")
-    public List<SearchResultDto> embeddingSearch(@RequestParam("q") String query,
-                                                @RequestParam(value = "limit", defaultValue = "20") int limit) {
-        return searchService.embeddingSearch(query, limit);
+    public Mono<List<SearchResultDto>> embeddingSearch(@RequestParam("q") String query,
+                                                       @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                       @RequestParam(value = "ef", required = false) Integer ef,
+                                                       @RequestParam(value = "mode", required = false) String mode,
+                                                       @RequestParam(value = "fields", required = false) String fields,
+                                                       @RequestParam(value = "categories", required = false) String categories) {
+        return withClientDeadline(Mono.defer(() -> searchService.embeddingSearch(query, new SearchOptions(limit, ef,
+                parseOptional(mode, VectorSearchMode::parse, "vector search mode"),
+                null,
+                parseFields(fields),
+                parseCategories(categories)))));
     }
 
     @GetMapping("/search/hybrid")
-    public List<SearchResultDto> hybridSearch(@RequestParam("q") String query,
-                                              @RequestParam(value = "limit", defaultValue = "20") int limit) {
-        return searchService.hybridSearch(query, limit);
+    public Mono<List<SearchResultDto>> hybridSearch(@RequestParam("q") String query,
+                                                    @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                    @RequestParam(value = "fusion", required = false) String fusion,
+                                                    @RequestParam(value = "mode", required = false) String mode,
+                                                    @RequestParam(value = "fields", required = false) String fields,
+                                                    @RequestParam(value = "categories", required = false) String categories) {
+        return withClientDeadline(Mono.defer(() -> searchService.hybridSearch(query, new SearchOptions(limit, null,
+                parseOptional(mode, VectorSearchMode::parse, "vector search mode"),
+                parseOptional(fusion, FusionStrategy::parse, "fusion strategy"),
+                parseFields(fields),
+                parseCategories(categories)))));
+    }
+
+    /**
+     * Any search type, with the number of candidate products per category alongside the results.
+     */
+    @GetMapping("/search/faceted")
+    public Mono<FacetedSearchResult> facetedSearch(@RequestParam("q") String query,
+                                                   @RequestParam(value = "type", defaultValue = "embedding") String type,
+                                                   @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                   @RequestParam(value = "ef", required = false) Integer ef,
+                                                   @RequestParam(value = "fusion", required = false) String fusion,
+                                                   @RequestParam(value = "mode", required = false) String mode,
+                                                   @RequestParam(value = "fields", required = false) String fields,
+                                                   @RequestParam(value = "categories", required = false) String categories) {
+        return withClientDeadline(Mono.defer(() -> searchService.facetedSearch(
+                parseOptional(type, SearchType::parse, "search type"),
+                query, new SearchOptions(limit, ef,
+                        parseOptional(mode, VectorSearchMode::parse, "vector search mode"),
+                        parseOptional(fusion, FusionStrategy::parse, "fusion strategy"),
+                        parseFields(fields),
+                        parseCategories(categories)))));
+    }
+
+    @GetMapping("/search/suggest")
+    public Mono<List<Suggestion>> suggest(@RequestParam("q") String prefix,
+                                          @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return Mono.defer(() -> searchService.suggest(prefix, limit));
+    }
+
+    @GetMapping("/search/categories")
+    public Mono<Map<String, Integer>> categories() {
+        return searchService.categories();
+    }
+
+    /**
+     * Runs many searches in one request and streams one NDJSON line per query as each completes.
+     */
+    @PostMapping(value = "/search/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchSearchResult> batchSearch(@RequestBody BatchSearchRequest request) {
+        Deadline deadline = clientDeadline();
+        return Flux.defer(() -> {
+            List<BatchSearchRequest.Query> queries = request.queries();
+            if (queries == null || queries.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "queries must not be empty");
+            }
+            List<BatchQuery> parsed = new ArrayList<>(queries.size());
+            for (BatchSearchRequest.Query query : queries) {
+                parsed.add(parseBatchQuery(query));
+            }
+            return searchService.batchSearch(parsed);
+        }).onErrorMap(IllegalArgumentException.class,
+                e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .contextWrite(context -> deadline == null ? context : Deadline.within(context, deadline));
+    }
+
+    @GetMapping("/stats/embedding-cache")
+    public EmbeddingCache.Stats embeddingCacheStats() {
+        return embeddingCache.stats();
+    }
+
+    @GetMapping("/stats/result-cache")
+    public SearchResultCache.Stats resultCacheStats() {
+        return resultCache.stats();
+    }
+
+    /**
+     * A search shed by admission control: retrying shortly is expected to succeed.
+     */
+    @ExceptionHandler(SearchRejectedException.class)
+    public ResponseEntity<Map<String, Object>> searchRejected(SearchRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "search rejected", "reason", e.getMessage()));
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<Map<String, Object>> searchTimedOut(TimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", "search timed out", "reason", String.valueOf(e.getMessage())));
+    }
+
+    private ImportJob job(String id) {
+        return importJobs.find(id).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown import job: " + id));
+    }
+
+    private static BatchQuery parseBatchQuery(BatchSearchRequest.Query query) {
+        if (query == null || query.q() == null || query.q().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "every batch query needs a non-blank q");
+        }
+        SearchType type = query.mode() == null
+                ? SearchType.EMBEDDING
+                : parseOptional(query.mode(), SearchType::parse, "search type");
+        SearchOptions options = new SearchOptions(query.limit() == null ? 20 : query.limit(), null, null,
+                parseOptional(query.fusion(), FusionStrategy::parse, "fusion strategy"),
+                parseFields(query.fields()));
+        return new BatchQuery(query.id(), query.q(), type, options);
+    }
+
+    /**
+     * {@code search} bounded by the request's {@code X-Request-Timeout}, if it has one. The server's
+     * {@code search.deadline} still applies when it is the shorter of the two.
+     */
+    private static <T> Mono<T> withClientDeadline(Mono<T> search) {
+        Deadline deadline = clientDeadline();
+        return deadline == null ? search : search.contextWrite(context -> Deadline.within(context, deadline));
+    }
+
+    /**
+     * The deadline set by {@code X-Request-Timeout}, in milliseconds or as an ISO-8601 duration, counted
+     * from now; {@code null} without the header.
+     */
+    static Deadline clientDeadline() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        String value = attributes.getRequest().getHeader(REQUEST_TIMEOUT_HEADER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Duration timeout;
+        try {
+            String trimmed = value.trim();
+            timeout = trimmed.chars().allMatch(Character::isDigit)
+                    ? Duration.ofMillis(Long.parseLong(trimmed))
+                    : Duration.parse(trimmed);
+        } catch (RuntimeException e) {
+            timeout = null;
+        }
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid " + REQUEST_TIMEOUT_HEADER + ": " + value);
+        }
+        return Deadline.after(timeout);
+    }
+
+    private static Set<String> parseCategories(String categories) {
+        if (categories == null || categories.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String category : categories.split(",")) {
+            if (!category.isBlank()) {
+                selected.add(category.trim());
+            }
+        }
+        return selected;
+    }
+
+    private static Set<ProductField> parseFields(String fields) {
+        try {
+            return ProductField.parseList(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static <T> T parseOptional(String value, Function<String, T> parser, String description) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown " + description + ": " + value);
+        }
     }
 }
@@ -0,0 +1,130 @@
+package net.desertrosedesigns.delta.search.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One {@link OrdinalBitmap} per category over the ordinals of a corpus. Categories match
+ * case-insensitively and are reported with the spelling first seen. Built once per corpus generation;
+ * safe for concurrent reads afterwards.
+ */
+public final class CategoryIndex {
+
+    public static final CategoryIndex EMPTY = new CategoryIndex(Map.of());
+
+    private final Map<String, Category> categories;
+
+    private CategoryIndex(Map<String, Category> categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Lower-cased, trimmed form used to match categories; {@code null} for blank input.
+     */
+    public static String normalize(String category) {
+        if (category == null || category.isBlank()) {
+            return null;
+        }
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public int size() {
+        return categories.size();
+    }
+
+    /**
+     * Ordinals in any of {@code selected}; unknown categories match nothing.
+     */
+    public OrdinalBitmap anyOf(Collection<String> selected) {
+        OrdinalBitmap union = OrdinalBitmap.EMPTY;
+        for (String name : selected) {
+            Category category = categories.get(normalize(name));
+            if (category != null) {
+                union = union.isEmpty() ? category.members : union.or(category.members);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Products per category within {@code within}, or across the whole corpus when it is {@code null},
+     * most frequent first. Categories with no members are left out.
+     */
+    public Map<String, Integer> counts(OrdinalBitmap within) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(categories.size());
+        for (Category category : categories.values()) {
+            int count = within == null ? category.members.cardinality() : category.members.andCardinality(within);
+            if (count > 0) {
+                counts.add(Map.entry(category.label, count));
+            }
+        }
+        counts.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        counts.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+
+    /**
+     * Whether {@code ordinal} is a member of exactly the categories listed, matched as by {@link #anyOf}.
+     */
+    public boolean hasExactly(int ordinal, Collection<String> productCategories) {
+        Set<String> listed = new HashSet<>();
+        for (String category : productCategories) {
+            String key = normalize(category);
+            if (key != null) {
+                listed.add(key);
+            }
+        }
+        for (Map.Entry<String, Category> entry : categories.entrySet()) {
+            boolean member = entry.getValue().members.contains(ordinal);
+            if (member != listed.remove(entry.getKey())) {
+                return false;
+            }
+        }
+        return listed.isEmpty();
+    }
+
+    public long sizeInBytes() {
+        return categories.values().stream().mapToLong(category -> category.members.sizeInBytes()).sum();
+    }
+
+    private record Category(String label, OrdinalBitmap members) {
+    }
+
+    /**
+     * Collects categories ordinal by ordinal; ordinals must be added in ascending order.
+     */
+    public static final class Builder {
+        private final Map<String, String> labels = new HashMap<>();
+        private final Map<String, OrdinalBitmap.Builder> members = new HashMap<>();
+        private final Map<String, Integer> lastOrdinal = new HashMap<>();
+
+        public Builder add(int ordinal, Collection<String> productCategories) {
+            for (String category : productCategories) {
+                String key = normalize(category);
+                // A product listing the same category twice must only be added once.
+                if (key == null || Integer.valueOf(ordinal).equals(lastOrdinal.put(key, ordinal))) {
+                    continue;
+                }
+                labels.putIfAbsent(key, category.trim());
+                members.computeIfAbsent(key, k -> new OrdinalBitmap.Builder()).add(ordinal);
+            }
+            return this;
+        }
+
+        public CategoryIndex build() {
+            Map<String, Category> categories = new HashMap<>();
+            members.forEach((key, bitmap) -> categories.put(key, new Category(labels.get(key), bitmap.build())));
+            return new CategoryIndex(categories);
+        }
+    }
+}
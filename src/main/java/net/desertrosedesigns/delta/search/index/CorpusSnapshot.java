@@ -0,0 +1,264 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only, memory-mapped view of a corpus snapshot written by {@link CorpusSnapshotWriter}.
+ * <p>
+ * Layout, little-endian: a {@value #HEADER_BYTES}-byte header (magic, version, generation, count,
+ * dimension, section offsets, file length, a CRC32C of everything after the header and the change
+ * watermark), the unit-length float32 matrix in row order, the sourceIds and the product metadata. The
+ * last two sections are an {@code int[count + 1]} offset table followed by the encoded bytes.
+ * <p>
+ * Vectors are read straight from the mapped pages, so opening a snapshot costs page faults rather than
+ * a heap copy, and indexes built over it as a {@link VectorSource} score rows in place. Instances are
+ * safe for concurrent reads.
+ */
+public final class CorpusSnapshot implements VectorSource {
+
+    public static final int MAGIC = 0x43525053;
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private final Path path;
+    private final long generation;
+    private final long watermark;
+    private final int count;
+    private final int dimension;
+    private final FloatBuffer matrix;
+    private final ByteBuffer ids;
+    private final ByteBuffer metadata;
+
+    private CorpusSnapshot(Path path, long generation, long watermark, int count, int dimension,
+                           FloatBuffer matrix, ByteBuffer ids, ByteBuffer metadata) {
+        this.path = path;
+        this.generation = generation;
+        this.watermark = watermark;
+        this.count = count;
+        this.dimension = dimension;
+        this.matrix = matrix;
+        this.ids = ids;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Maps and validates a snapshot. Verifying the checksum reads every page once; without it only the
+     * header is touched until vectors are used.
+     */
+    public static CorpusSnapshot open(Path path, boolean verifyChecksum) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("corpus snapshot " + path + " is truncated");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("corpus snapshot " + path + " exceeds the 2 GiB mapping limit");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("corpus snapshot " + path + " has an unknown format");
+        }
+        long generation = buffer.getLong(8);
+        int count = buffer.getInt(16);
+        int dimension = buffer.getInt(20);
+        long idsOffset = buffer.getLong(24);
+        long metadataOffset = buffer.getLong(32);
+        long length = buffer.getLong(40);
+        long checksum = buffer.getLong(48);
+        long watermark = buffer.getLong(56);
+        long matrixBytes = (long) count * dimension * Float.BYTES;
+        if (length != buffer.capacity() || idsOffset != HEADER_BYTES + matrixBytes
+                || metadataOffset < idsOffset || metadataOffset > length) {
+            throw new IOException("corpus snapshot " + path + " has an inconsistent header");
+        }
+        if (verifyChecksum) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_BYTES, (int) (length - HEADER_BYTES)));
+            if (crc.getValue() != checksum) {
+                throw new IOException("corpus snapshot " + path + " failed its checksum");
+            }
+        }
+        FloatBuffer matrix = buffer.slice(HEADER_BYTES, (int) matrixBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        ByteBuffer ids = buffer.slice((int) idsOffset, (int) (metadataOffset - idsOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer metadata = buffer.slice((int) metadataOffset, (int) (length - metadataOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        return new CorpusSnapshot(path, generation, watermark, count, dimension, matrix, ids, metadata);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Neo4j time, in epoch milliseconds, before the export started, so every change stamped later may be
+     * missing from the snapshot. {@code 0} for snapshots written without one.
+     */
+    public long watermark() {
+        return watermark;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public String sourceId(int ordinal) {
+        return string(ids, ordinal);
+    }
+
+    /**
+     * All sourceIds in ordinal order.
+     */
+    public List<String> sourceIds() {
+        List<String> sourceIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sourceIds.add(sourceId(i));
+        }
+        return sourceIds;
+    }
+
+    /**
+     * Copies the unit-length vector for an ordinal onto the heap.
+     */
+    public float[] vector(int ordinal) {
+        return copyVector(ordinal, new float[dimension]);
+    }
+
+    /**
+     * Copies the unit-length vector for an ordinal into {@code target} and returns it.
+     */
+    public float[] copyVector(int ordinal, float[] target) {
+        matrix.get(checkOrdinal(ordinal) * dimension, target, 0, dimension);
+        return target;
+    }
+
+    /**
+     * Dot product between {@code query} and a stored vector, which is cosine similarity when the query is
+     * unit length. The row is read from the mapped pages without copying it.
+     */
+    @Override
+    public float dot(float[] query, int ordinal) {
+        int base = checkOrdinal(ordinal) * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * matrix.get(base + i);
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        int baseA = checkOrdinal(a) * dimension;
+        int baseB = checkOrdinal(b) * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += matrix.get(baseA + i) * matrix.get(baseB + i);
+        }
+        return sum;
+    }
+
+    @Override
+    public float[] row(int ordinal, float[] scratch) {
+        return copyVector(ordinal, scratch);
+    }
+
+    /**
+     * The title of a product, without decoding the rest of its metadata.
+     */
+    public String title(int ordinal) {
+        int offsetTable = (count + 1) * Integer.BYTES;
+        int position = offsetTable + metadata.getInt(checkOrdinal(ordinal) * Integer.BYTES);
+        // The title is the first string field.
+        return decode(metadata, position + Integer.BYTES, metadata.getInt(position));
+    }
+
+    /**
+     * The categories of a product, skipping over its other metadata without decoding it.
+     */
+    public List<String> categories(int ordinal) {
+        int offsetTable = (count + 1) * Integer.BYTES;
+        int position = offsetTable + metadata.getInt(checkOrdinal(ordinal) * Integer.BYTES);
+        for (int i = 0; i < CorpusSnapshotWriter.STRING_FIELDS.size(); i++) {
+            position += Integer.BYTES + metadata.getInt(position);
+        }
+        int categoryCount = metadata.getInt(position);
+        position += Integer.BYTES;
+        List<String> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            int length = metadata.getInt(position);
+            categories.add(decode(metadata, position + Integer.BYTES, length));
+            position += Integer.BYTES + length;
+        }
+        return categories;
+    }
+
+    public ProductDto product(int ordinal, Set<ProductField> fields) {
+        int offsetTable = (count + 1) * Integer.BYTES;
+        int position = offsetTable + metadata.getInt(checkOrdinal(ordinal) * Integer.BYTES);
+        Map<String, Object> row = new HashMap<>();
+        row.put(ProductField.SOURCE_ID.property(), sourceId(ordinal));
+        for (ProductField field : CorpusSnapshotWriter.STRING_FIELDS) {
+            int length = metadata.getInt(position);
+            row.put(field.property(), decode(metadata, position + Integer.BYTES, length));
+            position += Integer.BYTES + length;
+        }
+        int categoryCount = metadata.getInt(position);
+        position += Integer.BYTES;
+        List<String> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            int length = metadata.getInt(position);
+            categories.add(decode(metadata, position + Integer.BYTES, length));
+            position += Integer.BYTES + length;
+        }
+        row.put(ProductField.CATEGORIES.property(), categories);
+        return ProductDto.fromProjection(row, fields);
+    }
+
+    private int checkOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IndexOutOfBoundsException(ordinal);
+        }
+        return ordinal;
+    }
+
+    private String string(ByteBuffer section, int ordinal) {
+        int offsetTable = (count + 1) * Integer.BYTES;
+        int start = section.getInt(checkOrdinal(ordinal) * Integer.BYTES);
+        int end = section.getInt((ordinal + 1) * Integer.BYTES);
+        return decode(section, offsetTable + start, end - start);
+    }
+
+    private static String decode(ByteBuffer section, int position, int length) {
+        byte[] bytes = new byte[length];
+        section.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
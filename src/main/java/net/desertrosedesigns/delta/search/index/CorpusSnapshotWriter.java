@@ -0,0 +1,176 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Streams a {@link CorpusSnapshot} to disk. Vectors go straight to the file, while sourceIds and
+ * metadata are buffered until {@link #commit()}. The file is written under a temporary name and moved
+ * into place atomically, so readers only ever see complete snapshots.
+ */
+public final class CorpusSnapshotWriter implements Closeable {
+
+    static final List<ProductField> STRING_FIELDS = List.of(
+            ProductField.TITLE, ProductField.DESCRIPTION, ProductField.ITEM_DETAILS, ProductField.TEXT);
+
+    private final Path target;
+    private final Path temp;
+    private final long generation;
+    private final long watermark;
+    private final int dimension;
+    private final FileChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer row;
+    private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+    private int[] idOffsets = new int[1024];
+    private int[] metadataOffsets = new int[1024];
+    private int count;
+    private boolean committed;
+
+    public CorpusSnapshotWriter(Path target, long generation, int dimension) throws IOException {
+        this(target, generation, dimension, 0);
+    }
+
+    /**
+     * @param dimension vector dimension, or {@code 0} for a snapshot of an empty catalog
+     * @param watermark Neo4j time, in epoch milliseconds, before the export started; see
+     *                  {@link CorpusSnapshot#watermark()}
+     */
+    public CorpusSnapshotWriter(Path target, long generation, int dimension, long watermark) throws IOException {
+        if (dimension < 0) {
+            throw new IllegalArgumentException("dimension must not be negative");
+        }
+        this.target = target;
+        this.generation = generation;
+        this.watermark = watermark;
+        this.dimension = dimension;
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+        this.channel.position(CorpusSnapshot.HEADER_BYTES);
+        this.row = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Appends a product; the vector is stored at unit length.
+     */
+    public void add(String sourceId, float[] vector, ProductDto product) throws IOException {
+        if (vector.length != dimension || dimension == 0) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + vector.length);
+        }
+        row.clear();
+        row.asFloatBuffer().put(VectorUtils.normalize(vector));
+        write(row);
+
+        if (count + 1 >= idOffsets.length) {
+            idOffsets = Arrays.copyOf(idOffsets, idOffsets.length * 2);
+            metadataOffsets = Arrays.copyOf(metadataOffsets, metadataOffsets.length * 2);
+        }
+        ids.writeBytes(sourceId.getBytes(StandardCharsets.UTF_8));
+        writeString(metadata, product.getTitle());
+        writeString(metadata, product.getDescription());
+        writeString(metadata, product.getItemDetails());
+        writeString(metadata, product.getText());
+        List<String> categories = product.getCategories() == null ? List.of() : product.getCategories();
+        writeInt(metadata, categories.size());
+        for (String category : categories) {
+            writeString(metadata, category);
+        }
+        count++;
+        idOffsets[count] = ids.size();
+        metadataOffsets[count] = metadata.size();
+    }
+
+    /**
+     * Writes the remaining sections and the header, then atomically replaces {@code target}.
+     */
+    public Path commit() throws IOException {
+        long idsOffset = channel.position();
+        write(section(idOffsets, ids));
+        long metadataOffset = channel.position();
+        write(section(metadataOffsets, metadata));
+        long length = channel.position();
+
+        ByteBuffer header = ByteBuffer.allocate(CorpusSnapshot.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CorpusSnapshot.MAGIC)
+                .putInt(CorpusSnapshot.VERSION)
+                .putLong(generation)
+                .putInt(count)
+                .putInt(dimension)
+                .putLong(idsOffset)
+                .putLong(metadataOffset)
+                .putLong(length)
+                .putLong(crc.getValue())
+                .putLong(watermark);
+        header.clear();
+        channel.write(header, 0);
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private ByteBuffer section(int[] offsets, ByteArrayOutputStream bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate((count + 1) * Integer.BYTES + bytes.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i <= count; i++) {
+            buffer.putInt(offsets[i]);
+        }
+        buffer.put(bytes.toByteArray());
+        return buffer.flip();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeInt(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
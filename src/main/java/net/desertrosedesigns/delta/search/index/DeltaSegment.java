@@ -0,0 +1,224 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Products changed since a corpus was built, layered over it until the next rebuild. Base ordinals of
+ * products that were deleted or replaced are retired, and the current version of each upserted product
+ * is held here and scanned exactly, since the segment stays small.
+ * <p>
+ * Immutable: {@link #apply} returns a new segment, so a search that read one segment sees one consistent
+ * state of the corpus however many changes are applied while it runs.
+ */
+public final class DeltaSegment {
+
+    public static final DeltaSegment EMPTY = new DeltaSegment(OrdinalBitmap.EMPTY, List.of(), new float[0][],
+            List.of(), Map.of(), Map.of());
+
+    private final OrdinalBitmap retired;
+    private final List<String> sourceIds;
+    private final float[][] vectors;
+    private final List<List<String>> categories;
+    private final Map<String, Integer> positions;
+    // Last version applied per product, so a change seen twice is only applied once.
+    private final Map<String, Long> versions;
+
+    private DeltaSegment(OrdinalBitmap retired, List<String> sourceIds, float[][] vectors,
+                         List<List<String>> categories, Map<String, Integer> positions, Map<String, Long> versions) {
+        this.retired = retired;
+        this.sourceIds = sourceIds;
+        this.vectors = vectors;
+        this.categories = categories;
+        this.positions = positions;
+        this.versions = versions;
+    }
+
+    /**
+     * Products held in the segment.
+     */
+    public int size() {
+        return sourceIds.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0 && retired.isEmpty();
+    }
+
+    /**
+     * Base ordinals that must no longer be served.
+     */
+    public OrdinalBitmap retired() {
+        return retired;
+    }
+
+    public boolean isRetired(int baseOrdinal) {
+        return retired.contains(baseOrdinal);
+    }
+
+    /**
+     * Version of the last change applied to {@code sourceId}, or {@code -1} when none was.
+     */
+    public long version(String sourceId) {
+        Long version = versions.get(sourceId);
+        return version == null ? -1 : version;
+    }
+
+    /**
+     * Position of a product held in the segment, or {@code -1}.
+     */
+    public int position(String sourceId) {
+        Integer position = positions.get(sourceId);
+        return position == null ? -1 : position;
+    }
+
+    public String sourceId(int position) {
+        return sourceIds.get(position);
+    }
+
+    /**
+     * The unit-length vector at {@code position}. Callers must not modify it.
+     */
+    public float[] vector(int position) {
+        return vectors[position];
+    }
+
+    /**
+     * Categories of the product at {@code position}, each listed once.
+     */
+    public List<String> categories(int position) {
+        return categories.get(position);
+    }
+
+    /**
+     * Whether the product at {@code position} is in any of {@code selected}, matched like
+     * {@link CategoryIndex#anyOf}.
+     */
+    public boolean inAny(int position, Collection<String> selected) {
+        for (String category : categories.get(position)) {
+            String key = CategoryIndex.normalize(category);
+            for (String wanted : selected) {
+                if (key.equals(CategoryIndex.normalize(wanted))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The {@code k} best positions by dot product with {@code unitQuery} among those {@code accept}
+     * passes, best first.
+     */
+    public List<VectorHit> search(float[] unitQuery, int k, IntPredicate accept) {
+        if (sourceIds.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        TopK best = new TopK(Math.min(k, sourceIds.size()));
+        for (int i = 0; i < vectors.length; i++) {
+            if (accept.test(i)) {
+                best.offer(i, VectorUtils.dot(unitQuery, vectors[i]));
+            }
+        }
+        return best.toSortedHits();
+    }
+
+    /**
+     * A segment with {@code changes} applied on top of this one. A change whose version is not newer than
+     * the one already applied for its product is skipped. An upsert or delete retires the product's base
+     * ordinal, looked up with {@code baseOrdinal} ({@code -1} when the base does not hold it).
+     *
+     * @return this segment when no change was newer
+     */
+    public DeltaSegment apply(List<Change> changes, ToIntFunction<String> baseOrdinal) {
+        Map<String, Change> latest = new HashMap<>();
+        for (Change change : changes) {
+            Long applied = versions.get(change.sourceId());
+            Change seen = latest.get(change.sourceId());
+            if ((applied == null || change.version() > applied) && (seen == null || change.version() > seen.version())) {
+                latest.put(change.sourceId(), change);
+            }
+        }
+        if (latest.isEmpty()) {
+            return this;
+        }
+        List<Integer> newlyRetired = new ArrayList<>();
+        for (String sourceId : latest.keySet()) {
+            int ordinal = baseOrdinal.applyAsInt(sourceId);
+            if (ordinal >= 0 && !retired.contains(ordinal)) {
+                newlyRetired.add(ordinal);
+            }
+        }
+        OrdinalBitmap nextRetired = retired;
+        if (!newlyRetired.isEmpty()) {
+            nextRetired = retired.or(OrdinalBitmap.of(newlyRetired.stream().mapToInt(Integer::intValue).sorted().toArray()));
+        }
+
+        List<String> nextIds = new ArrayList<>(sourceIds.size() + latest.size());
+        List<float[]> nextVectors = new ArrayList<>(sourceIds.size() + latest.size());
+        List<List<String>> nextCategories = new ArrayList<>(sourceIds.size() + latest.size());
+        for (int i = 0; i < sourceIds.size(); i++) {
+            if (!latest.containsKey(sourceIds.get(i))) {
+                nextIds.add(sourceIds.get(i));
+                nextVectors.add(vectors[i]);
+                nextCategories.add(categories.get(i));
+            }
+        }
+        Map<String, Long> nextVersions = new HashMap<>(versions);
+        for (Change change : latest.values()) {
+            nextVersions.put(change.sourceId(), change.version());
+            if (!change.deleted()) {
+                nextIds.add(change.sourceId());
+                nextVectors.add(VectorUtils.normalize(change.vector()));
+                nextCategories.add(distinct(change.categories()));
+            }
+        }
+        Map<String, Integer> nextPositions = new HashMap<>();
+        for (int i = 0; i < nextIds.size(); i++) {
+            nextPositions.put(nextIds.get(i), i);
+        }
+        return new DeltaSegment(nextRetired, List.copyOf(nextIds), nextVectors.toArray(float[][]::new),
+                List.copyOf(nextCategories), nextPositions, nextVersions);
+    }
+
+    private static List<String> distinct(List<String> categories) {
+        Set<String> keys = new HashSet<>();
+        List<String> labels = new ArrayList<>(categories.size());
+        for (String category : categories) {
+            String key = CategoryIndex.normalize(category);
+            if (key != null && keys.add(key)) {
+                labels.add(category.trim());
+            }
+        }
+        return List.copyOf(labels);
+    }
+
+    /**
+     * One product change. A change without a vector is a delete.
+     *
+     * @param version the time of the change, so the newest of two changes wins
+     */
+    public record Change(String sourceId, long version, float[] vector, List<String> categories) {
+
+        public static Change upsert(String sourceId, long version, float[] vector, List<String> categories) {
+            return new Change(sourceId, version, vector, categories == null ? List.of() : categories);
+        }
+
+        public static Change delete(String sourceId, long version) {
+            return new Change(sourceId, version, null, List.of());
+        }
+
+        public boolean deleted() {
+            return vector == null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Brute-force top-K over every ordinal of a corpus. The ordinal range is split across a fork/join pool;
+ * each partition keeps its own {@link TopK}, and partial heaps are merged as the tasks join, so the
+ * work is O(n log k) with no per-candidate allocation. This is the exact baseline the approximate
+ * indexes are measured against.
+ * <p>
+ * {@link #searchBatch} scores many queries in one pass: each partition walks its rows in small blocks
+ * and scores every query against a block while it is still in cache, so the corpus is read once per
+ * batch instead of once per query.
+ */
+public final class ExactVectorScan {
+
+    /**
+     * Similarity between the query and the vector at an ordinal. Called concurrently from pool threads.
+     */
+    @FunctionalInterface
+    public interface Scorer {
+        float score(int ordinal);
+    }
+
+    /**
+     * Supplies the vector at an ordinal: either a backing array, or {@code scratch} filled with it.
+     */
+    @FunctionalInterface
+    public interface RowReader {
+        float[] row(int ordinal, float[] scratch);
+    }
+
+    static final int BLOCK_ROWS = 64;
+
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    public ExactVectorScan(ForkJoinPool pool, int partitionSize) {
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("partitionSize must be positive");
+        }
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Returns the {@code k} best-scoring ordinals in {@code [0, size)}, best first.
+     */
+    public List<VectorHit> search(int size, int k, Scorer scorer) {
+        if (size <= 0 || k <= 0) {
+            return List.of();
+        }
+        return pool.invoke(new ScanTask(null, 0, size, k, scorer)).toSortedHits();
+    }
+
+    /**
+     * Returns the {@code k} best-scoring of the given ordinals, best first. Only those ordinals are
+     * scored, so a selective filter makes the scan proportionally cheaper.
+     */
+    public List<VectorHit> search(int[] ordinals, int k, Scorer scorer) {
+        if (ordinals.length == 0 || k <= 0) {
+            return List.of();
+        }
+        return pool.invoke(new ScanTask(ordinals, 0, ordinals.length, k, scorer)).toSortedHits();
+    }
+
+    /**
+     * Returns, for each query, the {@code k} best-scoring ordinals in {@code [0, size)} by dot product,
+     * best first. All queries must have the same dimension as the rows.
+     */
+    public List<List<VectorHit>> searchBatch(int size, float[][] queries, int k, RowReader rows) {
+        if (queries.length == 0) {
+            return List.of();
+        }
+        List<List<VectorHit>> results = new ArrayList<>(queries.length);
+        if (size <= 0 || k <= 0) {
+            for (int q = 0; q < queries.length; q++) {
+                results.add(List.of());
+            }
+            return results;
+        }
+        for (TopK top : pool.invoke(new BatchTask(0, size, queries, k, rows))) {
+            results.add(top.toSortedHits());
+        }
+        return results;
+    }
+
+    private final class ScanTask extends RecursiveTask<TopK> {
+        // Positions index into this array when it is set, and are ordinals themselves otherwise.
+        private final int[] ordinals;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final Scorer scorer;
+
+        private ScanTask(int[] ordinals, int from, int to, int k, Scorer scorer) {
+            this.ordinals = ordinals;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= partitionSize) {
+                TopK top = new TopK(k);
+                for (int position = from; position < to; position++) {
+                    int ordinal = ordinals == null ? position : ordinals[position];
+                    top.offer(ordinal, scorer.score(ordinal));
+                }
+                return top;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(ordinals, from, middle, k, scorer);
+            left.fork();
+            TopK top = new ScanTask(ordinals, middle, to, k, scorer).compute();
+            top.addAll(left.join());
+            return top;
+        }
+    }
+
+    private final class BatchTask extends RecursiveTask<TopK[]> {
+        private final int from;
+        private final int to;
+        private final float[][] queries;
+        private final int k;
+        private final RowReader rows;
+
+        private BatchTask(int from, int to, float[][] queries, int k, RowReader rows) {
+            this.from = from;
+            this.to = to;
+            this.queries = queries;
+            this.k = k;
+            this.rows = rows;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (to - from <= partitionSize) {
+                return scanBlocks();
+            }
+            int middle = (from + to) >>> 1;
+            BatchTask left = new BatchTask(from, middle, queries, k, rows);
+            left.fork();
+            TopK[] tops = new BatchTask(middle, to, queries, k, rows).compute();
+            TopK[] leftTops = left.join();
+            for (int q = 0; q < tops.length; q++) {
+                tops[q].addAll(leftTops[q]);
+            }
+            return tops;
+        }
+
+        private TopK[] scanBlocks() {
+            TopK[] tops = new TopK[queries.length];
+            for (int q = 0; q < tops.length; q++) {
+                tops[q] = new TopK(k);
+            }
+            int dimension = queries[0].length;
+            float[][] scratch = new float[BLOCK_ROWS][dimension];
+            float[][] block = new float[BLOCK_ROWS][];
+            for (int start = from; start < to; start += BLOCK_ROWS) {
+                int count = Math.min(BLOCK_ROWS, to - start);
+                for (int j = 0; j < count; j++) {
+                    block[j] = rows.row(start + j, scratch[j]);
+                }
+                for (int q = 0; q < queries.length; q++) {
+                    float[] query = queries[q];
+                    TopK top = tops[q];
+                    for (int j = 0; j < count; j++) {
+                        top.offer(start + j, VectorUtils.dot(query, block[j]));
+                    }
+                }
+            }
+            return tops;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+/**
+ * {@link VectorSource} over unit-length arrays; rows are handed out without copying.
+ */
+final class HeapVectors implements VectorSource {
+
+    private final float[][] vectors;
+    private final int dimension;
+
+    HeapVectors(float[][] vectors, int dimension) {
+        this.vectors = vectors;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int size() {
+        return vectors.length;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float dot(float[] unitQuery, int ordinal) {
+        return VectorUtils.dot(unitQuery, vectors[ordinal]);
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        return VectorUtils.dot(vectors[a], vectors[b]);
+    }
+
+    @Override
+    public float[] row(int ordinal, float[] scratch) {
+        return vectors[ordinal];
+    }
+}
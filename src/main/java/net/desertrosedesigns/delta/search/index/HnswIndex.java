@@ -0,0 +1,350 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over cosine similarity.
+ * <p>
+ * Vectors are normalized on insertion so every comparison is a plain dot product. Building is
+ * single-threaded; once the last {@link #add(float[])} has returned the index can be searched from
+ * any number of threads. A graph made with {@link #build} links the vectors of a {@link VectorSource}
+ * and reads them in place, so only the links live on the heap.
+ */
+public final class HnswIndex {
+
+    private static final Comparator<VectorHit> BEST_FIRST = Comparator.comparingDouble(VectorHit::score).reversed();
+    private static final Comparator<VectorHit> WORST_FIRST = Comparator.comparingDouble(VectorHit::score);
+    private static final IntPredicate ANY = ordinal -> true;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final VectorSource source;
+
+    private float[][] vectors;
+    private int[][][] links;
+    private int[][] linkCounts;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int expectedSize, int m, int efConstruction) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        int capacity = Math.max(expectedSize, 16);
+        this.vectors = new float[capacity][];
+        this.links = new int[capacity][][];
+        this.linkCounts = new int[capacity][];
+        this.source = new OwnVectors();
+    }
+
+    private HnswIndex(VectorSource source, int m, int efConstruction) {
+        if (source.dimension() <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.dimension = source.dimension();
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.links = new int[source.size()][][];
+        this.linkCounts = new int[source.size()][];
+        this.source = source;
+    }
+
+    /**
+     * Links every vector of {@code source}, in ordinal order, without copying them. The source must
+     * hold unit-length vectors and must not change while the graph is in use.
+     */
+    public static HnswIndex build(VectorSource source, int m, int efConstruction) {
+        HnswIndex index = new HnswIndex(source, m, efConstruction);
+        float[] scratch = new float[source.dimension()];
+        for (int node = 0; node < source.size(); node++) {
+            index.link(node, source.row(node, scratch));
+        }
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * The stored, unit-length vector for an ordinal, or a copy of it for a graph over a
+     * {@link VectorSource}. Callers must not modify it.
+     */
+    public float[] vector(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException(ordinal);
+        }
+        return source.row(ordinal, new float[dimension]);
+    }
+
+    /**
+     * Inserts a vector and returns its ordinal, which is simply its insertion position.
+     */
+    public int add(float[] vector) {
+        if (vectors == null) {
+            throw new IllegalStateException("a graph built over a vector source cannot take more vectors");
+        }
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + vector.length);
+        }
+        ensureCapacity(size + 1);
+        int node = size;
+        vectors[node] = VectorUtils.normalize(vector);
+        link(node, vectors[node]);
+        return node;
+    }
+
+    /**
+     * Inserts {@code node}, whose unit-length vector is {@code normalized}, into the graph.
+     */
+    private void link(int node, float[] normalized) {
+        size = node + 1;
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        linkCounts[node] = new int[level + 1];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(normalized, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<VectorHit> candidates = searchLayer(normalized, ep, efConstruction, l, ANY);
+            for (VectorHit neighbor : selectNeighbors(candidates, m)) {
+                connect(node, neighbor.ordinal(), l);
+                connect(neighbor.ordinal(), node, l);
+            }
+            ep = candidates.get(0).ordinal();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Returns up to {@code k} approximate nearest neighbours, best first. {@code ef} is the size of the
+     * dynamic candidate list on the bottom layer: larger values trade latency for recall.
+     */
+    public List<VectorHit> search(float[] query, int k, int ef) {
+        return search(query, k, ef, ANY);
+    }
+
+    /**
+     * {@link #search(float[], int, int)} restricted to ordinals that pass {@code filter}. The graph is
+     * still traversed through rejected nodes, so a filter keeps it connected, but the search runs
+     * until {@code ef} accepted nodes have been found; very selective filters are cheaper to answer with
+     * an exact scan over their members.
+     */
+    public List<VectorHit> search(float[] query, int k, int ef, IntPredicate filter) {
+        if (size == 0 || k <= 0) {
+            return List.of();
+        }
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + query.length);
+        }
+        float[] normalized = VectorUtils.normalize(query);
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            ep = greedyClosest(normalized, ep, l);
+        }
+        List<VectorHit> results = searchLayer(normalized, ep, Math.max(ef, k), 0, filter);
+        return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = source.dot(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][level];
+            int count = linkCounts[current][level];
+            for (int i = 0; i < count; i++) {
+                float score = source.dot(query, neighbors[i]);
+                if (score > best) {
+                    best = score;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<VectorHit> searchLayer(float[] query, int entry, int ef, int level, IntPredicate filter) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<VectorHit> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<VectorHit> results = new PriorityQueue<>(WORST_FIRST);
+        VectorHit start = new VectorHit(entry, source.dot(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        if (filter.test(entry)) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            VectorHit current = candidates.poll();
+            if (results.size() >= ef && current.score() < results.peek().score()) {
+                break;
+            }
+            int[] neighbors = links[current.ordinal()][level];
+            int count = linkCounts[current.ordinal()][level];
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = source.dot(query, neighbor);
+                if (results.size() < ef || score > results.peek().score()) {
+                    VectorHit hit = new VectorHit(neighbor, score);
+                    candidates.add(hit);
+                    if (filter.test(neighbor)) {
+                        results.add(hit);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        List<VectorHit> ordered = new ArrayList<>(results);
+        ordered.sort(BEST_FIRST);
+        return ordered;
+    }
+
+    /**
+     * Diversity heuristic from the HNSW paper: a candidate is kept only when it is closer to the base
+     * node than to any neighbour already selected, then pruned candidates top the list back up.
+     */
+    private List<VectorHit> selectNeighbors(List<VectorHit> candidates, int max) {
+        List<VectorHit> selected = new ArrayList<>(max);
+        List<VectorHit> pruned = new ArrayList<>();
+        for (VectorHit candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean diverse = true;
+            for (VectorHit chosen : selected) {
+                if (source.dot(candidate.ordinal(), chosen.ordinal()) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int count = linkCounts[from][level];
+        if (count < neighbors.length) {
+            neighbors[count] = to;
+            linkCounts[from][level] = count + 1;
+            return;
+        }
+        List<VectorHit> candidates = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            candidates.add(new VectorHit(neighbors[i], source.dot(from, neighbors[i])));
+        }
+        candidates.add(new VectorHit(to, source.dot(from, to)));
+        candidates.sort(BEST_FIRST);
+        List<VectorHit> kept = selectNeighbors(candidates, neighbors.length);
+        for (int i = 0; i < kept.size(); i++) {
+            neighbors[i] = kept.get(i).ordinal();
+        }
+        linkCounts[from][level] = kept.size();
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= vectors.length) {
+            return;
+        }
+        int capacity = Math.max(required, vectors.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity);
+        links = Arrays.copyOf(links, capacity);
+        linkCounts = Arrays.copyOf(linkCounts, capacity);
+    }
+
+    /**
+     * The vectors added to this graph, which grow with it.
+     */
+    private final class OwnVectors implements VectorSource {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+
+        @Override
+        public float dot(float[] unitQuery, int ordinal) {
+            return VectorUtils.dot(unitQuery, vectors[ordinal]);
+        }
+
+        @Override
+        public float dot(int a, int b) {
+            return VectorUtils.dot(vectors[a], vectors[b]);
+        }
+
+        @Override
+        public float[] row(int ordinal, float[] scratch) {
+            return vectors[ordinal];
+        }
+    }
+}
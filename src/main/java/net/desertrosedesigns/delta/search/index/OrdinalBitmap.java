@@ -0,0 +1,300 @@
+package net.desertrosedesigns.delta.search.index;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed set of non-negative ordinals, laid out like a Roaring bitmap: ordinals are
+ * grouped into chunks by their high 16 bits, and each chunk is either a sorted {@code char[]} of its low
+ * bits (up to {@value #ARRAY_MAX} members) or a fixed 8 KiB bit array. Sparse categories cost two bytes
+ * per member, dense ones one bit per ordinal, and intersections work chunk by chunk without expanding
+ * either side.
+ */
+public final class OrdinalBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1 << 16 >>> 6;
+
+    public static final OrdinalBitmap EMPTY = new OrdinalBitmap(new char[0], new Object[0], 0);
+
+    private final char[] keys;
+    // Each entry is a char[] (sorted low bits) or a long[WORDS] bit array.
+    private final Object[] chunks;
+    private final int cardinality;
+
+    private OrdinalBitmap(char[] keys, Object[] chunks, int cardinality) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a bitmap from ordinals in strictly ascending order.
+     */
+    public static OrdinalBitmap of(int... ordinals) {
+        Builder builder = new Builder();
+        for (int ordinal : ordinals) {
+            builder.add(ordinal);
+        }
+        return builder.build();
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int ordinal) {
+        if (ordinal < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, (char) (ordinal >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) ordinal;
+        return chunks[index] instanceof long[] words
+                ? (words[low >>> 6] & 1L << low) != 0
+                : Arrays.binarySearch((char[]) chunks[index], low) >= 0;
+    }
+
+    /**
+     * The members in ascending order.
+     */
+    public int[] toArray() {
+        int[] ordinals = new int[cardinality];
+        int position = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int high = keys[i] << 16;
+            if (chunks[i] instanceof long[] words) {
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        ordinals[position++] = high | w << 6 | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) chunks[i]) {
+                    ordinals[position++] = high | low;
+                }
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Size of the intersection, without materializing it.
+     */
+    public int andCardinality(OrdinalBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += intersectionSize(chunks[i++], other.chunks[j++]);
+            }
+        }
+        return count;
+    }
+
+    public OrdinalBitmap and(OrdinalBitmap other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] words = toWords(chunks[i++]);
+                long[] theirs = toWords(other.chunks[j++]);
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= theirs[w];
+                }
+                builder.addChunk(keys[i - 1], words);
+            }
+        }
+        return builder.build();
+    }
+
+    public OrdinalBitmap or(OrdinalBitmap other) {
+        Builder builder = new Builder();
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || i < keys.length && keys[i] < other.keys[j]) {
+                builder.addChunk(keys[i], toWords(chunks[i++]));
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                builder.addChunk(other.keys[j], toWords(other.chunks[j++]));
+            } else {
+                long[] words = toWords(chunks[i++]);
+                long[] theirs = toWords(other.chunks[j++]);
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= theirs[w];
+                }
+                builder.addChunk(keys[i - 1], words);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Heap bytes held by the chunks, for sizing the index.
+     */
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * (Character.BYTES + Integer.BYTES);
+        for (Object chunk : chunks) {
+            bytes += chunk instanceof long[] words ? (long) words.length * Long.BYTES : (long) ((char[]) chunk).length * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    private static int intersectionSize(Object left, Object right) {
+        if (left instanceof long[] words && right instanceof long[] theirs) {
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                count += Long.bitCount(words[w] & theirs[w]);
+            }
+            return count;
+        }
+        if (left instanceof long[] words) {
+            return probe((char[]) right, words);
+        }
+        if (right instanceof long[] theirs) {
+            return probe((char[]) left, theirs);
+        }
+        char[] a = (char[]) left;
+        char[] b = (char[]) right;
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int probe(char[] values, long[] words) {
+        int count = 0;
+        for (char low : values) {
+            if ((words[low >>> 6] & 1L << low) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long[] toWords(Object chunk) {
+        if (chunk instanceof long[] words) {
+            return words.clone();
+        }
+        long[] words = new long[WORDS];
+        for (char low : (char[]) chunk) {
+            words[low >>> 6] |= 1L << low;
+        }
+        return words;
+    }
+
+    /**
+     * Accumulates ordinals in strictly ascending order.
+     */
+    public static final class Builder {
+        private char[] keys = new char[4];
+        private Object[] chunks = new Object[4];
+        private int size;
+        private int cardinality;
+        private char[] pending = new char[16];
+        private int pendingCount;
+        private int pendingKey = -1;
+        private int last = -1;
+
+        public Builder add(int ordinal) {
+            if (ordinal <= last) {
+                throw new IllegalArgumentException("ordinals must be added in ascending order: " + ordinal + " after " + last);
+            }
+            last = ordinal;
+            int key = ordinal >>> 16;
+            if (key != pendingKey) {
+                flush();
+                pendingKey = key;
+            }
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingCount++] = (char) ordinal;
+            return this;
+        }
+
+        public OrdinalBitmap build() {
+            flush();
+            return size == 0
+                    ? EMPTY
+                    : new OrdinalBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(chunks, size), cardinality);
+        }
+
+        private void flush() {
+            if (pendingCount == 0) {
+                return;
+            }
+            if (pendingCount <= ARRAY_MAX) {
+                append((char) pendingKey, Arrays.copyOf(pending, pendingCount), pendingCount);
+            } else {
+                long[] words = new long[WORDS];
+                for (int i = 0; i < pendingCount; i++) {
+                    words[pending[i] >>> 6] |= 1L << pending[i];
+                }
+                append((char) pendingKey, words, pendingCount);
+            }
+            pendingCount = 0;
+        }
+
+        private void addChunk(char key, long[] words) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            if (count == 0) {
+                return;
+            }
+            if (count > ARRAY_MAX) {
+                append(key, words, count);
+                return;
+            }
+            char[] values = new char[count];
+            int position = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[position++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            append(key, values, count);
+        }
+
+        private void append(char key, Object chunk, int count) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                chunks = Arrays.copyOf(chunks, size * 2);
+            }
+            keys[size] = key;
+            chunks[size] = chunk;
+            size++;
+            cardinality += count;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package net.desertrosedesigns.delta.search.index;
+
+import java.util.Locale;
+
+public enum Quantization {
+    /** One signed byte per dimension with a per-vector scale: a quarter of the float32 footprint. */
+    INT8,
+    /** One sign bit per dimension, compared by Hamming distance: a thirty-second of the float32 footprint. */
+    BINARY;
+
+    public static Quantization parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,219 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Compact codes for a corpus of vectors, searched in two passes: a scan over the codes picks a
+ * shortlist, which is then re-ranked with full-precision cosine.
+ * <p>
+ * The store keeps only the codes; full-precision vectors are looked up by ordinal through the function
+ * passed in, so they can be shared with another structure such as {@link HnswIndex}, or scored in place
+ * for a store made with {@link #encode}. Ordinals are insertion positions and must line up with that
+ * lookup. Building is single-threaded; once the last {@link #add(float[])} has returned the store can be
+ * searched from any number of threads.
+ */
+public final class QuantizedVectorStore {
+
+    private static final Comparator<VectorHit> BEST_FIRST = Comparator.comparingDouble(VectorHit::score).reversed();
+
+    private final Quantization quantization;
+    private final int dimension;
+    private final int words;
+    private final FullPrecision fullPrecision;
+
+    private byte[] bytes;
+    private float[] scales;
+    private long[] bits;
+    private int size;
+
+    public QuantizedVectorStore(Quantization quantization, int dimension, int expectedSize,
+                                IntFunction<float[]> fullPrecision) {
+        this(quantization, dimension, expectedSize,
+                (unitQuery, ordinal) -> VectorUtils.dot(unitQuery, fullPrecision.apply(ordinal)));
+    }
+
+    private QuantizedVectorStore(Quantization quantization, int dimension, int expectedSize,
+                                 FullPrecision fullPrecision) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        this.quantization = quantization;
+        this.dimension = dimension;
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+        this.fullPrecision = fullPrecision;
+        int capacity = Math.max(expectedSize, 16);
+        if (quantization == Quantization.INT8) {
+            bytes = new byte[capacity * dimension];
+            scales = new float[capacity];
+        } else {
+            bits = new long[capacity * words];
+        }
+    }
+
+    /**
+     * Encodes every vector of {@code source} and re-ranks against it in place, so no full-precision
+     * vector is copied onto the heap.
+     */
+    public static QuantizedVectorStore encode(Quantization quantization, VectorSource source) {
+        QuantizedVectorStore store = new QuantizedVectorStore(quantization, source.dimension(), source.size(),
+                source::dot);
+        float[] scratch = new float[source.dimension()];
+        for (int i = 0; i < source.size(); i++) {
+            store.add(source.row(i, scratch));
+        }
+        return store;
+    }
+
+    public Quantization quantization() {
+        return quantization;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Heap bytes held by the codes themselves, excluding the full-precision vectors.
+     */
+    public long codeBytes() {
+        return quantization == Quantization.INT8
+                ? (long) size * (dimension + Float.BYTES)
+                : (long) size * words * Long.BYTES;
+    }
+
+    /**
+     * Encodes a vector and returns its ordinal.
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + vector.length);
+        }
+        ensureCapacity(size + 1);
+        int node = size++;
+        if (quantization == Quantization.INT8) {
+            scales[node] = encodeInt8(vector, bytes, node * dimension);
+        } else {
+            encodeBits(vector, bits, node * words);
+        }
+        return node;
+    }
+
+    /**
+     * Returns up to {@code k} nearest neighbours by cosine, best first. The code scan keeps the best
+     * {@code rerankDepth} candidates (at least {@code k}) and only those are scored at full precision.
+     */
+    public List<VectorHit> search(float[] query, int k, int rerankDepth) {
+        return search(query, k, rerankDepth, null);
+    }
+
+    /**
+     * {@link #search(float[], int, int)} over only the given ordinals, or all of them when
+     * {@code ordinals} is {@code null}.
+     */
+    public List<VectorHit> search(float[] query, int k, int rerankDepth, int[] ordinals) {
+        if (size == 0 || k <= 0 || ordinals != null && ordinals.length == 0) {
+            return List.of();
+        }
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("expected dimension " + dimension + " but got " + query.length);
+        }
+        int[] shortlist = quantization == Quantization.INT8
+                ? scanInt8(query, Math.max(k, rerankDepth), ordinals)
+                : scanBits(query, Math.max(k, rerankDepth), ordinals);
+        float[] normalized = VectorUtils.normalize(query);
+        List<VectorHit> hits = new ArrayList<>(shortlist.length);
+        for (int ordinal : shortlist) {
+            hits.add(new VectorHit(ordinal, fullPrecision.dot(normalized, ordinal)));
+        }
+        hits.sort(BEST_FIRST);
+        return hits.size() > k ? new ArrayList<>(hits.subList(0, k)) : hits;
+    }
+
+    private int[] scanInt8(float[] query, int depth, int[] ordinals) {
+        byte[] encoded = new byte[dimension];
+        encodeInt8(query, encoded, 0);
+        // The query scale is the same for every candidate, so it can be left out of the ranking.
+        TopK best = new TopK(depth);
+        int count = ordinals == null ? size : ordinals.length;
+        for (int i = 0; i < count; i++) {
+            int node = ordinals == null ? i : ordinals[i];
+            int dot = VectorUtils.dot(encoded, 0, bytes, node * dimension, dimension);
+            best.offer(node, dot * scales[node]);
+        }
+        return best.ordinals();
+    }
+
+    private int[] scanBits(float[] query, int depth, int[] ordinals) {
+        long[] encoded = new long[words];
+        encodeBits(query, encoded, 0);
+        TopK best = new TopK(depth);
+        int count = ordinals == null ? size : ordinals.length;
+        for (int i = 0; i < count; i++) {
+            int node = ordinals == null ? i : ordinals[i];
+            int offset = node * words;
+            int hamming = 0;
+            for (int w = 0; w < words; w++) {
+                hamming += Long.bitCount(encoded[w] ^ bits[offset + w]);
+            }
+            best.offer(node, -hamming);
+        }
+        return best.ordinals();
+    }
+
+    /**
+     * Symmetric per-vector quantization to [-127, 127]. Returns the scale that maps a code back to the
+     * original value relative to the vector's length, so that code dot products approximate cosine.
+     */
+    private float encodeInt8(float[] vector, byte[] target, int offset) {
+        float maxAbs = 0;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float length = VectorUtils.norm(vector);
+        if (maxAbs == 0 || length == 0) {
+            return 0;
+        }
+        float step = maxAbs / 127;
+        for (int i = 0; i < dimension; i++) {
+            target[offset + i] = (byte) Math.round(vector[i] / step);
+        }
+        return step / length;
+    }
+
+    private void encodeBits(float[] vector, long[] target, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0) {
+                target[offset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = quantization == Quantization.INT8 ? scales.length : bits.length / words;
+        if (required <= capacity) {
+            return;
+        }
+        int grown = Math.max(required, capacity * 2);
+        if (quantization == Quantization.INT8) {
+            bytes = Arrays.copyOf(bytes, grown * dimension);
+            scales = Arrays.copyOf(scales, grown);
+        } else {
+            bits = Arrays.copyOf(bits, grown * words);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FullPrecision {
+        float dot(float[] unitQuery, int ordinal);
+    }
+}
@@ -0,0 +1,436 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.model.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type-ahead over product titles and category names, held as a radix tree flattened into arrays.
+ * Each entry is indexed from the start of each of its first {@value #MAX_WORD_STARTS} words, so
+ * "hoop" completes "Bamboo Hoop Earrings", and every node stores the best entries below it. An exact
+ * prefix is answered by one walk down the tree without visiting the subtree; typos are matched by
+ * walking it with a Levenshtein row and pruning branches that are already too far off.
+ * <p>
+ * Entries rank by weight, the number of products sharing the title or in the category; completions of
+ * the whole entry rank above completions of a later word with the same weight. Built once per corpus
+ * generation; safe for concurrent reads afterwards.
+ */
+public final class SuggestionIndex {
+
+    static final int MAX_WORD_STARTS = 4;
+    static final int MAX_KEY_LENGTH = 64;
+    // Typed characters per allowed edit, so short prefixes are matched exactly.
+    static final int CHARS_PER_EDIT = 4;
+
+    public static final SuggestionIndex EMPTY = new Builder(1).build();
+
+    private final String[] texts;
+    private final boolean[] categories;
+    private final int[] weights;
+    // Ranks order (entry, whole-or-word) pairs best first; the trie stores ranks, not entries.
+    private final int[] rankEntry;
+    private final char[] labels;
+    private final int[] labelStart;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topStart;
+    private final int[] tops;
+
+    private SuggestionIndex(String[] texts, boolean[] categories, int[] weights, int[] rankEntry, char[] labels,
+                            int[] labelStart, int[] firstChild, int[] childCount, int[] topStart, int[] tops) {
+        this.texts = texts;
+        this.categories = categories;
+        this.weights = weights;
+        this.rankEntry = rankEntry;
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.tops = tops;
+    }
+
+    /**
+     * Lower-cased text with every run of characters other than letters and digits collapsed to one space.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * Up to {@code limit} completions of {@code query}, capped at the depth the index was built with.
+     * Exact prefix matches come first; when they do not fill the list, entries within {@code maxEdits}
+     * edits of the prefix follow, allowing one edit per {@value #CHARS_PER_EDIT} typed characters and
+     * never on the first character.
+     */
+    public List<Suggestion> suggest(String query, int limit, int maxEdits) {
+        String prefix = normalize(query);
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+        if (prefix.isEmpty() || limit <= 0 || texts.length == 0) {
+            return List.of();
+        }
+        Map<Integer, Suggestion> found = new LinkedHashMap<>();
+        int node = descend(prefix);
+        if (node >= 0) {
+            for (int i = topStart[node]; i < topStart[node + 1]; i++) {
+                add(tops[i], limit, found);
+            }
+        }
+        int edits = Math.min(maxEdits, prefix.length() / CHARS_PER_EDIT);
+        if (found.size() < limit && edits > 0) {
+            int first = findChild(0, prefix.charAt(0));
+            if (first >= 0) {
+                int[] row = new int[prefix.length() + 1];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = j;
+                }
+                List<long[]> matches = new ArrayList<>();
+                fuzzy(first, row, prefix, edits, matches);
+                // Closest first, then by rank.
+                matches.sort(Comparator.<long[]>comparingLong(match -> match[0]).thenComparingLong(match -> match[1]));
+                for (long[] match : matches) {
+                    add((int) match[1], limit, found);
+                }
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    public long sizeInBytes() {
+        long bytes = (long) labels.length * Character.BYTES
+                + (long) (labelStart.length + firstChild.length + childCount.length + topStart.length
+                + tops.length + rankEntry.length + weights.length) * Integer.BYTES
+                + categories.length;
+        for (String text : texts) {
+            bytes += text.length();
+        }
+        return bytes;
+    }
+
+    private void add(int rank, int limit, Map<Integer, Suggestion> found) {
+        if (found.size() < limit) {
+            found.computeIfAbsent(rankEntry[rank], e -> new Suggestion(texts[e],
+                    categories[e] ? Suggestion.CATEGORY : Suggestion.TITLE, weights[e]));
+        }
+    }
+
+    /**
+     * The node whose subtree holds exactly the keys starting with {@code prefix}, or {@code -1}.
+     */
+    private int descend(String prefix) {
+        int node = 0;
+        int position = 0;
+        while (position < prefix.length()) {
+            int child = findChild(node, prefix.charAt(position));
+            if (child < 0) {
+                return -1;
+            }
+            for (int i = labelStart[child]; i < labelStart[child + 1]; i++, position++) {
+                if (position == prefix.length()) {
+                    return child;
+                }
+                if (labels[i] != prefix.charAt(position)) {
+                    return -1;
+                }
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private int findChild(int node, char c) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char first = labels[labelStart[middle]];
+            if (first < c) {
+                low = middle + 1;
+            } else if (first > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Extends the edit-distance row of the path so far through {@code node}'s label. Once the whole prefix
+     * is within {@code edits} of the path, every key below matches and the node's best entries are taken
+     * as {distance, rank} pairs.
+     */
+    private void fuzzy(int node, int[] row, String prefix, int edits, List<long[]> matches) {
+        int[] current = row;
+        for (int i = labelStart[node]; i < labelStart[node + 1]; i++) {
+            char c = labels[i];
+            int[] next = new int[current.length];
+            next[0] = current[0] + 1;
+            int best = next[0];
+            for (int j = 1; j < next.length; j++) {
+                int substitution = current[j - 1] + (prefix.charAt(j - 1) == c ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(current[j], next[j - 1]) + 1);
+                best = Math.min(best, next[j]);
+            }
+            if (next[next.length - 1] <= edits) {
+                for (int t = topStart[node]; t < topStart[node + 1]; t++) {
+                    matches.add(new long[]{next[next.length - 1], tops[t]});
+                }
+                return;
+            }
+            if (best > edits) {
+                return;
+            }
+            current = next;
+        }
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            fuzzy(child, current, prefix, edits, matches);
+        }
+    }
+
+    /**
+     * Collects titles and categories, merging entries that normalize to the same text.
+     */
+    public static final class Builder {
+        private final int depth;
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        /**
+         * @param depth entries kept per node, and so the most suggestions one query can return
+         */
+        public Builder(int depth) {
+            this.depth = Math.max(1, depth);
+        }
+
+        public Builder addTitle(String title) {
+            return add(title, false, 1);
+        }
+
+        public Builder addCategory(String category, int products) {
+            return add(category, true, products);
+        }
+
+        private Builder add(String text, boolean category, int weight) {
+            String key = normalize(text);
+            if (key.isEmpty() || weight <= 0) {
+                return this;
+            }
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry(k, text.trim()));
+            entry.weight += weight;
+            entry.category |= category;
+            return this;
+        }
+
+        public SuggestionIndex build() {
+            Entry[] byEntry = entries.values().toArray(new Entry[0]);
+            Arrays.sort(byEntry, Comparator.comparing(entry -> entry.key));
+            int count = byEntry.length;
+            String[] texts = new String[count];
+            boolean[] categories = new boolean[count];
+            int[] weights = new int[count];
+            for (int e = 0; e < count; e++) {
+                texts[e] = byEntry[e].text;
+                categories[e] = byEntry[e].category;
+                weights[e] = byEntry[e].weight;
+            }
+
+            // Candidate 2e is entry e matched from its first word, 2e + 1 from a later one.
+            Integer[] candidates = new Integer[count * 2];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = i;
+            }
+            Arrays.sort(candidates, Comparator.<Integer>comparingInt(c -> -weights[c >> 1])
+                    .thenComparingInt(c -> c & 1)
+                    .thenComparingInt(c -> texts[c >> 1].length())
+                    .thenComparing(c -> texts[c >> 1]));
+            int[] rankEntry = new int[candidates.length];
+            int[] rankOf = new int[candidates.length];
+            for (int rank = 0; rank < candidates.length; rank++) {
+                rankEntry[rank] = candidates[rank] >> 1;
+                rankOf[candidates[rank]] = rank;
+            }
+
+            List<Key> keys = new ArrayList<>();
+            for (int e = 0; e < count; e++) {
+                String key = byEntry[e].key;
+                int offset = 0;
+                for (int word = 0; word < MAX_WORD_STARTS; word++) {
+                    String suffix = key.substring(offset);
+                    keys.add(new Key(suffix.length() > MAX_KEY_LENGTH ? suffix.substring(0, MAX_KEY_LENGTH) : suffix,
+                            rankOf[2 * e + (word == 0 ? 0 : 1)]));
+                    offset = key.indexOf(' ', offset) + 1;
+                    if (offset == 0) {
+                        break;
+                    }
+                }
+            }
+            keys.sort(Comparator.comparing(Key::text));
+            return new Trie(keys, rankEntry, depth).toIndex(texts, categories, weights);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String text;
+        private boolean category;
+        private int weight;
+
+        private Entry(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    private record Key(String text, int rank) {
+    }
+
+    /**
+     * Builds the radix tree over sorted keys. The children of a node get consecutive ids, allocated
+     * together before any of them is expanded, so labels are written in id order.
+     */
+    private static final class Trie {
+        private final List<Key> keys;
+        private final int[] rankEntry;
+        private final int depth;
+        private final StringBuilder labels = new StringBuilder();
+        private int[] labelEnd = new int[16];
+        private int[] firstChild = new int[16];
+        private int[] childCount = new int[16];
+        private int[][] best = new int[16][];
+        private int nodes;
+
+        private Trie(List<Key> keys, int[] rankEntry, int depth) {
+            this.keys = keys;
+            this.rankEntry = rankEntry;
+            this.depth = depth;
+            allocate("");
+            fill(0, 0, keys.size(), 0);
+        }
+
+        private void fill(int node, int lo, int hi, int length) {
+            int[] candidates = new int[0];
+            int count = 0;
+            int start = lo;
+            while (start < hi && keys.get(start).text().length() == length) {
+                candidates = append(candidates, count++, keys.get(start++).rank());
+            }
+            List<int[]> groups = new ArrayList<>();
+            for (int i = start; i < hi; ) {
+                char c = keys.get(i).text().charAt(length);
+                int end = i;
+                while (end < hi && keys.get(end).text().charAt(length) == c) {
+                    end++;
+                }
+                groups.add(new int[]{i, end, commonPrefix(keys.get(i).text(), keys.get(end - 1).text())});
+                i = end;
+            }
+            firstChild[node] = nodes;
+            childCount[node] = groups.size();
+            for (int[] group : groups) {
+                allocate(keys.get(group[0]).text().substring(length, group[2]));
+            }
+            int child = firstChild[node];
+            for (int[] group : groups) {
+                fill(child, group[0], group[1], group[2]);
+                for (int rank : best[child]) {
+                    candidates = append(candidates, count++, rank);
+                }
+                child++;
+            }
+            best[node] = top(Arrays.copyOf(candidates, count));
+        }
+
+        /**
+         * The {@code depth} best ranks, one per entry: an entry can reach a node both from its first word
+         * and from a later one, and only the better of the two is kept.
+         */
+        private int[] top(int[] ranks) {
+            Arrays.sort(ranks);
+            int[] kept = new int[Math.min(depth, ranks.length)];
+            int size = 0;
+            outer:
+            for (int rank : ranks) {
+                if (size == kept.length) {
+                    break;
+                }
+                for (int i = 0; i < size; i++) {
+                    if (rankEntry[kept[i]] == rankEntry[rank]) {
+                        continue outer;
+                    }
+                }
+                kept[size++] = rank;
+            }
+            return Arrays.copyOf(kept, size);
+        }
+
+        private void allocate(String label) {
+            if (nodes == labelEnd.length) {
+                labelEnd = Arrays.copyOf(labelEnd, nodes * 2);
+                firstChild = Arrays.copyOf(firstChild, nodes * 2);
+                childCount = Arrays.copyOf(childCount, nodes * 2);
+                best = Arrays.copyOf(best, nodes * 2);
+            }
+            labels.append(label);
+            labelEnd[nodes++] = labels.length();
+        }
+
+        private SuggestionIndex toIndex(String[] texts, boolean[] categories, int[] weights) {
+            int[] labelStart = new int[nodes + 1];
+            System.arraycopy(labelEnd, 0, labelStart, 1, nodes);
+            int[] topStart = new int[nodes + 1];
+            for (int node = 0; node < nodes; node++) {
+                topStart[node + 1] = topStart[node] + best[node].length;
+            }
+            int[] tops = new int[topStart[nodes]];
+            for (int node = 0; node < nodes; node++) {
+                System.arraycopy(best[node], 0, tops, topStart[node], best[node].length);
+            }
+            return new SuggestionIndex(texts, categories, weights, rankEntry, labels.toString().toCharArray(),
+                    labelStart, Arrays.copyOf(firstChild, nodes), Arrays.copyOf(childCount, nodes), topStart, tops);
+        }
+
+        private static int[] append(int[] values, int size, int value) {
+            int[] grown = size == values.length ? Arrays.copyOf(values, Math.max(8, size * 2)) : values;
+            grown[size] = value;
+            return grown;
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
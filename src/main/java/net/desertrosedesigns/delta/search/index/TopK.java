@@ -0,0 +1,114 @@
+package net.desertrosedesigns.delta.search.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounded min-heap of (ordinal, score) pairs backed by primitive arrays. Keeps the {@code capacity}
+ * highest scores seen; the root is the weakest kept entry, so a candidate is rejected with one compare.
+ * Not thread-safe.
+ */
+public final class TopK {
+
+    private static final Comparator<VectorHit> BEST_FIRST = Comparator.comparingDouble(VectorHit::score).reversed();
+
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+
+    public TopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.ordinals = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == ordinals.length;
+    }
+
+    /**
+     * The weakest kept score, or negative infinity while the heap has room.
+     */
+    public float threshold() {
+        return isFull() ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Keeps the pair if the heap has room or the score beats the weakest kept one.
+     */
+    public boolean offer(int ordinal, float score) {
+        if (size < ordinals.length) {
+            int slot = size++;
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                ordinals[slot] = ordinals[parent];
+                scores[slot] = scores[parent];
+                slot = parent;
+            }
+            ordinals[slot] = ordinal;
+            scores[slot] = score;
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        siftDown(ordinal, score);
+        return true;
+    }
+
+    public void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ordinals[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * The kept ordinals in heap order.
+     */
+    public int[] ordinals() {
+        return Arrays.copyOf(ordinals, size);
+    }
+
+    /**
+     * The kept pairs, best first.
+     */
+    public List<VectorHit> toSortedHits() {
+        List<VectorHit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hits.add(new VectorHit(ordinals[i], scores[i]));
+        }
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    private void siftDown(int ordinal, float score) {
+        int slot = 0;
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ordinals[slot] = ordinals[child];
+            scores[slot] = scores[child];
+            slot = child;
+        }
+        ordinals[slot] = ordinal;
+        scores[slot] = score;
+    }
+}
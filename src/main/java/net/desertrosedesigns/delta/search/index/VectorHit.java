@@ -0,0 +1,7 @@
+package net.desertrosedesigns.delta.search.index;
+
+/**
+ * A corpus position paired with its similarity to the query vector.
+ */
+public record VectorHit(int ordinal, float score) {
+}
@@ -0,0 +1,36 @@
+package net.desertrosedesigns.delta.search.index;
+
+/**
+ * Unit-length vectors addressed by ordinal, which {@link HnswIndex#build} and
+ * {@link QuantizedVectorStore#encode} read in place instead of copying onto the heap. Implementations
+ * are safe for concurrent reads.
+ */
+public interface VectorSource {
+
+    int size();
+
+    int dimension();
+
+    /**
+     * Dot product between {@code unitQuery} and the vector at {@code ordinal}, which is their cosine.
+     */
+    float dot(float[] unitQuery, int ordinal);
+
+    /**
+     * Cosine between two stored vectors.
+     */
+    float dot(int a, int b);
+
+    /**
+     * The vector at {@code ordinal}: either a backing array, or {@code scratch} filled with it. Callers
+     * must not modify it.
+     */
+    float[] row(int ordinal, float[] scratch);
+
+    /**
+     * Vectors already normalized and held on the heap.
+     */
+    static VectorSource onHeap(float[][] unitVectors, int dimension) {
+        return new HeapVectors(unitVectors, dimension);
+    }
+}
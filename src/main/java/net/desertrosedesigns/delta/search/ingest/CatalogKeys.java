@@ -0,0 +1,85 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keys the rows of one import and works out which stored products the file no longer holds.
+ * <p>
+ * A row without an explicit id is keyed by {@link ProductKeys#sourceId} while no other row of the file
+ * shares its title and item details. Every row of a group that does is keyed by
+ * {@link ProductKeys#distinctSourceId}, so the keys depend on row content, not on row order. A group
+ * is recognised from the stored keys when an earlier import already split it. Otherwise the first
+ * row has been passed on under the shared key by the time the second arrives, and is listed in
+ * {@link #renames()} so the importer can move it to its own key once the file has been read.
+ */
+final class CatalogKeys {
+
+    private final Set<String> existing;
+    private final Set<String> seen = new HashSet<>();
+    private final Set<String> shared = new HashSet<>();
+    private final Map<String, ProductRecord> heldShared = new HashMap<>();
+    private final Map<String, String> renames = new HashMap<>();
+    private int unreadable;
+
+    CatalogKeys(Set<String> existing) {
+        this.existing = existing;
+    }
+
+    /**
+     * {@code product} under its key for this file, or {@code null} when it repeats an explicit id or an
+     * earlier row in every field.
+     */
+    ProductRecord assign(ProductRecord product, String explicitId) {
+        if (explicitId != null && !explicitId.isBlank()) {
+            return seen.add(product.sourceId()) ? product : null;
+        }
+        String key = product.sourceId();
+        String distinct = ProductKeys.distinctSourceId(key, product.contentHash());
+        if (shared.add(key) && !existing.contains(distinct)) {
+            seen.add(key);
+            heldShared.put(key, product);
+            return product;
+        }
+        ProductRecord first = heldShared.remove(key);
+        if (first != null) {
+            String renamed = ProductKeys.distinctSourceId(key, first.contentHash());
+            seen.remove(key);
+            seen.add(renamed);
+            renames.put(key, renamed);
+        }
+        return seen.add(distinct) ? product.withSourceId(distinct) : null;
+    }
+
+    /**
+     * Records a row that could not be read. Its key is unknown, so no stored product may be treated as
+     * missing from the file.
+     */
+    void unreadable() {
+        unreadable++;
+    }
+
+    int unreadableRows() {
+        return unreadable;
+    }
+
+    /**
+     * Products passed on under a shared key, mapped to the key of their own they move to.
+     */
+    Map<String, String> renames() {
+        return Map.copyOf(renames);
+    }
+
+    /**
+     * Stored products the file no longer holds, or none when a row could not be read.
+     */
+    List<String> missing() {
+        if (unreadable > 0) {
+            return List.of();
+        }
+        return existing.stream().filter(id -> !seen.contains(id) && !renames.containsKey(id)).toList();
+    }
+}
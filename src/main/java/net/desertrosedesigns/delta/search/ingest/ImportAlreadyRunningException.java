@@ -0,0 +1,12 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+/**
+ * Thrown when an import is requested while another one is still running; two concurrent imports would
+ * each delete the products the other has not written yet.
+ */
+public class ImportAlreadyRunningException extends IllegalStateException {
+
+    public ImportAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,85 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live state of one import. The importer updates the counters as rows move through the pipeline and
+ * checks {@link #cancelRequested()} between rows; readers take consistent-enough {@link #progress()}
+ * snapshots from any thread.
+ */
+public final class ImportJob {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean finished() {
+            return this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final ImportMode mode;
+    private final boolean resumed;
+    private final Instant startedAt = Instant.now();
+    final AtomicLong parsed = new AtomicLong();
+    final AtomicLong unchanged = new AtomicLong();
+    final AtomicLong embedded = new AtomicLong();
+    final AtomicLong written = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong deleted = new AtomicLong();
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+
+    /**
+     * @param resumed whether products already stamped with {@code id} by an interrupted run may be
+     *                skipped when their content is unchanged
+     */
+    public ImportJob(String id, ImportMode mode, boolean resumed) {
+        this.id = id;
+        this.mode = mode;
+        this.resumed = resumed;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public ImportMode mode() {
+        return mode;
+    }
+
+    public boolean resumed() {
+        return resumed;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Asks the import to stop before its next row. Rows already written stay written, so the job can be
+     * resumed later.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public boolean cancelRequested() {
+        return cancelRequested;
+    }
+
+    void finish(Status status, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    public ImportProgress progress() {
+        Status current = status;
+        return new ImportProgress(id, mode, current, parsed.get(), unchanged.get(), embedded.get(), written.get(),
+                failed.get(), deleted.get(), startedAt, current.finished() ? finishedAt : null, error);
+    }
+}
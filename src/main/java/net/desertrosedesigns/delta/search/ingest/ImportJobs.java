@@ -0,0 +1,138 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs uploaded imports in the background and keeps the most recent jobs so their progress can be
+ * polled, streamed or cancelled by id. A job reads its upload while the request that started it is
+ * still open, so the CSV is parsed as it arrives rather than buffered.
+ */
+@Component
+public class ImportJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobs.class);
+    private static final int RETAINED_JOBS = 32;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final ProductCsvImporter importer;
+    private final Duration progressInterval;
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "product-import-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImportJobs(ProductCsvImporter importer,
+                      @Value("${import.progress-interval:PT1S}") Duration progressInterval) {
+        this.importer = importer;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Starts importing {@code upload}, plain or gzip-compressed CSV. Passing the id of an interrupted job
+     * as {@code resumeId} reruns that job over the same file, skipping the unchanged products it already
+     * wrote instead of embedding them again.
+     *
+     * @throws ImportAlreadyRunningException if another import is running
+     * @throws UnknownImportJobException if {@code resumeId} names neither a recent job nor one whose
+     *                                   products are still stamped in Neo4j
+     */
+    public synchronized ImportJob start(ImportMode mode, InputStream upload, String resumeId) {
+        boolean busy = importer.running() || jobs.values().stream().anyMatch(job -> !job.status().finished());
+        if (busy) {
+            throw new ImportAlreadyRunningException("another import is already running");
+        }
+        if (resumeId != null && !jobs.containsKey(resumeId) && !importer.hasWrittenBy(resumeId)) {
+            throw new UnknownImportJobException("unknown import job: " + resumeId);
+        }
+        ImportJob job = new ImportJob(resumeId == null ? UUID.randomUUID().toString() : resumeId, mode,
+                resumeId != null);
+        jobs.remove(job.id());
+        jobs.put(job.id(), job);
+        prune();
+        executor.execute(() -> run(job, upload));
+        return job;
+    }
+
+    public synchronized Optional<ImportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Emits the job's progress every {@code import.progress-interval} while it changes, ending with the
+     * final state.
+     */
+    public Flux<ImportProgress> progress(ImportJob job) {
+        return Flux.interval(Duration.ZERO, progressInterval)
+                .onBackpressureDrop()
+                .map(tick -> job.progress())
+                .distinctUntilChanged()
+                .takeUntil(ImportProgress::finished);
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (this) {
+            jobs.values().forEach(ImportJob::cancel);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Wraps the upload in a gzip decoder when it starts with the gzip magic bytes.
+     */
+    static InputStream decompress(InputStream upload) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(upload, READ_BUFFER_BYTES);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(in, READ_BUFFER_BYTES) : in;
+    }
+
+    private void run(ImportJob job, InputStream upload) {
+        try (Reader source = new InputStreamReader(decompress(upload), StandardCharsets.UTF_8)) {
+            importer.importProducts(job, source);
+        } catch (CancellationException e) {
+            // Recorded on the job; the products written so far are its checkpoint.
+        } catch (Exception e) {
+            log.error("import job {} failed", job.id(), e);
+            if (!job.status().finished()) {
+                job.finish(ImportJob.Status.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+
+    private void prune() {
+        Iterator<ImportJob> oldest = jobs.values().iterator();
+        while (jobs.size() > RETAINED_JOBS && oldest.hasNext()) {
+            if (oldest.next().status().finished()) {
+                oldest.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import java.util.Locale;
+
+public enum ImportMode {
+    /** Skip rows whose content hash matches the stored product. */
+    DELTA,
+    /** Re-embed and rewrite every row. */
+    FULL;
+
+    public static ImportMode parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
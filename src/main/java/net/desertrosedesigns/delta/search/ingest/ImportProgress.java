@@ -0,0 +1,30 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * One progress event of an import job. Row counts are cumulative: {@code unchanged} rows matched the
+ * stored content hash, or were already written by an interrupted run of the same job, and were not
+ * re-embedded; {@code failed} rows could not be mapped to a product, or repeated an earlier row, and
+ * were skipped.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportProgress(String jobId,
+                             ImportMode mode,
+                             ImportJob.Status status,
+                             long parsed,
+                             long unchanged,
+                             long embedded,
+                             long written,
+                             long failed,
+                             long deleted,
+                             Instant startedAt,
+                             Instant finishedAt,
+                             String error) {
+
+    public boolean finished() {
+        return status.finished();
+    }
+}
@@ -0,0 +1,4 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+public record ImportSummary(int parsed, int written, int unchanged, int deleted) {
+}
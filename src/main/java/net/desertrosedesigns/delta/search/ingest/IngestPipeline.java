@@ -0,0 +1,187 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import io.micrometer.core.instrument.Timer;
+import net.desertrosedesigns.delta.search.service.EmbeddingService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Three overlapping stages: the calling thread parses records into embedding batches, a fixed number of
+ * workers embed those batches concurrently, and a single writer groups embedded rows into write
+ * transactions. Bounded queues between the stages stop a fast parser from running ahead of the
+ * embedder or the database.
+ */
+class IngestPipeline {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final EmbeddingService embeddingService;
+    private final Consumer<List<Map<String, Object>>> writer;
+    private final int embedBatchSize;
+    private final int writeBatchSize;
+    private final int embedConcurrency;
+    private final int queueCapacity;
+    private final Timer embedBatchTimer;
+    private final IntConsumer embedded;
+
+    IngestPipeline(EmbeddingService embeddingService,
+                   Consumer<List<Map<String, Object>>> writer,
+                   int embedBatchSize,
+                   int writeBatchSize,
+                   int embedConcurrency,
+                   int queueCapacity,
+                   Timer embedBatchTimer,
+                   IntConsumer embedded) {
+        this.embeddingService = embeddingService;
+        this.writer = writer;
+        this.embedBatchSize = Math.max(1, embedBatchSize);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+        this.embedConcurrency = Math.max(1, embedConcurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.embedBatchTimer = embedBatchTimer;
+        this.embedded = embedded;
+    }
+
+    int run(Iterable<ProductRecord> records) {
+        BlockingQueue<List<ProductRecord>> toEmbed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<Map<String, Object>>> toWrite = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(embedConcurrency + 1, runnable -> {
+            Thread thread = new Thread(runnable, "product-import-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> embedders = new ArrayList<>(embedConcurrency);
+            for (int i = 0; i < embedConcurrency; i++) {
+                embedders.add(executor.submit(() -> guard(failure, () -> embedLoop(toEmbed, toWrite, failure))));
+            }
+            Future<Integer> written = executor.submit(() -> {
+                int[] count = new int[1];
+                guard(failure, () -> count[0] = writeLoop(toWrite, failure));
+                return count[0];
+            });
+
+            List<ProductRecord> batch = new ArrayList<>(embedBatchSize);
+            for (ProductRecord record : records) {
+                batch.add(record);
+                if (batch.size() >= embedBatchSize) {
+                    put(toEmbed, batch, failure);
+                    batch = new ArrayList<>(embedBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(toEmbed, batch, failure);
+            }
+            for (int i = 0; i < embedConcurrency; i++) {
+                put(toEmbed, List.of(), failure);
+            }
+            for (Future<?> embedder : embedders) {
+                embedder.get();
+            }
+            put(toWrite, List.of(), failure);
+            int count = written.get();
+            rethrow(failure);
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing products", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Product import failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void embedLoop(BlockingQueue<List<ProductRecord>> toEmbed,
+                           BlockingQueue<List<Map<String, Object>>> toWrite,
+                           AtomicReference<Throwable> failure) throws InterruptedException {
+        while (true) {
+            List<ProductRecord> batch = take(toEmbed, failure);
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<List<Double>> embeddings = embedBatchTimer.record(
+                    () -> embeddingService.embedAll(batch.stream().map(ProductRecord::text).toList()));
+            List<Map<String, Object>> rows = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                rows.add(batch.get(i).toRow(embeddings.get(i)));
+            }
+            embedded.accept(rows.size());
+            put(toWrite, rows, failure);
+        }
+    }
+
+    private int writeLoop(BlockingQueue<List<Map<String, Object>>> toWrite,
+                          AtomicReference<Throwable> failure) throws InterruptedException {
+        int written = 0;
+        List<Map<String, Object>> pending = new ArrayList<>(writeBatchSize);
+        while (true) {
+            List<Map<String, Object>> rows = take(toWrite, failure);
+            if (rows.isEmpty()) {
+                break;
+            }
+            pending.addAll(rows);
+            if (pending.size() >= writeBatchSize) {
+                writer.accept(pending);
+                written += pending.size();
+                pending = new ArrayList<>(writeBatchSize);
+            }
+        }
+        if (!pending.isEmpty()) {
+            writer.accept(pending);
+            written += pending.size();
+        }
+        return written;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            rethrow(failure);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (true) {
+            T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+            rethrow(failure);
+        }
+    }
+
+    private static void rethrow(AtomicReference<Throwable> failure) {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Product import failed", cause);
+        }
+    }
+
+    private static void guard(AtomicReference<Throwable> failure, Stage stage) {
+        try {
+            stage.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+            throw t instanceof RuntimeException runtime ? runtime : new IllegalStateException(t);
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+}
@@ -1,52 +1,237 @@
 package net.desertrosedesigns.delta.search.ingest;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import net.desertrosedesigns.delta.search.service.EmbeddingService;
+import net.desertrosedesigns.delta.search.service.Instrumentation;
+import net.desertrosedesigns.delta.search.service.ProductVectorIndex;
+import net.desertrosedesigns.delta.search.service.SearchResultCache;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.TransactionWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Component
 public class ProductCsvImporter {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductCsvImporter.class);
+    private static final CSVFormat CSV = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .build();
+
     private final Driver driver;
     private final EmbeddingService embeddingService;
+    private final ProductVectorIndex vectorIndex;
+    private final SearchResultCache resultCache;
+    private final Instrumentation instrumentation;
     private final Path sourceFile;
+    private final String idColumn;
+    private final int embedBatchSize;
+    private final int writeBatchSize;
+    private final int embedConcurrency;
+    private final int queueCapacity;
+    private final boolean nativeVectorIndex;
+    private final AtomicBoolean running = new AtomicBoolean();
 
     public ProductCsvImporter(Driver driver,
                               EmbeddingService embeddingService,
-                              @Value("${product.csv.path:/data/products.csv}") String csvPath) {
+                              ProductVectorIndex vectorIndex,
+                              SearchResultCache resultCache,
+                              Instrumentation instrumentation,
+                              @Value("${product.csv.path:/data/products.csv}") String csvPath,
+                              @Value("${import.id-column:id}") String idColumn,
+                              @Value("${embedding.batch-size:50}") int embedBatchSize,
+                              @Value("${import.write-batch-size:500}") int writeBatchSize,
+                              @Value("${import.embed-concurrency:4}") int embedConcurrency,
+                              @Value("${import.queue-capacity:8}") int queueCapacity,
+                              @Value("${import.vector-index.enabled:true}") boolean nativeVectorIndex) {
         this.driver = driver;
         this.embeddingService = embeddingService;
+        this.vectorIndex = vectorIndex;
+        this.resultCache = resultCache;
+        this.instrumentation = instrumentation;
         this.sourceFile = Path.of(csvPath);
+        this.idColumn = idColumn;
+        this.embedBatchSize = embedBatchSize;
+        this.writeBatchSize = writeBatchSize;
+        this.embedConcurrency = embedConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.nativeVectorIndex = nativeVectorIndex;
+    }
+
+    /**
+     * Imports the file at {@code product.csv.path}.
+     */
+    public ImportSummary importProducts(ImportMode mode) throws IOException {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), mode, false);
+        try (Reader source = Files.newBufferedReader(sourceFile, StandardCharsets.UTF_8)) {
+            return importProducts(job, source);
+        }
     }
 
-    public int importProducts() throws IOException {
+    /**
+     * Streams CSV rows from {@code source} through the pipeline, recording progress and honouring
+     * cancellation on {@code job}. Only one import runs at a time. Rows are counted as {@code import.rows}
+     * by result while the import runs, so rows per second is the counter's rate; the whole import is timed
+     * as {@code import.duration}.
+     *
+     * @throws CancellationException if the job was cancelled; products written so far are kept
+     */
+    public ImportSummary importProducts(ImportJob job, Reader source) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            ImportAlreadyRunningException e = new ImportAlreadyRunningException("another import is already running");
+            job.finish(ImportJob.Status.FAILED, e.getMessage());
+            throw e;
+        }
+        String modeTag = job.mode().name().toLowerCase(Locale.ROOT);
+        Timer.Sample sample = Timer.start();
+        String outcome = "failure";
+        try {
+            ImportSummary summary = runImport(job, source, modeTag);
+            job.finish(ImportJob.Status.SUCCEEDED, null);
+            outcome = "success";
+            return summary;
+        } catch (CancellationException e) {
+            log.info("import {} cancelled after {} rows", job.id(), job.parsed.get());
+            job.finish(ImportJob.Status.CANCELLED, null);
+            outcome = "cancelled";
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            job.finish(ImportJob.Status.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            throw e;
+        } finally {
+            running.set(false);
+            sample.stop(instrumentation.timer("import.duration", "mode", modeTag, "outcome", outcome));
+        }
+    }
+
+    public boolean running() {
+        return running.get();
+    }
+
+    /**
+     * Whether any product still carries the stamp of import job {@code jobId}, so a run of it can be
+     * resumed after the in-memory job list has forgotten it.
+     */
+    public boolean hasWrittenBy(String jobId) {
+        try (Session session = driver.session()) {
+            return session.readTransaction((TransactionWork<Boolean>) tx -> tx.run(
+                            "MATCH (p:Product) WHERE p.importJob = $jobId RETURN p.sourceId LIMIT 1",
+                            Map.of("jobId", jobId))
+                    .hasNext());
+        }
+    }
+
+    private ImportSummary runImport(ImportJob job, Reader source, String modeTag) throws IOException {
+        ImportMode mode = job.mode();
+        Counter parsedRows = rows("parsed", modeTag);
+        Counter unchangedRows = rows("unchanged", modeTag);
+        Counter failedRows = rows("failed", modeTag);
         try (Session session = driver.session()) {
             ensureIndexes(session);
-            try (CSVParser parser = CSVParser.parse(sourceFile.toFile(), StandardCharsets.UTF_8,
-                    CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-                int imported = 0;
-                for (var record : parser) {
-                    ingestRecord(session, record.toMap());
-                    imported++;
-                }
-                return imported;
-            }
         }
+        Map<String, String> existing = loadContentHashes();
+        // Products an interrupted run of this job already wrote; skipping them is the resume checkpoint.
+        Set<String> checkpointed = job.resumed() ? loadWrittenBy(job.id()) : Set.of();
+        CatalogKeys keys = new CatalogKeys(existing.keySet());
+        int written;
+        try (CSVParser parser = CSV.parse(source)) {
+            Counter embeddedRows = rows("embedded", modeTag);
+            Counter writtenRows = rows("written", modeTag);
+            IngestPipeline pipeline = new IngestPipeline(embeddingService, rows -> {
+                writeRows(rows, job.id());
+                job.written.addAndGet(rows.size());
+                writtenRows.increment(rows.size());
+            }, embedBatchSize, writeBatchSize, embedConcurrency, queueCapacity,
+                    instrumentation.timer("import.embed.batch"), count -> {
+                job.embedded.addAndGet(count);
+                embeddedRows.increment(count);
+            });
+            written = pipeline.run(() -> parser.stream()
+                    .map(record -> {
+                        if (job.cancelRequested()) {
+                            throw new CancellationException("import " + job.id() + " cancelled");
+                        }
+                        job.parsed.incrementAndGet();
+                        parsedRows.increment();
+                        ProductRecord product;
+                        try {
+                            if (!record.isConsistent()) {
+                                throw new IllegalArgumentException("it has " + record.size()
+                                        + " columns but the header has " + parser.getHeaderNames().size());
+                            }
+                            Map<String, String> fields = record.toMap();
+                            product = keys.assign(toProductRecord(fields), fields.get(idColumn));
+                            if (product == null) {
+                                log.warn("skipping CSV record {}: it duplicates an earlier row", record.getRecordNumber());
+                            }
+                        } catch (RuntimeException e) {
+                            log.warn("skipping CSV record {}: {}", record.getRecordNumber(), e.getMessage());
+                            keys.unreadable();
+                            product = null;
+                        }
+                        if (product == null) {
+                            job.failed.incrementAndGet();
+                            failedRows.increment();
+                        }
+                        return product;
+                    })
+                    .filter(Objects::nonNull)
+                    .filter(record -> {
+                        boolean skippable = mode == ImportMode.DELTA || checkpointed.contains(record.sourceId());
+                        if (skippable && record.contentHash().equals(existing.get(record.sourceId()))) {
+                            job.unchanged.incrementAndGet();
+                            unchangedRows.increment();
+                            return false;
+                        }
+                        return true;
+                    })
+                    .iterator());
+        }
+        if (nativeVectorIndex) {
+            ensureVectorIndex();
+        }
+        int renamed = renameProducts(keys.renames());
+        if (keys.unreadableRows() > 0) {
+            log.warn("import {} deletes no products: {} rows could not be read, so the file may still list them",
+                    job.id(), keys.unreadableRows());
+        }
+        int deleted = deleteProducts(keys.missing());
+        job.deleted.addAndGet(deleted);
+        rows("deleted", modeTag).increment(deleted);
+        if (written > 0 || deleted > 0 || renamed > 0) {
+            vectorIndex.rebuild();
+            // After the rebuild, so a result cached under the new generation was ranked on the new corpus.
+            resultCache.advanceGeneration();
+        }
+        ImportSummary summary = new ImportSummary((int) job.parsed.get(), written, (int) job.unchanged.get(), deleted);
+        log.info("{} import {} finished: {}", mode, job.id(), summary);
+        return summary;
     }
 
     private void ensureIndexes(Session session) {
@@ -56,11 +241,46 @@ public class ProductCsvImporter {
                             "FOR (p:Product) " +
                             "ON EACH [p.title, p.description, p.item_details, p.categories, p.text]"
             ).consume();
+            tx.run("CREATE INDEX productSourceId IF NOT EXISTS FOR (p:Product) ON (p.sourceId)").consume();
+            // The change feed reads products and tombstones by the time they changed.
+            tx.run("CREATE INDEX productUpdatedAt IF NOT EXISTS FOR (p:Product) ON (p.updatedAt)").consume();
+            tx.run("CREATE INDEX productTombstoneDeletedAt IF NOT EXISTS FOR (t:ProductTombstone) ON (t.deletedAt)")
+                    .consume();
+            tx.run("CREATE INDEX productTombstoneSourceId IF NOT EXISTS FOR (t:ProductTombstone) ON (t.sourceId)")
+                    .consume();
             return null;
         });
     }
 
-    private void ingestRecord(Session session, Map<String, String> record) {
+    /**
+     * Creates the native cosine vector index once embeddings exist, sized to the dimension of the first
+     * stored embedding. Neo4j 5.13 only offers the procedure form, which is not idempotent, so the index
+     * catalog is checked first.
+     */
+    private void ensureVectorIndex() {
+        try (Session session = driver.session()) {
+            session.writeTransaction((TransactionWork<Void>) tx -> {
+                boolean exists = tx.run("SHOW INDEXES YIELD name WHERE name = $name RETURN count(*) AS count",
+                        Map.of("name", ProductVectorIndex.NATIVE_INDEX_NAME)).single().get("count").asInt() > 0;
+                if (exists) {
+                    return null;
+                }
+                var dimension = tx.run("MATCH (p:Product) WHERE p.embedding IS NOT NULL " +
+                        "RETURN size(p.embedding) AS dimension LIMIT 1").list();
+                if (dimension.isEmpty()) {
+                    return null;
+                }
+                tx.run("CALL db.index.vector.createNodeIndex($name, 'Product', 'embedding', $dimension, 'cosine')",
+                        Map.of("name", ProductVectorIndex.NATIVE_INDEX_NAME,
+                                "dimension", dimension.get(0).get("dimension").asInt())).consume();
+                log.info("created vector index {} with dimension {}", ProductVectorIndex.NATIVE_INDEX_NAME,
+                        dimension.get(0).get("dimension").asInt());
+                return null;
+            });
+        }
+    }
+
+    private ProductRecord toProductRecord(Map<String, String> record) {
         String title = record.getOrDefault("title", "");
         String description = record.getOrDefault("description", "");
         String itemDetails = record.getOrDefault("item_details", "");
@@ -68,23 +288,92 @@ public class ProductCsvImporter {
         String combinedText = Stream.of(title, description, itemDetails, String.join(" ", categories))
                 .filter(s -> !s.isBlank())
                 .collect(Collectors.joining(" "));
-        List<Double> embedding = embeddingService.embed(combinedText);
-        Map<String, Object> params = new HashMap<>();
-        params.put("sourceId", UUID.randomUUID().toString());
-        params.put("title", title);
-        params.put("description", description);
-        params.put("itemDetails", itemDetails);
-        params.put("text", combinedText);
-        params.put("categories", categories);
-        params.put("embedding", embedding);
-
-        session.writeTransaction((TransactionWork<Void>) tx -> {
-            tx.run("MERGE (p:Product {sourceId: $sourceId}) " +
-                    "SET p.title = $title, p.description = $description, " +
-                    "p.item_details = $itemDetails, p.text = $text, p.categories = $categories, " +
-                    "p.embedding = $embedding",
-                    params);
-            return null;
+        String sourceId = ProductKeys.sourceId(record.get(idColumn), title, itemDetails);
+        String contentHash = ProductKeys.contentHash(title, description, itemDetails, categories);
+        return new ProductRecord(sourceId, contentHash, title, description, itemDetails, categories, combinedText);
+    }
+
+    private Map<String, String> loadContentHashes() {
+        try (Session session = driver.session()) {
+            return session.readTransaction((TransactionWork<Map<String, String>>) tx -> {
+                Map<String, String> hashes = new HashMap<>();
+                tx.run("MATCH (p:Product) RETURN p.sourceId AS sourceId, p.contentHash AS contentHash")
+                        .forEachRemaining(record -> hashes.put(record.get("sourceId").asString(""),
+                                record.get("contentHash").asString("")));
+                return hashes;
+            });
+        }
+    }
+
+    private Set<String> loadWrittenBy(String jobId) {
+        try (Session session = driver.session()) {
+            return session.readTransaction((TransactionWork<Set<String>>) tx -> {
+                Set<String> sourceIds = new HashSet<>();
+                tx.run("MATCH (p:Product) WHERE p.importJob = $jobId RETURN p.sourceId AS sourceId",
+                                Map.of("jobId", jobId))
+                        .forEachRemaining(record -> sourceIds.add(record.get("sourceId").asString("")));
+                return sourceIds;
+            });
+        }
+    }
+
+    /**
+     * Moves products from a key they shared with other rows of the file to a key of their own. Like a
+     * delete, the old key gets a tombstone so other instances drop it.
+     */
+    private int renameProducts(Map<String, String> renames) {
+        if (renames.isEmpty()) {
+            return 0;
+        }
+        List<Map<String, String>> rows = renames.entrySet().stream()
+                .map(rename -> Map.of("from", rename.getKey(), "to", rename.getValue()))
+                .toList();
+        try (Session session = driver.session()) {
+            return session.writeTransaction((TransactionWork<Integer>) tx -> tx.run(
+                            "UNWIND $renames AS rename " +
+                                    "MATCH (p:Product {sourceId: rename.from}) " +
+                                    "SET p.sourceId = rename.to, p.updatedAt = timestamp() " +
+                                    "MERGE (t:ProductTombstone {sourceId: rename.from}) SET t.deletedAt = timestamp() " +
+                                    "RETURN count(p) AS renamed",
+                            Map.of("renames", rows))
+                    .single().get("renamed").asInt());
+        }
+    }
+
+    private int deleteProducts(List<String> sourceIds) {
+        int deleted = 0;
+        for (int from = 0; from < sourceIds.size(); from += writeBatchSize) {
+            List<String> chunk = sourceIds.subList(from, Math.min(from + writeBatchSize, sourceIds.size()));
+            try (Session session = driver.session()) {
+                deleted += session.writeTransaction((TransactionWork<Integer>) tx -> tx.run(
+                                "MATCH (p:Product) WHERE p.sourceId IN $sourceIds " +
+                                        "WITH p, p.sourceId AS sourceId DETACH DELETE p " +
+                                        "MERGE (t:ProductTombstone {sourceId: sourceId}) SET t.deletedAt = timestamp()",
+                                Map.of("sourceIds", chunk))
+                        .consume().counters().nodesDeleted());
+            }
+        }
+        return deleted;
+    }
+
+    private Counter rows(String result, String modeTag) {
+        return instrumentation.counter("import.rows", "result", result, "mode", modeTag);
+    }
+
+    private void writeRows(List<Map<String, Object>> rows, String jobId) {
+        instrumentation.timer("import.write.transaction").record(() -> {
+            try (Session session = driver.session()) {
+                session.writeTransaction((TransactionWork<Void>) tx -> {
+                    tx.run("UNWIND $rows AS row " +
+                                    "MERGE (p:Product {sourceId: row.sourceId}) " +
+                                    "SET p.title = row.title, p.description = row.description, " +
+                                    "p.item_details = row.itemDetails, p.text = row.text, p.categories = row.categories, " +
+                                    "p.embedding = row.embedding, p.contentHash = row.contentHash, " +
+                                    "p.importJob = $jobId, p.updatedAt = timestamp()",
+                            Map.of("rows", rows, "jobId", jobId)).consume();
+                    return null;
+                });
+            }
         });
     }
 
@@ -0,0 +1,58 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+final class ProductKeys {
+    private static final char SEPARATOR = '\u001f';
+    private static final int SOURCE_ID_BYTES = 16;
+
+    private ProductKeys() {
+    }
+
+    /**
+     * Key for a catalog row: the explicit id column when the file has one, otherwise a hash of title
+     * plus item details. The hash is stable across imports but not unique: listings such as custom
+     * orders share a title and details, so {@link CatalogKeys} gives every row of such a group
+     * {@link #distinctSourceId} instead.
+     */
+    static String sourceId(String explicitId, String title, String itemDetails) {
+        if (explicitId != null && !explicitId.isBlank()) {
+            return explicitId.trim();
+        }
+        byte[] digest = sha256(title.trim() + SEPARATOR + itemDetails.trim());
+        return HexFormat.of().formatHex(digest, 0, SOURCE_ID_BYTES);
+    }
+
+    /**
+     * Key for a row whose {@link #sourceId} it shares with other rows of the same file, derived from that
+     * key and the row's {@link #contentHash}, so it only collides with a row that is identical in every
+     * field.
+     */
+    static String distinctSourceId(String sourceId, String contentHash) {
+        byte[] digest = sha256(sourceId + SEPARATOR + contentHash);
+        return HexFormat.of().formatHex(digest, 0, SOURCE_ID_BYTES);
+    }
+
+    static String contentHash(String title, String description, String itemDetails, List<String> categories) {
+        StringBuilder content = new StringBuilder()
+                .append(title).append(SEPARATOR)
+                .append(description).append(SEPARATOR)
+                .append(itemDetails);
+        for (String category : categories) {
+            content.append(SEPARATOR).append(category);
+        }
+        return HexFormat.of().formatHex(sha256(content.toString()));
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
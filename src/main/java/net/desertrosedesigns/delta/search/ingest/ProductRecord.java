@@ -0,0 +1,31 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+record ProductRecord(String sourceId,
+                     String contentHash,
+                     String title,
+                     String description,
+                     String itemDetails,
+                     List<String> categories,
+                     String text) {
+
+    ProductRecord withSourceId(String sourceId) {
+        return new ProductRecord(sourceId, contentHash, title, description, itemDetails, categories, text);
+    }
+
+    Map<String, Object> toRow(List<Double> embedding) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("sourceId", sourceId);
+        row.put("contentHash", contentHash);
+        row.put("title", title);
+        row.put("description", description);
+        row.put("itemDetails", itemDetails);
+        row.put("text", text);
+        row.put("categories", categories);
+        row.put("embedding", embedding);
+        return row;
+    }
+}
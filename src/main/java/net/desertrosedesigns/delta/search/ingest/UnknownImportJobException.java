@@ -0,0 +1,12 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+/**
+ * Thrown when an import is asked to resume a job that is neither among the recent jobs nor stamped on
+ * any product, so there is no checkpoint to resume from.
+ */
+public class UnknownImportJobException extends IllegalArgumentException {
+
+    public UnknownImportJobException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package net.desertrosedesigns.delta.search.model;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /api/search/batch}. Every query field except {@code q} is optional: {@code mode}
+ * is {@code text}, {@code embedding} (default) or {@code hybrid}, and {@code fusion} and {@code fields}
+ * take the same values as the single-query endpoints.
+ */
+public record BatchSearchRequest(List<Query> queries) {
+
+    public record Query(String id, String q, String mode, Integer limit, String fusion, String fields) {
+    }
+}
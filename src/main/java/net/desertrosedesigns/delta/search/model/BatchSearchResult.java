@@ -0,0 +1,22 @@
+package net.desertrosedesigns.delta.search.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One line of the batch search stream. {@code index} is the query's position in the request and
+ * {@code id} echoes the caller's id, since results arrive in completion order. A failed query carries
+ * {@code error} instead of results.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchSearchResult(int index, String id, List<SearchResultDto> results, String error) {
+
+    public static BatchSearchResult success(int index, String id, List<SearchResultDto> results) {
+        return new BatchSearchResult(index, id, results, null);
+    }
+
+    public static BatchSearchResult failure(int index, String id, String error) {
+        return new BatchSearchResult(index, id, null, error);
+    }
+}
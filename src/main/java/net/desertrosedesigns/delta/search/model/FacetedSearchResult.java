@@ -0,0 +1,11 @@
+package net.desertrosedesigns.delta.search.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search results plus the number of candidate products in each category, most frequent first. Facets
+ * are counted over every candidate the search ranked, not just the returned page.
+ */
+public record FacetedSearchResult(List<SearchResultDto> results, Map<String, Integer> facets) {
+}
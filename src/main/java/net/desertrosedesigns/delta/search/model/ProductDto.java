@@ -1,9 +1,13 @@
 package net.desertrosedesigns.delta.search.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProductDto {
     private final String sourceId;
     private final String title;
@@ -56,6 +60,29 @@ public class ProductDto {
         );
     }
 
+    /**
+     * Builds a product from a projected row keyed by property name. Fields outside {@code fields} stay
+     * {@code null} and are left out of the JSON response.
+     */
+    public static ProductDto fromProjection(Map<String, Object> row, Set<ProductField> fields) {
+        return new ProductDto(
+                stringField(row, fields, ProductField.SOURCE_ID),
+                stringField(row, fields, ProductField.TITLE),
+                stringField(row, fields, ProductField.DESCRIPTION),
+                stringField(row, fields, ProductField.ITEM_DETAILS),
+                fields.contains(ProductField.CATEGORIES) ? parseCategories(row.get(ProductField.CATEGORIES.property())) : null,
+                stringField(row, fields, ProductField.TEXT)
+        );
+    }
+
+    private static String stringField(Map<String, Object> row, Set<ProductField> fields, ProductField field) {
+        if (!fields.contains(field)) {
+            return null;
+        }
+        Object value = row.get(field.property());
+        return value == null ? "" : (String) value;
+    }
+
     @SuppressWarnings("unchecked")
     private static java.util.List<String> parseCategories(Object raw) {
         if (raw instanceof java.util.List<?>) {
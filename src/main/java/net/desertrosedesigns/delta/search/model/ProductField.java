@@ -0,0 +1,61 @@
+package net.desertrosedesigns.delta.search.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum ProductField {
+    SOURCE_ID("sourceId", "sourceId"),
+    TITLE("title", "title"),
+    DESCRIPTION("description", "description"),
+    ITEM_DETAILS("itemDetails", "item_details"),
+    CATEGORIES("categories", "categories"),
+    TEXT("text", "text");
+
+    public static final Set<ProductField> ALL = Collections.unmodifiableSet(EnumSet.allOf(ProductField.class));
+
+    private final String jsonName;
+    private final String property;
+
+    ProductField(String jsonName, String property) {
+        this.jsonName = jsonName;
+        this.property = property;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    /**
+     * Parses a comma-separated list of response field names such as {@code sourceId,title}. The
+     * {@code sourceId} field is always included because results are deduplicated on it; {@code null} or
+     * blank input selects every field.
+     */
+    public static Set<ProductField> parseList(String value) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        EnumSet<ProductField> fields = EnumSet.of(SOURCE_ID);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            fields.add(fromJsonName(trimmed));
+        }
+        return fields;
+    }
+
+    private static ProductField fromJsonName(String name) {
+        for (ProductField field : values()) {
+            if (field.jsonName.equalsIgnoreCase(name) || field.property.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown product field: " + name);
+    }
+}
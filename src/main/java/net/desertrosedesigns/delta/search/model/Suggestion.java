@@ -0,0 +1,11 @@
+package net.desertrosedesigns.delta.search.model;
+
+/**
+ * One type-ahead completion. {@code type} is {@value #TITLE} or {@value #CATEGORY}; {@code weight} is
+ * the number of products with that title or in that category.
+ */
+public record Suggestion(String text, String type, int weight) {
+
+    public static final String TITLE = "title";
+    public static final String CATEGORY = "category";
+}
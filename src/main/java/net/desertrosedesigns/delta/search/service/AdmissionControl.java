@@ -0,0 +1,193 @@
+package net.desertrosedesigns.delta.search.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.neo4j.driver.exceptions.TransientException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for searches: an adaptive {@link ConcurrencyLimiter} per operation that sheds
+ * requests over the limit with a {@link SearchRejectedException}, and a {@link Deadline} that bounds
+ * every admitted search. The deadline is {@code search.deadline} or an earlier one already in the
+ * context, such as a client timeout, and it is passed down so embedding calls and Neo4j transactions
+ * give up at the same time.
+ */
+@Component
+public class AdmissionControl implements MeterBinder {
+
+    static final List<String> OPERATIONS = List.of("text", "embedding", "hybrid", "faceted", "batch");
+
+    private final Instrumentation instrumentation;
+    private final boolean enabled;
+    private final Duration deadline;
+    private final Map<String, ConcurrencyLimiter> limiters = new LinkedHashMap<>();
+
+    public AdmissionControl(Instrumentation instrumentation,
+                            @Value("${search.admission.enabled:true}") boolean enabled,
+                            @Value("${search.admission.initial-limit:32}") int initialLimit,
+                            @Value("${search.admission.min-limit:4}") int minLimit,
+                            @Value("${search.admission.max-limit:256}") int maxLimit,
+                            @Value("${search.admission.backoff-ratio:0.9}") double backoffRatio,
+                            @Value("${search.admission.slow-threshold:PT1S}") Duration slowThreshold,
+                            @Value("${search.deadline:PT5S}") Duration deadline) {
+        this.instrumentation = instrumentation;
+        this.enabled = enabled;
+        this.deadline = deadline;
+        for (String operation : OPERATIONS) {
+            limiters.put(operation, new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, slowThreshold));
+        }
+    }
+
+    /**
+     * Runs {@code search} if {@code operation} is under its limit, failing with a
+     * {@link TimeoutException} once the deadline passes.
+     */
+    public <T> Mono<T> admit(String operation, Mono<T> search) {
+        return Mono.deferContextual(context -> {
+            Deadline effective = deadline(context);
+            ConcurrencyLimiter limiter = acquire(operation);
+            if (limiter == null) {
+                return Mono.error(rejection(operation));
+            }
+            Slot slot = new Slot(limiter);
+            return search
+                    .timeout(effective.remaining())
+                    .doOnSuccess(result -> slot.release(ConcurrencyLimiter.Outcome.SUCCESS))
+                    .doOnError(slot::release)
+                    .doOnCancel(() -> slot.release(ConcurrencyLimiter.Outcome.IGNORED))
+                    .contextWrite(inner -> Deadline.within(inner, effective));
+        });
+    }
+
+    /**
+     * {@link #admit(String, Mono)} for a streamed search: the stream as a whole fails with a
+     * {@link TimeoutException} once the deadline passes, and the slot is released and accounted for as
+     * for a single search. Elements already emitted stay with the caller.
+     */
+    public <T> Flux<T> admit(String operation, Flux<T> search) {
+        return Flux.deferContextual(context -> {
+            Deadline effective = deadline(context);
+            ConcurrencyLimiter limiter = acquire(operation);
+            if (limiter == null) {
+                return Flux.error(rejection(operation));
+            }
+            Slot slot = new Slot(limiter);
+            // Each element re-arms the timer with the time left, so the stream as a whole gets one deadline.
+            return search
+                    .timeout(Mono.delay(effective.remaining()), element -> Mono.delay(effective.remaining()))
+                    .doOnComplete(() -> slot.release(ConcurrencyLimiter.Outcome.SUCCESS))
+                    .doOnError(slot::release)
+                    .doOnCancel(() -> slot.release(ConcurrencyLimiter.Outcome.IGNORED))
+                    .contextWrite(inner -> Deadline.within(inner, effective));
+        });
+    }
+
+    /**
+     * Publishes {@code search.admission.limit} and {@code search.admission.in-flight} per operation.
+     * Rejections are counted as {@code search.rejected}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limiters.forEach((operation, limiter) -> {
+            Gauge.builder("search.admission.limit", limiter, ConcurrencyLimiter::limit)
+                    .tag("operation", operation)
+                    .register(registry);
+            Gauge.builder("search.admission.in-flight", limiter, ConcurrencyLimiter::inFlight)
+                    .tag("operation", operation)
+                    .register(registry);
+        });
+    }
+
+    public int limit(String operation) {
+        return limiter(operation).limit();
+    }
+
+    /**
+     * The deadline already in {@code context} when it is earlier than {@code search.deadline} from now.
+     */
+    private Deadline deadline(ContextView context) {
+        return Deadline.from(context)
+                .filter(existing -> existing.remaining().compareTo(deadline) < 0)
+                .orElseGet(() -> Deadline.after(deadline));
+    }
+
+    /**
+     * The limiter for {@code operation} with a slot taken, or {@code null} when it is full. With
+     * admission control disabled a slot is always available.
+     */
+    private ConcurrencyLimiter acquire(String operation) {
+        ConcurrencyLimiter limiter = limiter(operation);
+        if (!enabled) {
+            return limiter;
+        }
+        return limiter.tryAcquire() ? limiter : null;
+    }
+
+    /**
+     * A taken slot, given back once when the search ends. Releasing as the result or error passes, rather
+     * than after the caller has it, keeps a caller that immediately searches again from finding its own
+     * slot still taken.
+     */
+    private final class Slot {
+        private final ConcurrencyLimiter limiter;
+        private final long started = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        private void release(Throwable error) {
+            release(overload(error) ? ConcurrencyLimiter.Outcome.DROPPED : ConcurrencyLimiter.Outcome.IGNORED);
+        }
+
+        private void release(ConcurrencyLimiter.Outcome outcome) {
+            if (enabled && released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - started, outcome);
+            }
+        }
+    }
+
+    private SearchRejectedException rejection(String operation) {
+        instrumentation.counter("search.rejected", "operation", operation).increment();
+        return new SearchRejectedException(operation + " searches are at their concurrency limit of "
+                + limiter(operation).limit());
+    }
+
+    private ConcurrencyLimiter limiter(String operation) {
+        ConcurrencyLimiter limiter = limiters.get(operation);
+        if (limiter == null) {
+            throw new IllegalArgumentException("no concurrency limit for operation " + operation);
+        }
+        return limiter;
+    }
+
+    /**
+     * Whether {@code error} means the backend is overloaded rather than that the request was bad:
+     * a timeout anywhere in its causes, or a transient Neo4j failure such as a transaction timeout.
+     */
+    static boolean overload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof TransientException) {
+                return true;
+            }
+            if (cause instanceof Neo4jException neo4j && neo4j.code() != null && neo4j.code().contains("TimedOut")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
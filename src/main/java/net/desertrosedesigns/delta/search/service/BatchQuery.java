@@ -0,0 +1,7 @@
+package net.desertrosedesigns.delta.search.service;
+
+/**
+ * One parsed entry of a batch search. {@code id} is the caller's optional correlation id.
+ */
+public record BatchQuery(String id, String query, SearchType type, SearchOptions options) {
+}
@@ -0,0 +1,70 @@
+package net.desertrosedesigns.delta.search.service;
+
+import java.time.Duration;
+
+/**
+ * Additive-increase/multiplicative-decrease limit on concurrent requests. Each request that completes
+ * within the latency target while the limit was at least half used raises the limit by one; each request
+ * that timed out or ran slower than the target cuts it by the backoff ratio. Under a healthy backend the
+ * limit climbs until latency suffers, and when a dependency degrades it shrinks within a few requests, so
+ * excess load is rejected up front instead of queueing behind the slow calls.
+ */
+final class ConcurrencyLimiter {
+
+    enum Outcome {
+        /** Completed normally; its latency decides between increase and decrease. */
+        SUCCESS,
+        /** Timed out or was shed downstream; always a decrease. */
+        DROPPED,
+        /** Cancelled by the client or failed for reasons unrelated to load; the limit is left alone. */
+        IGNORED
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long slowNanos;
+    private double limit;
+    private int inFlight;
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration slowThreshold) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("invalid limiter settings: min " + minLimit + ", max " + maxLimit
+                    + ", backoff " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.slowNanos = slowThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #limit()} requests are in flight.
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(long latencyNanos, Outcome outcome) {
+        boolean saturated = inFlight * 2 >= (int) limit;
+        inFlight--;
+        if (outcome == Outcome.DROPPED || outcome == Outcome.SUCCESS && latencyNanos > slowNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (outcome == Outcome.SUCCESS && saturated) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,192 @@
+package net.desertrosedesigns.delta.search.service;
+
+import net.desertrosedesigns.delta.search.index.CorpusSnapshot;
+import net.desertrosedesigns.delta.search.index.CorpusSnapshotWriter;
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Generations of corpus snapshots in {@code search.snapshot.dir}. A new generation is published after
+ * every import, and search instances open the newest one that validates. Files are named
+ * {@code corpus-<generation>.snap}, so a directory listing is enough to find the latest generation.
+ * Publishers take generation numbers from a {@code (:CatalogGeneration {id: 'snapshots'})} counter
+ * in Neo4j rather than from the listing, so two publishing at once never write the same file.
+ */
+@Component
+public class CorpusSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(CorpusSnapshots.class);
+    private static final Pattern FILE_NAME = Pattern.compile("corpus-(\\d+)\\.snap");
+    private static final String EXPORT_QUERY = "MATCH (node:Product) WHERE node.embedding IS NOT NULL RETURN " +
+            ProductSearchService.projection(ProductField.ALL) + ", node.embedding AS embedding";
+    // Raised to the floor first, in case the directory holds generations the counter has not reached.
+    private static final String ALLOCATE_GENERATION = "MERGE (c:CatalogGeneration {id: $id}) " +
+            "SET c.value = CASE WHEN coalesce(c.value, 0) < $floor THEN $floor ELSE c.value + 1 END " +
+            "RETURN c.value AS generation";
+    private static final String COUNTER = "snapshots";
+
+    private final Driver driver;
+    private final Path directory;
+    private final int retain;
+    private final boolean verifyChecksum;
+
+    public CorpusSnapshots(Driver driver,
+                           @Value("${search.snapshot.dir:}") String directory,
+                           @Value("${search.snapshot.retain:2}") int retain,
+                           @Value("${search.snapshot.verify-checksum:true}") boolean verifyChecksum) {
+        this.driver = driver;
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.retain = Math.max(1, retain);
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Opens the newest generation above {@code generation}, skipping files that fail validation.
+     */
+    public Optional<CorpusSnapshot> openNewerThan(long generation) {
+        for (Generation candidate : generations()) {
+            if (candidate.number() <= generation) {
+                break;
+            }
+            try {
+                return Optional.of(CorpusSnapshot.open(candidate.path(), verifyChecksum));
+            } catch (IOException e) {
+                log.warn("skipping unreadable corpus snapshot {}: {}", candidate.path(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The newest generation in the directory, valid or not, or {@code 0} when there is none.
+     */
+    public long latestGeneration() {
+        List<Generation> generations = generations();
+        return generations.isEmpty() ? 0 : generations.get(0).number();
+    }
+
+    /**
+     * Streams every embedded product out of Neo4j into the next generation and prunes old ones. Returns
+     * the new generation, or empty when snapshots are disabled. An empty catalog is published as an
+     * empty generation, so instances stop serving the products of the previous one.
+     */
+    public Optional<Long> publish() {
+        if (directory == null) {
+            return Optional.empty();
+        }
+        long started = System.nanoTime();
+        long generation;
+        Path target = null;
+        CorpusSnapshotWriter writer = null;
+        try (Session session = driver.session()) {
+            long floor = latestGeneration() + 1;
+            generation = session.writeTransaction(tx -> tx.run(ALLOCATE_GENERATION,
+                    Map.of("id", COUNTER, "floor", floor)).single().get("generation").asLong());
+            target = directory.resolve("corpus-%012d.snap".formatted(generation));
+            long watermark = session.run("RETURN timestamp() AS now").single().get("now").asLong();
+            Result result = session.run(EXPORT_QUERY, Map.of());
+            while (result.hasNext()) {
+                Record record = result.next();
+                float[] vector = ProductVectorIndex.toVector(record.get("embedding"));
+                ProductDto product = ProductDto.fromProjection(record.asMap(), ProductField.ALL);
+                if (vector.length == 0) {
+                    continue;
+                }
+                if (writer == null) {
+                    writer = new CorpusSnapshotWriter(target, generation, vector.length, watermark);
+                }
+                if (vector.length != writer.dimension()) {
+                    log.warn("skipping product {} with embedding dimension {}", product.getSourceId(), vector.length);
+                    continue;
+                }
+                writer.add(product.getSourceId(), vector, product);
+            }
+            if (writer == null) {
+                writer = new CorpusSnapshotWriter(target, generation, 0, watermark);
+            }
+            writer.commit();
+            log.info("published corpus snapshot generation {} with {} products in {} ms", generation,
+                    writer.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write corpus snapshot " + target, e);
+        } finally {
+            closeQuietly(writer);
+        }
+        prune();
+        return Optional.of(generation);
+    }
+
+    private void prune() {
+        List<Generation> generations = generations();
+        // Deleting a mapped file is safe: instances still reading it keep their mapping until they move on.
+        for (Generation old : generations.subList(Math.min(retain, generations.size()), generations.size())) {
+            try {
+                Files.deleteIfExists(old.path());
+            } catch (IOException e) {
+                log.warn("could not delete old corpus snapshot {}", old.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Snapshot files in the directory, newest first.
+     */
+    private List<Generation> generations() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Generation> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(new Generation(Long.parseLong(matcher.group(1)), path));
+                }
+            });
+        } catch (IOException e) {
+            log.warn("could not list corpus snapshots in {}", directory, e);
+            return List.of();
+        }
+        generations.sort(Comparator.comparingLong(Generation::number).reversed());
+        return generations;
+    }
+
+    private static void closeQuietly(CorpusSnapshotWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("could not remove partial corpus snapshot", e);
+        }
+    }
+
+    private record Generation(long number, Path path) {
+    }
+}
@@ -0,0 +1,60 @@
+package net.desertrosedesigns.delta.search.service;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Point in time by which a search must answer, carried in the Reactor context so every stage below the
+ * request (embedding calls and their retries, Neo4j transactions) can cap its own timeout with the time
+ * that is left.
+ */
+public final class Deadline {
+
+    private static final Object KEY = Deadline.class;
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean expired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    public static Optional<Deadline> from(ContextView context) {
+        return context.getOrEmpty(KEY);
+    }
+
+    /**
+     * {@code context} with {@code deadline}, unless it already carries an earlier one.
+     */
+    public static Context within(Context context, Deadline deadline) {
+        Optional<Deadline> existing = from(context);
+        if (existing.isPresent() && existing.get().expiresAtNanos - deadline.expiresAtNanos <= 0) {
+            return context;
+        }
+        return context.put(KEY, deadline);
+    }
+
+    /**
+     * The shorter of {@code timeout} and the time left on the context's deadline, if it has one.
+     */
+    public static Duration cap(ContextView context, Duration timeout) {
+        return from(context)
+                .map(Deadline::remaining)
+                .filter(remaining -> remaining.compareTo(timeout) < 0)
+                .orElse(timeout);
+    }
+}
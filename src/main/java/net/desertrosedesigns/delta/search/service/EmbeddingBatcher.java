@@ -0,0 +1,233 @@
+package net.desertrosedesigns.delta.search.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent embedding requests. Identical texts that are already in flight share one future,
+ * and distinct texts arriving within {@code window} of each other are sent as a single multi-input call,
+ * up to {@code maxBatch} inputs. The remote call is asynchronous, so no thread waits on the embedder;
+ * batches beyond {@code maxConcurrentBatches} queue until an earlier call completes. At most
+ * {@code maxWaitingBatches} batches queue; beyond that, texts are rejected with a
+ * {@link SearchRejectedException} rather than waiting behind a backlog the embedder cannot clear.
+ * <p>
+ * Every caller gets its own future, so cancelling it (for example on a timeout) leaves other callers of
+ * the same text waiting. A text whose callers have all cancelled is dropped from its batch before the
+ * batch is sent.
+ */
+class EmbeddingBatcher implements AutoCloseable {
+
+    private final Function<List<String>, CompletableFuture<List<float[]>>> remote;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final int maxConcurrentBatches;
+    private final int maxWaitingBatches;
+    private final Map<String, Waiters> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final Deque<List<String>> waiting = new ArrayDeque<>();
+    private List<String> pending = new ArrayList<>();
+    private int running;
+
+    EmbeddingBatcher(Function<List<String>, CompletableFuture<List<float[]>>> remote,
+                     Duration window,
+                     int maxBatch,
+                     int maxConcurrentBatches,
+                     int maxWaitingBatches) {
+        this.remote = remote;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxConcurrentBatches = Math.max(1, maxConcurrentBatches);
+        this.maxWaitingBatches = Math.max(0, maxWaitingBatches);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    CompletableFuture<float[]> submit(String text) {
+        Waiters created = new Waiters();
+        Waiters waiters = inFlight.compute(text, (key, existing) -> {
+            if (existing == null && saturated()) {
+                return null;
+            }
+            Waiters joined = existing == null ? created : existing;
+            joined.count++;
+            return joined;
+        });
+        if (waiters == null) {
+            return CompletableFuture.failedFuture(rejection());
+        }
+        CompletableFuture<float[]> caller = new CompletableFuture<>();
+        waiters.result.whenComplete((vector, failure) -> {
+            if (failure != null) {
+                caller.completeExceptionally(failure);
+            } else {
+                caller.complete(vector);
+            }
+        });
+        caller.whenComplete((vector, failure) -> {
+            if (caller.isCancelled()) {
+                inFlight.computeIfPresent(text, (key, current) -> {
+                    if (current == waiters) {
+                        current.count--;
+                    }
+                    return current;
+                });
+            }
+        });
+        if (waiters == created) {
+            enqueue(text);
+        }
+        return caller;
+    }
+
+    private synchronized boolean saturated() {
+        return waiting.size() >= maxWaitingBatches && running >= maxConcurrentBatches;
+    }
+
+    private SearchRejectedException rejection() {
+        return new SearchRejectedException("embedding requests are queued " + maxWaitingBatches
+                + " batches deep behind " + maxConcurrentBatches + " running calls");
+    }
+
+    private void enqueue(String text) {
+        List<String> ready = null;
+        boolean startWindow;
+        synchronized (this) {
+            pending.add(text);
+            startWindow = pending.size() == 1;
+            if (pending.size() >= maxBatch || windowNanos <= 0) {
+                ready = pending;
+                pending = new ArrayList<>();
+                startWindow = false;
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        } else if (startWindow) {
+            timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        List<String> ready;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready = pending;
+            pending = new ArrayList<>();
+        }
+        dispatch(ready);
+    }
+
+    private void dispatch(List<String> batch) {
+        boolean full = false;
+        synchronized (this) {
+            if (running < maxConcurrentBatches) {
+                running++;
+            } else if (waiting.size() < maxWaitingBatches) {
+                waiting.add(batch);
+                return;
+            } else {
+                full = true;
+            }
+        }
+        if (full) {
+            // The queue filled up while this batch collected its window.
+            SearchRejectedException rejection = rejection();
+            batch.forEach(text -> complete(text, null, rejection));
+            return;
+        }
+        start(batch);
+    }
+
+    private void start(List<String> queued) {
+        List<String> batch = queued.stream().filter(this::stillWanted).toList();
+        if (batch.isEmpty()) {
+            next();
+            return;
+        }
+        CompletableFuture<List<float[]>> call;
+        try {
+            call = remote.apply(batch);
+        } catch (Throwable t) {
+            call = CompletableFuture.failedFuture(t);
+        }
+        call.whenComplete((vectors, failure) -> {
+            finish(batch, vectors, failure);
+            next();
+        });
+    }
+
+    /**
+     * Hands the slot of a finished call to the oldest waiting batch, or frees it.
+     */
+    private void next() {
+        List<String> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    /**
+     * Whether anyone still waits for {@code text}; a text nobody waits for is forgotten, so a later
+     * submit starts afresh.
+     */
+    private boolean stillWanted(String text) {
+        return inFlight.computeIfPresent(text, (key, waiters) -> waiters.count > 0 ? waiters : null) != null;
+    }
+
+    private void finish(List<String> batch, List<float[]> vectors, Throwable failure) {
+        if (failure == null && vectors.size() != batch.size()) {
+            failure = new IllegalStateException("embedding service returned " + vectors.size()
+                    + " vectors for " + batch.size() + " inputs");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), failure == null ? vectors.get(i) : null, failure);
+        }
+    }
+
+    private void complete(String text, float[] vector, Throwable failure) {
+        Waiters waiters = inFlight.remove(text);
+        if (waiters == null) {
+            return;
+        }
+        if (failure != null) {
+            waiters.result.completeExceptionally(failure);
+        } else {
+            waiters.result.complete(vector);
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * The shared result for one text and the number of callers still waiting for it. The count is only
+     * changed inside {@code inFlight.compute}, which serialises updates per text.
+     */
+    private static final class Waiters {
+        final CompletableFuture<float[]> result = new CompletableFuture<>();
+        int count;
+    }
+}
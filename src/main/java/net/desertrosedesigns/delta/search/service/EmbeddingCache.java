@@ -0,0 +1,163 @@
+package net.desertrosedesigns.delta.search.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Query embedding cache bounded by an estimate of its heap footprint. Caffeine's W-TinyLFU policy keeps
+ * frequently repeated queries resident while one-off queries are evicted first.
+ */
+@Component
+public class EmbeddingCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int SNAPSHOT_MAGIC = 0x454D4243;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    // DataOutput.writeUTF is limited to 65535 encoded bytes.
+    private static final int MAX_SNAPSHOT_KEY_CHARS = 65535 / 3;
+
+    private final Cache<String, float[]> cache;
+    private final Path snapshotPath;
+
+    public EmbeddingCache(@Value("${embedding.cache.max-entries:100000}") long maxEntries,
+                          @Value("${embedding.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                          @Value("${embedding.cache.snapshot-path:}") String snapshotPath) {
+        // Every entry weighs at least maxWeight / maxEntries, which caps the entry count as well as the bytes.
+        long minimumEntryWeight = Math.max(1, (maxWeightBytes + maxEntries - 1) / Math.max(1, maxEntries));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, float[] vector) -> (int) Math.min(Integer.MAX_VALUE,
+                        Math.max(minimumEntryWeight, weightOf(key, vector))))
+                .recordStats()
+                .build();
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    public float[] getIfPresent(String text) {
+        return cache.getIfPresent(normalizeKey(text));
+    }
+
+    public void put(String text, float[] vector) {
+        cache.put(normalizeKey(text), vector);
+    }
+
+    /**
+     * Publishes Caffeine's {@code cache.gets}, {@code cache.evictions} and {@code cache.size} meters
+     * tagged {@code cache=embedding}, plus the hit ratio and the weighted size in bytes.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "embedding");
+        Gauge.builder("embedding.cache.hit.ratio", this, self -> self.stats().hitRate()).register(registry);
+        Gauge.builder("embedding.cache.weight", this, self -> self.stats().weightBytes())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        long weight = cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.estimatedSize(), weight);
+    }
+
+    /**
+     * Lower-cases and collapses whitespace. The sentence-transformer model uses an uncased tokenizer,
+     * so queries that differ only in case or spacing map to the same vector.
+     */
+    public static String normalizeKey(String text) {
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (snapshotPath == null || !Files.isRegularFile(snapshotPath)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("ignoring embedding cache snapshot {} with unknown format", snapshotPath);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                float[] vector = new float[in.readInt()];
+                for (int j = 0; j < vector.length; j++) {
+                    vector[j] = in.readFloat();
+                }
+                cache.put(key, vector);
+            }
+            log.info("warmed embedding cache with {} entries from {}", count, snapshotPath);
+        } catch (IOException e) {
+            log.warn("could not read embedding cache snapshot {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${embedding.cache.snapshot-interval:PT5M}",
+            initialDelayString = "${embedding.cache.snapshot-interval:PT5M}")
+    public void snapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        List<Map.Entry<String, float[]>> entries = cache.asMap().entrySet().stream()
+                .filter(entry -> entry.getKey().length() <= MAX_SNAPSHOT_KEY_CHARS)
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .toList();
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, snapshotPath.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, float[]> entry : entries) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (float v : entry.getValue()) {
+                        out.writeFloat(v);
+                    }
+                }
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("could not write embedding cache snapshot {}", snapshotPath, e);
+        }
+    }
+
+    private static long weightOf(String key, float[] vector) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 4L * vector.length;
+    }
+
+    public record Stats(long hits, long misses, long evictions, double hitRate, long entries, long weightBytes) {
+    }
+}
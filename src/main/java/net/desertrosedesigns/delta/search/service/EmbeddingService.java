@@ -1,7 +1,40 @@
 package net.desertrosedesigns.delta.search.service;
 
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 import java.util.List;
 
 public interface EmbeddingService {
     List<Double> embed(String text);
+
+    /**
+     * Same vector as {@link #embed(String)} as a primitive array. Implementations may return a shared
+     * cached array, so callers must not modify it.
+     */
+    default float[] embedVector(String text) {
+        return VectorUtils.toFloatArray(embed(text));
+    }
+
+    /**
+     * Non-blocking variant of {@link #embedVector(String)} for the request path. The default offloads the
+     * blocking call to a bounded elastic worker.
+     */
+    default Mono<float[]> embedVectorAsync(String text) {
+        return Mono.fromCallable(() -> embedVector(text)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Embeds many texts at once, in input order. Implementations should send every uncached text in a
+     * single request; the default embeds them one by one on a bounded elastic worker.
+     */
+    default Mono<List<float[]>> embedVectorsAsync(List<String> texts) {
+        return Mono.fromCallable(() -> embedAll(texts).stream().map(VectorUtils::toFloatArray).toList())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    default List<List<Double>> embedAll(List<String> texts) {
+        return texts.stream().map(this::embed).toList();
+    }
 }
@@ -0,0 +1,51 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary {@code /embed} response negotiated with {@link #MEDIA_TYPE}: a 12-byte little-endian header
+ * (the magic {@code F32M}, the row count and the dimension) followed by {@code rows x dimension}
+ * float32 values, row by row. At 384 dimensions this is about a fifth of the JSON size, and decoding
+ * is one bulk copy per row instead of parsing boxed doubles.
+ */
+final class EmbeddingWireFormat {
+
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-float32-matrix");
+    static final int MAGIC = 'F' | '3' << 8 | '2' << 16 | 'M' << 24;
+    static final int HEADER_BYTES = 12;
+
+    private EmbeddingWireFormat() {
+    }
+
+    static List<float[]> decode(byte[] body) {
+        if (body.length < HEADER_BYTES) {
+            throw new IllegalStateException("embedding response shorter than its header: " + body.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        int magic = buffer.getInt();
+        int rows = buffer.getInt();
+        int dimension = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IllegalStateException("not a float32 embedding matrix: magic " + Integer.toHexString(magic));
+        }
+        long expected = HEADER_BYTES + (long) rows * dimension * Float.BYTES;
+        if (rows < 0 || dimension < 0 || expected != body.length) {
+            throw new IllegalStateException("embedding matrix of " + rows + " x " + dimension + " needs " + expected
+                    + " bytes but the response has " + body.length);
+        }
+        FloatBuffer values = buffer.asFloatBuffer();
+        List<float[]> vectors = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            float[] vector = new float[dimension];
+            values.get(vector);
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
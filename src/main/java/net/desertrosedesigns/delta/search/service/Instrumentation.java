@@ -0,0 +1,91 @@
+package net.desertrosedesigns.delta.search.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Times request stages as Micrometer observations. Every observation records a timer, with the
+ * percentiles configured under {@code management.metrics.distribution}, and becomes a span nested under
+ * the caller's when tracing is sampled. Tags are given as alternating key/value pairs.
+ */
+@Component
+public class Instrumentation {
+
+    private final ObservationRegistry observations;
+    private final MeterRegistry meters;
+
+    public Instrumentation(ObservationRegistry observations, MeterRegistry meters) {
+        this.observations = observations;
+        this.meters = meters;
+    }
+
+    /**
+     * Records nothing that leaves the process: no spans and an in-memory meter registry.
+     */
+    public static Instrumentation noop() {
+        return new Instrumentation(ObservationRegistry.NOOP, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Observes {@code source} from subscription until it completes, fails or is cancelled.
+     */
+    public <T> Mono<T> observe(String name, Mono<T> source, String... tags) {
+        return Mono.deferContextual(context -> {
+            Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY,
+                    observations.getCurrentObservation());
+            Observation observation = observation(name, parent, tags).start();
+            return source.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * Observes {@code source} from subscription until it terminates or is cancelled.
+     */
+    public <T> Flux<T> observe(String name, Flux<T> source, String... tags) {
+        return Flux.deferContextual(context -> {
+            Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY,
+                    observations.getCurrentObservation());
+            Observation observation = observation(name, parent, tags).start();
+            return source.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    public <T> T observe(String name, Supplier<T> body, String... tags) {
+        return observation(name, observations.getCurrentObservation(), tags).observe(body);
+    }
+
+    public Counter counter(String name, String... tags) {
+        return meters.counter(name, tags);
+    }
+
+    public Timer timer(String name, String... tags) {
+        return meters.timer(name, tags);
+    }
+
+    public DistributionSummary summary(String name, String... tags) {
+        return meters.summary(name, tags);
+    }
+
+    private Observation observation(String name, Observation parent, String... tags) {
+        Observation observation = Observation.createNotStarted(name, observations).parentObservation(parent);
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            observation.lowCardinalityKeyValue(tags[i], tags[i + 1]);
+        }
+        return observation;
+    }
+}
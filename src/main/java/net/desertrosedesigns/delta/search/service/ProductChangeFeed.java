@@ -0,0 +1,231 @@
+package net.desertrosedesigns.delta.search.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.desertrosedesigns.delta.search.index.DeltaSegment;
+import net.desertrosedesigns.delta.search.ingest.ProductCsvImporter;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the in-memory corpus current between rebuilds. Every write path stamps {@code Product.updatedAt}
+ * and leaves a {@code ProductTombstone} with a {@code deletedAt} for each deleted product, both in Neo4j
+ * time; this polls for stamps after the corpus watermark and layers them over the corpus with
+ * {@link ProductVectorIndex#apply}, then drops this instance's cached results.
+ * <p>
+ * A write that committed late can carry a stamp from before the watermark, so each poll also reads the
+ * {@code search.changes.overlap} before it again, in full. Changes the corpus already holds, whether from
+ * an earlier poll or from the load itself, are recognised and skipped; only the stamps after the
+ * watermark are paged.
+ * <p>
+ * The feed pauses while an import runs on this instance, since the import replaces the corpus when it
+ * finishes. When the changes outgrow {@code search.changes.max-delta} the corpus is rebuilt from Neo4j
+ * instead.
+ * With snapshots enabled the feed never rebuilds, since that would publish a generation from every
+ * instance; the delta keeps growing until the next import publishes one.
+ */
+@Component
+public class ProductChangeFeed implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeFeed.class);
+    private static final String CHANGED = "MATCH (p:Product) WHERE p.updatedAt > $since " +
+            "RETURN p.sourceId AS sourceId, p.embedding AS embedding, p.categories AS categories, " +
+            "p.updatedAt AS version ORDER BY version LIMIT $limit";
+    private static final String CHANGED_IN_OVERLAP = "MATCH (p:Product) " +
+            "WHERE p.updatedAt > $from AND p.updatedAt <= $since " +
+            "RETURN p.sourceId AS sourceId, p.embedding AS embedding, p.categories AS categories, " +
+            "p.updatedAt AS version";
+    private static final String DELETED = "MATCH (t:ProductTombstone) WHERE t.deletedAt > $since " +
+            "RETURN t.sourceId AS sourceId, t.deletedAt AS version ORDER BY version LIMIT $limit";
+    private static final String DELETED_IN_OVERLAP = "MATCH (t:ProductTombstone) " +
+            "WHERE t.deletedAt > $from AND t.deletedAt <= $since " +
+            "RETURN t.sourceId AS sourceId, t.deletedAt AS version";
+    private static final String PRUNE = "MATCH (t:ProductTombstone) WHERE t.deletedAt < timestamp() - $retention " +
+            "WITH t LIMIT 10000 DELETE t";
+
+    private final Driver driver;
+    private final ProductVectorIndex vectorIndex;
+    private final CorpusSnapshots snapshots;
+    private final SearchResultCache resultCache;
+    private final ProductCsvImporter importer;
+    private final Instrumentation instrumentation;
+    private final boolean enabled;
+    private final Duration overlap;
+    private final int maxDelta;
+    private final Duration tombstoneRetention;
+
+    public ProductChangeFeed(Driver driver,
+                             ProductVectorIndex vectorIndex,
+                             CorpusSnapshots snapshots,
+                             SearchResultCache resultCache,
+                             ProductCsvImporter importer,
+                             Instrumentation instrumentation,
+                             @Value("${search.changes.enabled:true}") boolean enabled,
+                             @Value("${search.changes.overlap:PT30S}") Duration overlap,
+                             @Value("${search.changes.max-delta:10000}") int maxDelta,
+                             @Value("${search.changes.tombstone-retention:P7D}") Duration tombstoneRetention) {
+        this.driver = driver;
+        this.vectorIndex = vectorIndex;
+        this.snapshots = snapshots;
+        this.resultCache = resultCache;
+        this.importer = importer;
+        this.instrumentation = instrumentation;
+        this.enabled = enabled;
+        this.overlap = overlap;
+        this.maxDelta = maxDelta;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * Applies the changes since the corpus watermark. Does nothing until the corpus is loaded, so a cold
+     * instance does not load it early, or while an import runs here, whose writes would otherwise be
+     * layered over the corpus row by row or trigger a rebuild halfway through.
+     */
+    @Scheduled(fixedDelayString = "${search.changes.poll-interval:PT5S}")
+    public void poll() {
+        if (!enabled || !vectorIndex.isLoaded() || importer.running()) {
+            return;
+        }
+        try {
+            instrumentation.timer("search.changes.poll").record(this::catchUp);
+        } catch (RuntimeException e) {
+            log.warn("could not read product changes", e);
+        }
+    }
+
+    /**
+     * Deletes tombstones older than {@code search.changes.tombstone-retention}. An instance whose
+     * watermark is older than that, because it could not reach Neo4j for as long, may keep serving a
+     * product deleted in the meantime until its next rebuild.
+     */
+    @Scheduled(fixedDelayString = "${search.changes.tombstone-prune-interval:PT1H}")
+    public void pruneTombstones() {
+        if (!enabled) {
+            return;
+        }
+        try (Session session = driver.session()) {
+            int pruned = session.writeTransaction(tx -> tx.run(PRUNE,
+                    Map.of("retention", tombstoneRetention.toMillis())).consume().counters().nodesDeleted());
+            if (pruned > 0) {
+                log.debug("pruned {} product tombstones", pruned);
+            }
+        } catch (RuntimeException e) {
+            log.debug("could not prune product tombstones", e);
+        }
+    }
+
+    /**
+     * Publishes {@code search.changes.delta.size}, the products layered over the corpus. Changes are
+     * counted as {@code search.changes.applied} and rebuilds as {@code search.changes.compactions}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("search.changes.delta.size", vectorIndex, ProductVectorIndex::deltaSize).register(registry);
+    }
+
+    void catchUp() {
+        long since = vectorIndex.watermark();
+        long from = since - overlap.toMillis();
+        int limit = maxDelta + 1;
+        Changes read;
+        try (Session session = driver.session()) {
+            read = session.readTransaction(tx -> {
+                long now = tx.run("RETURN timestamp() AS now").single().get("now").asLong();
+                Map<String, Object> overlapped = Map.of("from", from, "since", since);
+                Map<String, Object> page = Map.of("since", since, "limit", limit);
+                List<Record> upserts = new ArrayList<>(tx.run(CHANGED_IN_OVERLAP, overlapped).list());
+                upserts.addAll(tx.run(CHANGED, page).list());
+                List<Record> deletes = new ArrayList<>(tx.run(DELETED_IN_OVERLAP, overlapped).list());
+                deletes.addAll(tx.run(DELETED, page).list());
+                return Changes.of(now, since, upserts, deletes, limit);
+            });
+        }
+        // Most of what the overlap reads is already held, and must not count towards the delta.
+        List<DeltaSegment.Change> pending = vectorIndex.pending(read.changes());
+        boolean overflow = read.truncated() || vectorIndex.deltaSize() + pending.size() > maxDelta;
+        boolean emptyBase = vectorIndex.isEmpty() && pending.stream().anyMatch(change -> !change.deleted());
+        if (snapshots.isEnabled() && emptyBase) {
+            // Without a dimension to check embeddings against, wait for the import's snapshot.
+            return;
+        }
+        if (!snapshots.isEnabled() && (overflow || emptyBase)) {
+            log.info("compacting {} changed products into a rebuilt corpus", vectorIndex.deltaSize() + pending.size());
+            vectorIndex.rebuild();
+            resultCache.invalidate();
+            instrumentation.counter("search.changes.compactions").increment();
+            return;
+        }
+        List<DeltaSegment.Change> applied = vectorIndex.apply(since, read.changes(), read.watermark());
+        if (!applied.isEmpty()) {
+            resultCache.invalidate();
+            for (DeltaSegment.Change change : applied) {
+                instrumentation.counter("search.changes.applied", "type", change.deleted() ? "delete" : "upsert")
+                        .increment();
+            }
+        }
+    }
+
+    /**
+     * Changes read up to {@code watermark}. Only the versions after {@code since} are paged; when that
+     * page came back full the watermark is the newest version it holds, so the next poll continues from
+     * there.
+     */
+    record Changes(long watermark, List<DeltaSegment.Change> changes, boolean truncated) {
+
+        static Changes of(long now, long since, List<Record> upserts, List<Record> deletes, int limit) {
+            long watermark = Math.min(now, lastOfFullPage(upserts, since, limit));
+            watermark = Math.min(watermark, lastOfFullPage(deletes, since, limit));
+            List<DeltaSegment.Change> changes = new ArrayList<>(upserts.size() + deletes.size());
+            for (Record record : upserts) {
+                long version = record.get("version").asLong();
+                if (version <= watermark) {
+                    changes.add(upsert(record, version));
+                }
+            }
+            for (Record record : deletes) {
+                long version = record.get("version").asLong();
+                if (version <= watermark) {
+                    changes.add(DeltaSegment.Change.delete(record.get("sourceId").asString(""), version));
+                }
+            }
+            return new Changes(watermark, changes, watermark < now);
+        }
+
+        private static long lastOfFullPage(List<Record> records, long since, int limit) {
+            int paged = 0;
+            long last = Long.MIN_VALUE;
+            for (Record record : records) {
+                long version = record.get("version").asLong();
+                if (version > since) {
+                    paged++;
+                    last = Math.max(last, version);
+                }
+            }
+            return paged == limit ? last : Long.MAX_VALUE;
+        }
+
+        private static DeltaSegment.Change upsert(Record record, long version) {
+            String sourceId = record.get("sourceId").asString("");
+            org.neo4j.driver.Value embedding = record.get("embedding");
+            if (embedding.isNull()) {
+                // A product without an embedding is not indexed, as on a full load.
+                return DeltaSegment.Change.delete(sourceId, version);
+            }
+            org.neo4j.driver.Value categories = record.get("categories");
+            return DeltaSegment.Change.upsert(sourceId, version, ProductVectorIndex.toVector(embedding),
+                    categories.isNull() ? List.of() : categories.asList(org.neo4j.driver.Value::asString));
+        }
+    }
+}
@@ -1,96 +1,539 @@
 package net.desertrosedesigns.delta.search.service;
 
+import net.desertrosedesigns.delta.search.model.BatchSearchResult;
+import net.desertrosedesigns.delta.search.model.FacetedSearchResult;
 import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
 import net.desertrosedesigns.delta.search.model.SearchResultDto;
-import net.desertrosedesigns.delta.search.util.VectorUtils;
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
+import net.desertrosedesigns.delta.search.util.HybridScorer;
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.Result;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.TransactionWork;
-import org.neo4j.driver.Value;
-import org.neo4j.driver.types.Node;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.exceptions.ClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.Comparator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductSearchService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    // Every read projects the requested properties explicitly: returning whole nodes would also ship the
+    // embedding, which dwarfs the rest of the product.
+    private static final String TEXT_QUERY = "CALL db.index.fulltext.queryNodes('productTextIndex', $query) " +
+            "YIELD node, score %sRETURN %s, score ORDER BY score DESC LIMIT $limit";
+    // Applied before LIMIT, so a filtered query still fills its page.
+    private static final String CATEGORY_FILTER =
+            "WHERE any(category IN node.categories WHERE toLower(trim(category)) IN $categories) ";
+    private static final String NATIVE_VECTOR_QUERY = "CALL db.index.vector.queryNodes('" +
+            ProductVectorIndex.NATIVE_INDEX_NAME + "', $limit, $embedding) YIELD node, score RETURN %s, score";
+    private static final String REQUESTS = "search.requests";
+    private static final String STAGE = "search.stage";
+    private static final String PRODUCTS_BY_ID_QUERY = "MATCH (node:Product) WHERE node.sourceId IN $sourceIds RETURN %s";
+    // Stands in for the query embedding when a hybrid search gave up on it, so fusion returns the text
+    // ranking alone. Compared by identity: a genuinely empty embedding is not a fallback.
+    private static final float[] NO_EMBEDDING = new float[0];
+    // Neo4j treats a zero timeout as none at all.
+    private static final Duration MIN_TRANSACTION_TIMEOUT = Duration.ofMillis(1);
+
     private final Driver driver;
     private final EmbeddingService embeddingService;
+    private final ProductVectorIndex vectorIndex;
+    private final Instrumentation instrumentation;
+    private final SearchResultCache resultCache;
+    private final AdmissionControl admission;
+    private final VectorSearchMode defaultVectorMode;
+    private final int textDepth;
+    private final int vectorDepth;
+    private final FusionStrategy defaultFusion;
+    private final int rrfK;
+    private final int batchMaxQueries;
+    private final int batchConcurrency;
+    private final int suggestMaxEdits;
+    private final Duration hybridEmbeddingBudget;
 
-    public ProductSearchService(Driver driver, EmbeddingService embeddingService) {
+    public ProductSearchService(Driver driver,
+                                EmbeddingService embeddingService,
+                                ProductVectorIndex vectorIndex,
+                                Instrumentation instrumentation,
+                                SearchResultCache resultCache,
+                                AdmissionControl admission,
+                                @Value("${search.vector.mode:hnsw}") String defaultVectorMode,
+                                @Value("${search.hybrid.text-depth:50}") int textDepth,
+                                @Value("${search.hybrid.vector-depth:50}") int vectorDepth,
+                                @Value("${search.hybrid.fusion:weighted}") String defaultFusion,
+                                @Value("${search.hybrid.rrf-k:60}") int rrfK,
+                                @Value("${search.batch.max-queries:1000}") int batchMaxQueries,
+                                @Value("${search.batch.concurrency:8}") int batchConcurrency,
+                                @Value("${search.suggest.max-edits:1}") int suggestMaxEdits,
+                                @Value("${search.hybrid.embedding-budget:PT0.5S}") Duration hybridEmbeddingBudget) {
         this.driver = driver;
         this.embeddingService = embeddingService;
+        this.vectorIndex = vectorIndex;
+        this.instrumentation = instrumentation;
+        this.resultCache = resultCache;
+        this.admission = admission;
+        this.defaultVectorMode = VectorSearchMode.parse(defaultVectorMode);
+        this.textDepth = textDepth;
+        this.vectorDepth = vectorDepth;
+        this.defaultFusion = FusionStrategy.parse(defaultFusion);
+        this.rrfK = rrfK;
+        this.batchMaxQueries = batchMaxQueries;
+        this.batchConcurrency = batchConcurrency;
+        this.suggestMaxEdits = suggestMaxEdits;
+        this.hybridEmbeddingBudget = hybridEmbeddingBudget;
+    }
+
+    public Mono<List<SearchResultDto>> textSearch(String query, SearchOptions options) {
+        Mono<List<SearchResultDto>> results = resultCache.get("text", query, options,
+                () -> admission.admit("text", textCandidates(query, options.limit(), options)));
+        return instrumentation.observe(REQUESTS, results, "operation", "text");
+    }
+
+    public Mono<List<SearchResultDto>> embeddingSearch(String query, SearchOptions options) {
+        VectorSearchMode vectorMode = options.mode() == null ? defaultVectorMode : options.mode();
+        Mono<List<SearchResultDto>> results = resultCache.get("embedding", query, options.withDefaults(vectorMode, null),
+                () -> admission.admit("embedding", embed(query).flatMap(queryEmbedding -> {
+                    if (queryEmbedding.length == 0) {
+                        return Mono.just(List.<SearchResultDto>of());
+                    }
+                    return vectorMatches(queryEmbedding, options.limit(), options.ef(), vectorMode, options)
+                            .flatMap(matches -> embeddingResults(matches, options.fields()));
+                })));
+        return instrumentation.observe(REQUESTS, results, "operation", "embedding", "mode", tag(vectorMode));
+    }
+
+    /**
+     * Runs the full-text query and the vector search concurrently, each over-fetching its own candidate
+     * depth, then fuses the two lists. Products only the vector side found are fetched afterwards.
+     * <p>
+     * If the query cannot be embedded within {@code search.hybrid.embedding-budget}, the text ranking is
+     * returned on its own rather than failing the search; such a degraded result is not cached.
+     */
+    public Mono<List<SearchResultDto>> hybridSearch(String query, SearchOptions options) {
+        FusionStrategy strategy = options.fusion() == null ? defaultFusion : options.fusion();
+        VectorSearchMode vectorMode = options.mode() == null ? defaultVectorMode : options.mode();
+        AtomicBoolean textOnly = new AtomicBoolean();
+        Mono<List<SearchResultDto>> results = resultCache.get("hybrid", query, options.withDefaults(vectorMode, strategy),
+                () -> admission.admit("hybrid", hybrid(query, options, strategy, vectorMode)
+                        .doOnNext(ranked -> textOnly.set(ranked.textOnly()))
+                        .map(Ranked::results)),
+                () -> !textOnly.get());
+        return instrumentation.observe(REQUESTS, results, "operation", "hybrid", "mode", tag(vectorMode),
+                "fusion", tag(strategy));
+    }
+
+    /**
+     * Runs a search of the given type and counts the categories of every candidate it ranked: the
+     * full-text and vector candidate depths ({@code search.hybrid.text-depth} and
+     * {@code search.hybrid.vector-depth}) rather than just the returned page. Counts come from the
+     * in-memory category bitmaps, so faceting adds no Neo4j query.
+     */
+    public Mono<FacetedSearchResult> facetedSearch(SearchType type, String query, SearchOptions options) {
+        VectorSearchMode vectorMode = options.mode() == null ? defaultVectorMode : options.mode();
+        int limit = options.limit();
+        Mono<Ranked> ranked = switch (type) {
+            case TEXT -> textCandidates(query, Math.max(limit, textDepth), options).map(candidates -> new Ranked(
+                    candidates.size() > limit ? candidates.subList(0, limit) : candidates, ids(candidates, List.of()),
+                    false));
+            case EMBEDDING -> embed(query).flatMap(embedding -> {
+                if (embedding.length == 0) {
+                    return Mono.just(new Ranked(List.of(), List.of(), false));
+                }
+                return vectorMatches(embedding, Math.max(limit, vectorDepth), options.ef(), vectorMode, options)
+                        .flatMap(matches -> embeddingResults(matches.subList(0, Math.min(limit, matches.size())),
+                                options.fields())
+                                .map(results -> new Ranked(results, ids(List.of(), matches), false)));
+            });
+            case HYBRID -> hybrid(query, options, options.fusion() == null ? defaultFusion : options.fusion(), vectorMode);
+        };
+        Mono<FacetedSearchResult> results = ranked.map(found -> new FacetedSearchResult(found.results(),
+                instrumentation.observe(STAGE, () -> vectorIndex.facetCounts(found.candidateIds()), "stage", "facets")));
+        return instrumentation.observe(REQUESTS, admission.admit("faceted", results), "operation", "faceted",
+                "type", tag(type));
+    }
+
+    /**
+     * Products per category across the indexed corpus.
+     */
+    public Mono<Map<String, Integer>> categories() {
+        return Mono.fromCallable(vectorIndex::categoryCounts).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Type-ahead completions of a partial query from the in-memory title and category index. Neither
+     * Neo4j nor the embedding service is called, so once the corpus is loaded this runs on the caller's
+     * thread.
+     */
+    public Mono<List<Suggestion>> suggest(String prefix, int limit) {
+        Mono<List<Suggestion>> results = Mono.fromSupplier(() -> vectorIndex.suggest(prefix, limit, suggestMaxEdits));
+        return instrumentation.observe(REQUESTS,
+                vectorIndex.isLoaded() ? results : results.subscribeOn(Schedulers.boundedElastic()),
+                "operation", "suggest");
     }
 
-    public List<SearchResultDto> textSearch(String query, int limit) {
-        try (Session session = driver.session()) {
-            return session.readTransaction((TransactionWork<List<SearchResultDto>>) tx -> tx.run(
-                            "CALL db.index.fulltext.queryNodes('productTextIndex', $query) " +
-                                    "YIELD node, score RETURN node, score ORDER BY score DESC LIMIT $limit",
-                            Map.of("query", query, "limit", limit))
-                    .list(record -> buildTextResult(record.get("node").asNode(), record.get("score").asDouble())));
+    private Mono<Ranked> hybrid(String query, SearchOptions options, FusionStrategy strategy, VectorSearchMode vectorMode) {
+        int limit = options.limit();
+        Set<ProductField> fields = options.fields();
+        Mono<List<SearchResultDto>> textCandidates = textCandidates(query, Math.max(limit, textDepth), options);
+        Mono<VectorCandidates> vectorCandidates = embedOrFallBack(query).flatMap(embedding -> {
+            if (embedding.length == 0) {
+                return Mono.just(new VectorCandidates(embedding, List.of()));
+            }
+            return vectorMatches(embedding, Math.max(limit, vectorDepth), null, vectorMode, options)
+                    .map(matches -> new VectorCandidates(embedding, matches));
+        });
+        return Mono.zip(textCandidates, vectorCandidates)
+                .flatMap(candidates -> fuse(candidates.getT1(), candidates.getT2(), strategy, vectorMode, limit, fields)
+                        .map(results -> new Ranked(results, ids(candidates.getT1(), candidates.getT2().matches()),
+                                candidates.getT2().embedding() == NO_EMBEDDING)));
+    }
+
+    /**
+     * The query embedding, or {@link #NO_EMBEDDING} when the embedding service fails or does not answer
+     * within the hybrid budget, counted as {@code search.fallbacks} by reason.
+     */
+    private Mono<float[]> embedOrFallBack(String query) {
+        return embed(query)
+                .timeout(hybridEmbeddingBudget)
+                .onErrorResume(e -> {
+                    boolean timedOut = Exceptions.unwrap(e) instanceof TimeoutException;
+                    log.debug("hybrid search falling back to text only: {}", e.toString());
+                    instrumentation.counter("search.fallbacks", "operation", "hybrid",
+                            "reason", timedOut ? "timeout" : "error").increment();
+                    return Mono.just(NO_EMBEDDING);
+                });
+    }
+
+    private static List<String> ids(List<SearchResultDto> textCandidates, List<VectorMatch> vectorCandidates) {
+        Set<String> ids = new LinkedHashSet<>();
+        textCandidates.forEach(result -> ids.add(result.getProduct().getSourceId()));
+        vectorCandidates.forEach(match -> ids.add(match.sourceId()));
+        return List.copyOf(ids);
+    }
+
+    /**
+     * Runs many searches together. Every query that needs a vector is embedded in one multi-input call,
+     * and all of their vector candidates come from one blocked exact pass over the corpus. Results are
+     * emitted per query as they complete, tagged with the query's position in the batch; a failing
+     * query yields an error entry rather than ending the stream.
+     */
+    public Flux<BatchSearchResult> batchSearch(List<BatchQuery> queries) {
+        if (queries.isEmpty() || queries.size() > batchMaxQueries) {
+            return Flux.error(new IllegalArgumentException(
+                    "a batch must contain between 1 and " + batchMaxQueries + " queries"));
+        }
+        int[] slots = new int[queries.size()];
+        List<String> texts = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            BatchQuery query = queries.get(i);
+            slots[i] = -1;
+            if (query.type() != SearchType.TEXT) {
+                slots[i] = texts.size();
+                texts.add(query.query());
+                depth = Math.max(depth, vectorDepth(query));
+            }
         }
+        int scanDepth = depth;
+        Mono<List<VectorCandidates>> vectorCandidates = texts.isEmpty()
+                ? Mono.just(List.of())
+                : instrumentation.observe(STAGE, embeddingService.embedVectorsAsync(texts), "stage", "embed")
+                        .flatMap(embeddings -> instrumentation.observe(STAGE,
+                                Mono.fromCallable(() -> batchCandidates(embeddings, scanDepth))
+                                        .subscribeOn(Schedulers.boundedElastic()),
+                                "stage", "vector", "mode", "exact_batch"))
+                        .cache();
+        Flux<BatchSearchResult> results = Flux.range(0, queries.size()).flatMap(i -> {
+            BatchQuery query = queries.get(i);
+            SearchOptions options = query.options();
+            Mono<List<SearchResultDto>> hits = query.type() == SearchType.TEXT
+                    ? textCandidates(query.query(), options.limit(), options)
+                    : vectorCandidates.flatMap(candidates -> batchResults(query, candidates.get(slots[i])));
+            return hits
+                    .map(found -> BatchSearchResult.success(i, query.id(), found))
+                    .onErrorResume(e -> Mono.just(BatchSearchResult.failure(i, query.id(), String.valueOf(e.getMessage()))));
+        }, batchConcurrency);
+        return instrumentation.observe(REQUESTS, admission.admit("batch", results), "operation", "batch");
     }
 
-    public List<SearchResultDto> embeddingSearch(String query, int limit) {
-        List<Double> queryEmbedding = embeddingService.embed(query);
-        if (queryEmbedding.isEmpty()) {
-            return List.of();
+    private int vectorDepth(BatchQuery query) {
+        int limit = query.options().limit();
+        return query.type() == SearchType.HYBRID ? Math.max(limit, vectorDepth) : limit;
+    }
+
+    private List<VectorCandidates> batchCandidates(List<float[]> embeddings, int depth) {
+        List<List<ProductVectorIndex.Hit>> hits = vectorIndex.searchExactBatch(embeddings, depth);
+        List<VectorCandidates> candidates = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            List<VectorMatch> matches = hits.get(i).stream()
+                    .map(hit -> new VectorMatch(hit.sourceId(), hit.score(), null))
+                    .toList();
+            candidates.add(new VectorCandidates(embeddings.get(i), matches));
+        }
+        return candidates;
+    }
+
+    private Mono<List<SearchResultDto>> batchResults(BatchQuery query, VectorCandidates candidates) {
+        SearchOptions options = query.options();
+        // The shared pass ran at the deepest depth in the batch; trim to this query's own depth.
+        List<VectorMatch> matches = candidates.matches();
+        matches = matches.subList(0, Math.min(matches.size(), vectorDepth(query)));
+        if (query.type() == SearchType.EMBEDDING) {
+            return embeddingResults(matches, options.fields());
         }
-        try (Session session = driver.session()) {
-            return session.readTransaction((TransactionWork<List<SearchResultDto>>) tx -> tx.run(
-                            "MATCH (p:Product) WHERE p.embedding IS NOT NULL RETURN p",
-                            Map.of())
-                    .list(record -> buildVectorResult(record.get("p").asNode(), queryEmbedding)))
-                    .stream()
-                    .sorted(Comparator.comparingDouble(SearchResultDto::getVectorScore).reversed())
-                    .limit(limit)
-                    .collect(Collectors.toList());
+        FusionStrategy strategy = options.fusion() == null ? defaultFusion : options.fusion();
+        VectorCandidates trimmed = new VectorCandidates(candidates.embedding(), matches);
+        return textCandidates(query.query(), Math.max(options.limit(), textDepth), options)
+                .flatMap(text -> fuse(text, trimmed, strategy, VectorSearchMode.EXACT, options.limit(), options.fields()));
+    }
+
+    private Mono<List<SearchResultDto>> embeddingResults(List<VectorMatch> matches, Set<ProductField> fields) {
+        return withProducts(matches, Map.of(), fields).map(products -> {
+            List<SearchResultDto> results = new ArrayList<>(matches.size());
+            for (VectorMatch match : matches) {
+                ProductDto product = products.get(match.sourceId());
+                if (product != null) {
+                    results.add(new SearchResultDto(product, 0, match.score(), match.score()));
+                }
+            }
+            return results;
+        });
+    }
+
+    private Mono<List<SearchResultDto>> textCandidates(String query, int limit, SearchOptions options) {
+        Set<ProductField> fields = options.fields();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("query", query);
+        parameters.put("limit", limit);
+        String filter = "";
+        if (options.categories() != null) {
+            filter = CATEGORY_FILTER;
+            parameters.put("categories", List.copyOf(options.categories()));
         }
+        return read("text", TEXT_QUERY.formatted(filter, projection(fields)), parameters, record -> {
+            double textScore = record.get("score").asDouble();
+            return new SearchResultDto(ProductDto.fromProjection(record.asMap(), fields), textScore, 0, textScore);
+        });
     }
 
-    public List<SearchResultDto> hybridSearch(String query, int limit) {
-        List<Double> queryEmbedding = embeddingService.embed(query);
-        if (queryEmbedding.isEmpty()) {
-            return textSearch(query, limit);
+    private Mono<List<SearchResultDto>> fuse(List<SearchResultDto> textResults,
+                                             VectorCandidates vector,
+                                             FusionStrategy strategy,
+                                             VectorSearchMode mode,
+                                             int limit,
+                                             Set<ProductField> fields) {
+        if (vector.embedding().length == 0) {
+            return Mono.just(textResults.size() > limit ? textResults.subList(0, limit) : textResults);
+        }
+        Map<String, ProductDto> products = new HashMap<>();
+        List<HybridScorer.Candidate> textRanked = new ArrayList<>(textResults.size());
+        for (SearchResultDto result : textResults) {
+            products.put(result.getProduct().getSourceId(), result.getProduct());
+            textRanked.add(new HybridScorer.Candidate(result.getProduct().getSourceId(), result.getTextScore()));
         }
-        try (Session session = driver.session()) {
-            return session.readTransaction((TransactionWork<List<SearchResultDto>>) tx -> tx.run(
-                            "CALL db.index.fulltext.queryNodes('productTextIndex', $query) " +
-                                    "YIELD node, score RETURN node, score ORDER BY score DESC LIMIT $limit",
-                            Map.of("query", query, "limit", limit))
-                    .list(record -> buildHybridResult(record.get("node").asNode(), record.get("score").asDouble(), queryEmbedding)));
+        List<HybridScorer.Candidate> vectorRanked = vector.matches().stream()
+                .map(match -> new HybridScorer.Candidate(match.sourceId(), match.score()))
+                .toList();
+        List<HybridScorer.Fused> fused = instrumentation.observe(STAGE, () -> {
+            // Native mode deliberately avoids the in-memory index, so text-only candidates keep a zero vector score.
+            Map<String, Double> textOnlyVectorScores = Map.of();
+            if (mode != VectorSearchMode.NATIVE) {
+                Set<String> vectorIds = vectorRanked.stream().map(HybridScorer.Candidate::id).collect(Collectors.toSet());
+                List<String> textOnly = products.keySet().stream().filter(id -> !vectorIds.contains(id)).toList();
+                textOnlyVectorScores = vectorIndex.score(vector.embedding(), textOnly);
+            }
+            return HybridScorer.fuse(textRanked, vectorRanked, textOnlyVectorScores, strategy, rrfK, limit);
+        }, "stage", "fusion");
+        Set<String> fusedIds = fused.stream().map(HybridScorer.Fused::id).collect(Collectors.toSet());
+        List<VectorMatch> kept = vector.matches().stream().filter(match -> fusedIds.contains(match.sourceId())).toList();
+        return withProducts(kept, products, fields).map(allProducts -> {
+            List<SearchResultDto> results = new ArrayList<>(fused.size());
+            for (HybridScorer.Fused hit : fused) {
+                ProductDto product = allProducts.get(hit.id());
+                if (product != null) {
+                    results.add(new SearchResultDto(product, hit.textScore(), hit.vectorScore(), hit.combinedScore()));
+                }
+            }
+            return results;
+        });
+    }
+
+    private Mono<float[]> embed(String query) {
+        return instrumentation.observe(STAGE, embeddingService.embedVectorAsync(query), "stage", "embed");
+    }
+
+    private Mono<List<VectorMatch>> vectorMatches(float[] queryEmbedding, int limit, Integer ef,
+                                                  VectorSearchMode mode, SearchOptions options) {
+        VectorSearchMode effective = mode == null ? defaultVectorMode : mode;
+        // Neo4j's vector index can only filter its top-K afterwards, so filtered searches stay in memory.
+        if (effective == VectorSearchMode.NATIVE && options.categories() != null) {
+            effective = VectorSearchMode.HNSW;
         }
+        return instrumentation.observe(STAGE,
+                searchVectors(queryEmbedding, limit, ef, effective, options.fields(), options.categories()),
+                "stage", "vector", "mode", tag(effective));
     }
 
-    private SearchResultDto buildTextResult(Node node, double textScore) {
-        ProductDto product = ProductDto.fromNode(node.asMap());
-        return new SearchResultDto(product, textScore, 0, textScore);
+    private Mono<List<VectorMatch>> searchVectors(float[] queryEmbedding, int limit, Integer ef,
+                                                  VectorSearchMode effective, Set<ProductField> fields,
+                                                  Collection<String> categories) {
+        if (effective == VectorSearchMode.NATIVE) {
+            return nativeMatches(queryEmbedding, limit, fields)
+                    .onErrorResume(ClientException.class, e -> {
+                        log.warn("native vector query failed, falling back to the in-memory index: {}", e.getMessage());
+                        return inMemoryMatches(VectorSearchMode.HNSW,
+                                () -> vectorIndex.search(queryEmbedding, limit, ef, null));
+                    });
+        }
+        if (effective == VectorSearchMode.EXACT) {
+            return inMemoryMatches(effective, () -> vectorIndex.searchExact(queryEmbedding, limit, categories));
+        }
+        if (effective == VectorSearchMode.QUANTIZED) {
+            return inMemoryMatches(effective, () -> vectorIndex.searchQuantized(queryEmbedding, limit, ef, categories));
+        }
+        return inMemoryMatches(effective, () -> vectorIndex.search(queryEmbedding, limit, ef, categories));
     }
 
-    private SearchResultDto buildVectorResult(Node node, List<Double> queryEmbedding) {
-        ProductDto product = ProductDto.fromNode(node.asMap());
-        double vectorScore = VectorUtils.cosineSimilarity(nodeEmbedding(node), queryEmbedding);
-        return new SearchResultDto(product, 0, vectorScore, vectorScore);
+    private Mono<List<VectorMatch>> inMemoryMatches(VectorSearchMode mode, Supplier<List<ProductVectorIndex.Hit>> searcher) {
+        Mono<List<VectorMatch>> search = Mono.fromCallable(() -> searcher.get().stream()
+                .map(hit -> new VectorMatch(hit.sourceId(), hit.score(), null))
+                .toList());
+        // Loading the corpus, building the graph or waiting on the exact scan's pool blocks; keep that off
+        // the event loop.
+        boolean blocking = mode == VectorSearchMode.EXACT || !vectorIndex.isReady(mode);
+        return blocking ? search.subscribeOn(Schedulers.boundedElastic()) : search;
     }
 
-    private SearchResultDto buildHybridResult(Node node, double textScore, List<Double> queryEmbedding) {
-        ProductDto product = ProductDto.fromNode(node.asMap());
-        double vectorScore = VectorUtils.cosineSimilarity(nodeEmbedding(node), queryEmbedding);
-        double combined = textScore * 0.4 + vectorScore * 0.6;
-        return new SearchResultDto(product, textScore, vectorScore, combined);
+    private Mono<List<VectorMatch>> nativeMatches(float[] queryEmbedding, int limit, Set<ProductField> fields) {
+        String cypher = NATIVE_VECTOR_QUERY.formatted(projection(fields));
+        return read("native", cypher, Map.of("limit", limit, "embedding", queryEmbedding), record -> {
+            ProductDto product = ProductDto.fromProjection(record.asMap(), fields);
+            // Neo4j reports cosine similarity rescaled to [0, 1]; map it back so modes are comparable.
+            double cosine = 2 * record.get("score").asDouble() - 1;
+            return new VectorMatch(product.getSourceId(), cosine, product);
+        });
     }
 
-    private List<Double> nodeEmbedding(Node node) {
-        Value value = node.get("embedding");
-        if (value == null || value.isNull()) {
-            return List.of();
+    /**
+     * Completes {@code known} with the products carried by the matches, then with products from the
+     * mapped corpus snapshot, and fetches whatever is still missing from Neo4j by sourceId.
+     */
+    private Mono<Map<String, ProductDto>> withProducts(List<VectorMatch> matches,
+                                                       Map<String, ProductDto> known,
+                                                       Set<ProductField> fields) {
+        Map<String, ProductDto> products = new HashMap<>(known);
+        List<String> missing = new ArrayList<>();
+        for (VectorMatch match : matches) {
+            if (match.product() != null) {
+                products.put(match.sourceId(), match.product());
+            } else if (!products.containsKey(match.sourceId())) {
+                missing.add(match.sourceId());
+            }
         }
-        return value.asList(v -> v.asDouble());
+        if (!missing.isEmpty()) {
+            Map<String, ProductDto> mapped = instrumentation.observe(STAGE,
+                    () -> vectorIndex.products(missing, fields), "stage", "hydrate");
+            products.putAll(mapped);
+            missing.removeAll(mapped.keySet());
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(products);
+        }
+        return read("products", PRODUCTS_BY_ID_QUERY.formatted(projection(fields)),
+                Map.of("sourceIds", missing),
+                record -> ProductDto.fromProjection(record.asMap(), fields))
+                .map(fetched -> {
+                    fetched.forEach(product -> products.put(product.getSourceId(), product));
+                    return products;
+                });
+    }
+
+    /**
+     * Runs a read query as a {@code neo4j} stage tagged with {@code query}. The stage covers the round
+     * trip and the Bolt transfer; the time spent mapping records is also reported on its own as
+     * {@code search.mapping}, and the number of rows as {@code search.neo4j.rows}. Under a
+     * {@link Deadline} the transaction is given the time left as its server-side timeout, so the database
+     * stops working on a query nobody is waiting for.
+     */
+    private <T> Mono<List<T>> read(String query, String cypher, Map<String, Object> parameters, Function<Record, T> mapper) {
+        Mono<List<T>> rows = Mono.deferContextual(context -> {
+            TransactionConfig config = Deadline.from(context)
+                    .map(deadline -> TransactionConfig.builder()
+                            .withTimeout(maxDuration(deadline.remaining(), MIN_TRANSACTION_TIMEOUT))
+                            .build())
+                    .orElse(TransactionConfig.empty());
+            long[] mappingNanos = new long[1];
+            Function<Record, T> timedMapper = record -> {
+                long started = System.nanoTime();
+                try {
+                    return mapper.apply(record);
+                } finally {
+                    mappingNanos[0] += System.nanoTime() - started;
+                }
+            };
+            return Mono.usingWhen(
+                    Mono.fromSupplier(() -> driver.session(AsyncSession.class)),
+                    session -> Mono.fromCompletionStage(session.executeReadAsync(tx -> tx.runAsync(cypher, parameters)
+                            .thenCompose(cursor -> cursor.listAsync(timedMapper)), config)),
+                    session -> Mono.fromCompletionStage(session.closeAsync()))
+                    .doOnNext(list -> {
+                        instrumentation.timer("search.mapping", "query", query).record(mappingNanos[0], TimeUnit.NANOSECONDS);
+                        instrumentation.summary("search.neo4j.rows", "query", query).record(list.size());
+                    });
+        });
+        return instrumentation.observe(STAGE, rows, "stage", "neo4j", "query", query);
+    }
+
+    private static Duration maxDuration(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cypher return items for the requested fields of the {@code node} variable, keyed by property name.
+     */
+    static String projection(Set<ProductField> fields) {
+        return fields.stream()
+                .sorted()
+                .map(field -> "node." + field.property() + " AS " + field.property())
+                .collect(Collectors.joining(", "));
+    }
+
+    private record VectorMatch(String sourceId, double score, ProductDto product) {
+    }
+
+    private record VectorCandidates(float[] embedding, List<VectorMatch> matches) {
+    }
+
+    private record Ranked(List<SearchResultDto> results, List<String> candidateIds, boolean textOnly) {
     }
 }
@@ -0,0 +1,831 @@
+package net.desertrosedesigns.delta.search.service;
+
+import jakarta.annotation.PreDestroy;
+import net.desertrosedesigns.delta.search.index.CategoryIndex;
+import net.desertrosedesigns.delta.search.index.CorpusSnapshot;
+import net.desertrosedesigns.delta.search.index.DeltaSegment;
+import net.desertrosedesigns.delta.search.index.ExactVectorScan;
+import net.desertrosedesigns.delta.search.index.HnswIndex;
+import net.desertrosedesigns.delta.search.index.OrdinalBitmap;
+import net.desertrosedesigns.delta.search.index.Quantization;
+import net.desertrosedesigns.delta.search.index.QuantizedVectorStore;
+import net.desertrosedesigns.delta.search.index.SuggestionIndex;
+import net.desertrosedesigns.delta.search.index.VectorHit;
+import net.desertrosedesigns.delta.search.index.VectorSource;
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * Memory-resident vector corpus over the {@code embedding} property of every {@code Product} node, with
+ * an HNSW graph and a quantized code store over the same vectors, a {@link CategoryIndex} over their
+ * categories and a {@link SuggestionIndex} over their titles and category names. Every search can be
+ * restricted to products in any of a set of categories; the filter is applied while candidates are
+ * ranked, not to the top-K afterwards.
+ * <p>
+ * When {@link CorpusSnapshots} are enabled the corpus is the newest memory-mapped snapshot: exact
+ * scoring and product metadata are served from the mapped pages without a Neo4j round trip, and the
+ * graph and quantized codes read the vectors from those pages rather than copying them. Otherwise the
+ * corpus is loaded from Neo4j. Either way it is loaded lazily, replaced after each import or new
+ * snapshot generation, and swapped in as a whole, so searches never observe a half-built one. The
+ * graph and the codes are built on the first search that uses them, so a corpus served only by exact
+ * search never pays for either.
+ * <p>
+ * Between rebuilds, {@link ProductChangeFeed} layers products changed in Neo4j over the corpus as a
+ * {@link DeltaSegment}. Each batch of changes swaps in a new immutable segment, so searches read one
+ * segment and never wait on a writer. Suggestions are only rebuilt with the corpus.
+ */
+@Component
+public class ProductVectorIndex {
+
+    public static final String NATIVE_INDEX_NAME = "productEmbeddingIndex";
+
+    private static final Logger log = LoggerFactory.getLogger(ProductVectorIndex.class);
+
+    private final Driver driver;
+    private final CorpusSnapshots snapshots;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final Quantization quantization;
+    private final int rerankDepth;
+    private final int filterExactThreshold;
+    private final int suggestDepth;
+    private final ForkJoinPool scanPool;
+    private final ExactVectorScan exactScan;
+    private volatile Corpus corpus;
+
+    public ProductVectorIndex(Driver driver,
+                              CorpusSnapshots snapshots,
+                              @Value("${search.hnsw.m:16}") int m,
+                              @Value("${search.hnsw.ef-construction:200}") int efConstruction,
+                              @Value("${search.hnsw.ef-search:64}") int efSearch,
+                              @Value("${search.quantized.encoding:int8}") String quantization,
+                              @Value("${search.quantized.rerank-depth:100}") int rerankDepth,
+                              @Value("${search.exact.parallelism:0}") int exactParallelism,
+                              @Value("${search.exact.partition-size:4096}") int exactPartitionSize,
+                              @Value("${search.filter.exact-threshold:5000}") int filterExactThreshold,
+                              @Value("${search.suggest.depth:10}") int suggestDepth) {
+        this.driver = driver;
+        this.snapshots = snapshots;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.quantization = Quantization.parse(quantization);
+        this.rerankDepth = rerankDepth;
+        this.filterExactThreshold = filterExactThreshold;
+        this.suggestDepth = suggestDepth;
+        this.scanPool = new ForkJoinPool(exactParallelism > 0 ? exactParallelism : Runtime.getRuntime().availableProcessors());
+        this.exactScan = new ExactVectorScan(scanPool, exactPartitionSize);
+    }
+
+    /**
+     * Approximate top-K from the HNSW graph. A category filter matching at most
+     * {@code search.filter.exact-threshold} products is answered with an exact scan over just those
+     * products instead, which is both cheaper and exact at that size.
+     */
+    public List<Hit> search(float[] query, int limit, Integer ef, Collection<String> categories) {
+        Corpus current = current();
+        DeltaSegment delta = current.delta;
+        if (current.isEmpty() || query.length != current.dimension) {
+            return List.of();
+        }
+        OrdinalBitmap filter = current.filter(categories);
+        if (filter != null && filter.cardinality() <= filterExactThreshold) {
+            return exact(current, delta, query, limit, filter, categories);
+        }
+        int effectiveEf = ef == null || ef <= 0 ? efSearch : ef;
+        HnswIndex graph = current.graph();
+        List<VectorHit> hits;
+        if (filter == null && delta.retired().isEmpty()) {
+            hits = graph.search(query, limit, effectiveEf);
+        } else {
+            hits = graph.search(query, limit, effectiveEf,
+                    ordinal -> (filter == null || filter.contains(ordinal)) && !delta.isRetired(ordinal));
+        }
+        return toHits(current, delta, withDelta(current, delta, query, hits, limit, categories));
+    }
+
+    /**
+     * Scans the quantized codes for a shortlist of {@code rerankDepth} candidates (the configured depth
+     * when {@code null}) and re-ranks it with exact cosine.
+     */
+    public List<Hit> searchQuantized(float[] query, int limit, Integer rerankDepth, Collection<String> categories) {
+        Corpus current = current();
+        if (current.isEmpty() || query.length != current.dimension) {
+            return List.of();
+        }
+        DeltaSegment delta = current.delta;
+        int depth = rerankDepth == null || rerankDepth <= 0 ? this.rerankDepth : rerankDepth;
+        OrdinalBitmap filter = current.filter(categories);
+        // Retired codes are still in the store; fetch enough extra candidates to make up for them.
+        int retired = delta.retired().cardinality();
+        List<VectorHit> hits = live(delta, current.quantized().search(query, limit + retired, depth + retired,
+                filter == null ? null : filter.toArray()), limit);
+        return toHits(current, delta, withDelta(current, delta, query, hits, limit, categories));
+    }
+
+    /**
+     * Exact top-K by cosine over every vector, scanned in parallel partitions. Blocks the caller until
+     * the scan completes.
+     */
+    public List<Hit> searchExact(float[] query, int limit, Collection<String> categories) {
+        Corpus current = current();
+        if (current.isEmpty() || query.length != current.dimension) {
+            return List.of();
+        }
+        return exact(current, current.delta, query, limit, current.filter(categories), categories);
+    }
+
+    /**
+     * {@link #searchExact} for many queries in one blocked pass over the corpus. The result lists are
+     * aligned with {@code queries}; a query that is empty or has the wrong dimension gets no hits.
+     */
+    public List<List<Hit>> searchExactBatch(List<float[]> queries, int limit) {
+        Corpus current = current();
+        DeltaSegment delta = current.delta;
+        List<List<Hit>> results = new ArrayList<>(queries.size());
+        List<Integer> positions = new ArrayList<>();
+        List<float[]> valid = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(List.of());
+            float[] query = queries.get(i);
+            if (!current.isEmpty() && query != null && query.length == current.dimension) {
+                positions.add(i);
+                valid.add(VectorUtils.normalize(query));
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+        List<List<VectorHit>> hits = exactScan.searchBatch(current.sourceIds.size(), valid.toArray(float[][]::new),
+                limit + delta.retired().cardinality(), current::row);
+        for (int i = 0; i < positions.size(); i++) {
+            List<VectorHit> merged = withDelta(current, delta, valid.get(i), live(delta, hits.get(i), limit), limit, null);
+            results.set(positions.get(i), toHits(current, delta, merged));
+        }
+        return results;
+    }
+
+    /**
+     * Exact cosine similarity between the query and the indexed vectors of the given products. Products
+     * that are not indexed are left out of the result.
+     */
+    public Map<String, Double> score(float[] query, Collection<String> sourceIds) {
+        Corpus current = current();
+        if (current.isEmpty() || query.length != current.dimension) {
+            return Map.of();
+        }
+        DeltaSegment delta = current.delta;
+        float[] normalized = VectorUtils.normalize(query);
+        Map<String, Double> scores = new HashMap<>();
+        for (String sourceId : sourceIds) {
+            int ordinal = current.ordinal(delta, sourceId);
+            if (ordinal >= 0) {
+                scores.put(sourceId, (double) current.dot(delta, normalized, ordinal));
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Products per category among the given ids, most frequent first, counted by intersecting their
+     * ordinals with each category bitmap. Ids that are not indexed are not counted.
+     */
+    public Map<String, Integer> facetCounts(Collection<String> sourceIds) {
+        Corpus current = current();
+        DeltaSegment delta = current.delta;
+        int base = current.sourceIds.size();
+        int[] ordinals = sourceIds.stream()
+                .mapToInt(sourceId -> current.ordinal(delta, sourceId))
+                .filter(ordinal -> ordinal >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+        int split = 0;
+        while (split < ordinals.length && ordinals[split] < base) {
+            split++;
+        }
+        Map<String, Integer> counts = current.categories.counts(OrdinalBitmap.of(Arrays.copyOf(ordinals, split)));
+        if (split == ordinals.length) {
+            return counts;
+        }
+        List<List<String>> changed = new ArrayList<>(ordinals.length - split);
+        for (int i = split; i < ordinals.length; i++) {
+            changed.add(delta.categories(ordinals[i] - base));
+        }
+        return adjustCounts(counts, Map.of(), changed);
+    }
+
+    /**
+     * Type-ahead completions of {@code prefix} from titles and category names; see
+     * {@link SuggestionIndex#suggest}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit, int maxEdits) {
+        return current().suggestions.suggest(prefix, limit, maxEdits);
+    }
+
+    /**
+     * Products per category across the whole corpus, most frequent first.
+     */
+    public Map<String, Integer> categoryCounts() {
+        Corpus current = current();
+        DeltaSegment delta = current.delta;
+        Map<String, Integer> counts = current.categories.counts(null);
+        if (delta.isEmpty()) {
+            return counts;
+        }
+        List<List<String>> changed = new ArrayList<>(delta.size());
+        for (int i = 0; i < delta.size(); i++) {
+            changed.add(delta.categories(i));
+        }
+        return adjustCounts(counts, current.categories.counts(delta.retired()), changed);
+    }
+
+    /**
+     * Product metadata for the given ids, read from the mapped snapshot. Returns an empty map when the
+     * corpus came from Neo4j, and leaves out ids the snapshot does not contain or that changed since.
+     */
+    public Map<String, ProductDto> products(Collection<String> sourceIds, Set<ProductField> fields) {
+        Corpus current = corpus;
+        if (current == null || current.mapped == null) {
+            return Map.of();
+        }
+        DeltaSegment delta = current.delta;
+        Map<String, ProductDto> products = new HashMap<>();
+        for (String sourceId : sourceIds) {
+            Integer ordinal = current.ordinals.get(sourceId);
+            if (ordinal != null && !delta.isRetired(ordinal)) {
+                products.put(sourceId, current.mapped.product(ordinal, fields));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Whether a search in {@code mode} can run without loading the corpus or building the graph or the
+     * quantized codes first.
+     */
+    public boolean isReady(VectorSearchMode mode) {
+        Corpus current = corpus;
+        if (current == null) {
+            return false;
+        }
+        return switch (mode) {
+            case HNSW -> current.isGraphBuilt();
+            case QUANTIZED -> current.isQuantized();
+            default -> true;
+        };
+    }
+
+    /**
+     * Whether the corpus is in memory, so serving from it cannot block on loading it.
+     */
+    public boolean isLoaded() {
+        return corpus != null;
+    }
+
+    /**
+     * The snapshot generation the served corpus is at least as new as: the mapped generation, or for a
+     * corpus loaded from Neo4j the newest generation on disk when it was loaded. {@code 0} before the
+     * corpus is loaded or when there are no snapshots.
+     */
+    public long generation() {
+        Corpus current = corpus;
+        return current == null ? 0 : current.generation;
+    }
+
+    /**
+     * Neo4j time, in epoch milliseconds, up to which changes are reflected in the corpus, or {@code -1}
+     * before it is loaded.
+     */
+    public long watermark() {
+        Corpus current = corpus;
+        return current == null ? -1 : current.watermark;
+    }
+
+    /**
+     * The watermark the corpus was loaded at, before any change was layered over it, or {@code -1} before
+     * it is loaded. Every change stamped up to it is already part of the corpus.
+     */
+    public long loadWatermark() {
+        Corpus current = corpus;
+        return current == null ? -1 : current.loadWatermark;
+    }
+
+    /**
+     * Products held in the delta segment over the current corpus.
+     */
+    public int deltaSize() {
+        Corpus current = corpus;
+        return current == null ? 0 : current.delta.size();
+    }
+
+    /**
+     * Whether the loaded corpus has no products to layer changes over.
+     */
+    public boolean isEmpty() {
+        Corpus current = corpus;
+        return current != null && current.isEmpty();
+    }
+
+    /**
+     * The changes {@link #apply} would layer over the served corpus: the newest change per product, unless
+     * the delta already applied it or a newer one, or the product has no change applied yet and the corpus
+     * holds it in the same state. The change feed reads an overlap before its watermark, so it sees most
+     * changes more than once, including ones that were already in Neo4j when the corpus was loaded.
+     */
+    public List<DeltaSegment.Change> pending(List<DeltaSegment.Change> changes) {
+        Corpus current = corpus;
+        return current == null ? List.of() : current.pending(current.delta, changes);
+    }
+
+    /**
+     * Layers {@code changes}, read from Neo4j as of {@code watermark}, over the corpus. They are only
+     * applied if the corpus is still at {@code since}, the watermark they were read after; otherwise the
+     * corpus was replaced or already moved on, and the caller should read again from the new watermark.
+     * Changes that are not {@link #pending} are skipped. An upsert whose embedding does not match the
+     * corpus dimension is treated as a delete, as a full load would skip it.
+     *
+     * @return the changes that were newer than the state already served, as applied
+     */
+    public synchronized List<DeltaSegment.Change> apply(long since, List<DeltaSegment.Change> changes, long watermark) {
+        Corpus current = corpus;
+        if (current == null || current.watermark != since) {
+            return List.of();
+        }
+        DeltaSegment previous = current.delta;
+        List<DeltaSegment.Change> indexable = new ArrayList<>(changes.size());
+        for (DeltaSegment.Change change : current.pending(previous, changes)) {
+            if (!change.deleted() && change.vector().length != current.dimension) {
+                log.warn("skipping changed product {} with embedding dimension {}", change.sourceId(),
+                        change.vector().length);
+                indexable.add(DeltaSegment.Change.delete(change.sourceId(), change.version()));
+            } else {
+                indexable.add(change);
+            }
+        }
+        DeltaSegment next = previous.apply(indexable, sourceId -> current.ordinals.getOrDefault(sourceId, -1));
+        // The segment is published before the watermark moves, so a reader of the watermark never skips it.
+        current.delta = next;
+        current.watermark = Math.max(since, watermark);
+        List<DeltaSegment.Change> applied = new ArrayList<>();
+        Set<String> counted = new HashSet<>();
+        for (DeltaSegment.Change change : indexable) {
+            long version = change.version();
+            if (previous.version(change.sourceId()) < version && next.version(change.sourceId()) == version
+                    && counted.add(change.sourceId())) {
+                applied.add(change);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Replaces the corpus after an import. With snapshots enabled this publishes a new generation and
+     * maps it; if publishing fails the corpus is loaded from Neo4j instead, so a stale generation is
+     * never served.
+     */
+    public synchronized void rebuild() {
+        Corpus next = null;
+        if (snapshots.isEnabled()) {
+            try {
+                next = snapshots.publish()
+                        .flatMap(generation -> snapshots.openNewerThan(generation - 1))
+                        .map(this::fromSnapshot)
+                        .orElse(null);
+            } catch (RuntimeException e) {
+                log.warn("could not publish a corpus snapshot, loading vectors from Neo4j", e);
+            }
+        }
+        if (next == null) {
+            next = fromNeo4j();
+        }
+        corpus = next;
+    }
+
+    /**
+     * Picks up a snapshot generation newer than the one being served. A corpus loaded from Neo4j after a
+     * failed publish is not replaced by the older generations still on disk. The swap is a single volatile
+     * write, so in-flight searches finish against the generation they started on.
+     */
+    @Scheduled(fixedDelayString = "${search.snapshot.poll-interval:PT30S}")
+    public void refresh() {
+        if (!snapshots.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            snapshots.openNewerThan(generation()).map(this::fromSnapshot).ifPresent(next -> corpus = next);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scanPool.shutdown();
+    }
+
+    private List<Hit> exact(Corpus current, DeltaSegment delta, float[] query, int limit, OrdinalBitmap filter,
+                            Collection<String> categories) {
+        float[] normalized = VectorUtils.normalize(query);
+        ExactVectorScan.Scorer scorer = delta.retired().isEmpty()
+                ? ordinal -> current.dot(normalized, ordinal)
+                // A retired row can only be kept while the heap has room, and is dropped below.
+                : ordinal -> delta.isRetired(ordinal) ? Float.NEGATIVE_INFINITY : current.dot(normalized, ordinal);
+        List<VectorHit> hits = filter == null
+                ? exactScan.search(current.sourceIds.size(), limit, scorer)
+                : exactScan.search(filter.toArray(), limit, scorer);
+        return toHits(current, delta, withDelta(current, delta, normalized, live(delta, hits, limit), limit, categories));
+    }
+
+    /**
+     * Base hits without retired ordinals, at most {@code limit} of them.
+     */
+    private static List<VectorHit> live(DeltaSegment delta, List<VectorHit> hits, int limit) {
+        if (delta.retired().isEmpty()) {
+            return hits.size() > limit ? hits.subList(0, limit) : hits;
+        }
+        List<VectorHit> live = new ArrayList<>(Math.min(limit, hits.size()));
+        for (VectorHit hit : hits) {
+            if (live.size() == limit) {
+                break;
+            }
+            if (!delta.isRetired(hit.ordinal())) {
+                live.add(hit);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Merges the best {@code limit} products of the delta segment in {@code categories} into base hits.
+     * Delta hits take ordinals after the base ones.
+     */
+    private static List<VectorHit> withDelta(Corpus current, DeltaSegment delta, float[] query, List<VectorHit> hits,
+                                             int limit, Collection<String> categories) {
+        if (delta.size() == 0) {
+            return hits;
+        }
+        IntPredicate accept = categories == null || categories.isEmpty()
+                ? position -> true
+                : position -> delta.inAny(position, categories);
+        List<VectorHit> changed = delta.search(VectorUtils.normalize(query), limit, accept);
+        if (changed.isEmpty()) {
+            return hits;
+        }
+        int base = current.sourceIds.size();
+        List<VectorHit> merged = new ArrayList<>(hits.size() + changed.size());
+        merged.addAll(hits);
+        changed.forEach(hit -> merged.add(new VectorHit(base + hit.ordinal(), hit.score())));
+        merged.sort(Comparator.comparingDouble(VectorHit::score).reversed());
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private static List<Hit> toHits(Corpus corpus, DeltaSegment delta, List<VectorHit> hits) {
+        List<Hit> results = new ArrayList<>(hits.size());
+        for (VectorHit hit : hits) {
+            results.add(new Hit(corpus.sourceId(delta, hit.ordinal()), hit.score()));
+        }
+        return results;
+    }
+
+    /**
+     * {@code counts} less {@code removed}, plus one per category of each product in {@code added}. Categories
+     * match case-insensitively and keep the corpus spelling; the order is that of
+     * {@link CategoryIndex#counts}.
+     */
+    static Map<String, Integer> adjustCounts(Map<String, Integer> counts, Map<String, Integer> removed,
+                                             List<List<String>> added) {
+        Map<String, String> labels = new HashMap<>();
+        Map<String, Integer> adjusted = new HashMap<>();
+        counts.forEach((label, count) -> {
+            labels.putIfAbsent(CategoryIndex.normalize(label), label);
+            adjusted.merge(CategoryIndex.normalize(label), count, Integer::sum);
+        });
+        removed.forEach((label, count) -> adjusted.merge(CategoryIndex.normalize(label), -count, Integer::sum));
+        for (List<String> categories : added) {
+            for (String category : categories) {
+                String key = CategoryIndex.normalize(category);
+                labels.putIfAbsent(key, category);
+                adjusted.merge(key, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        adjusted.forEach((key, count) -> {
+            if (count > 0) {
+                entries.add(Map.entry(labels.get(key), count));
+            }
+        });
+        entries.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        entries.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+
+    private Corpus current() {
+        Corpus current = corpus;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (corpus == null) {
+                corpus = load();
+            }
+            return corpus;
+        }
+    }
+
+    private Corpus load() {
+        if (snapshots.isEnabled()) {
+            Corpus mapped = snapshots.openNewerThan(0).map(this::fromSnapshot).orElse(null);
+            if (mapped != null) {
+                return mapped;
+            }
+        }
+        return fromNeo4j();
+    }
+
+    private Corpus fromSnapshot(CorpusSnapshot snapshot) {
+        long started = System.nanoTime();
+        List<String> sourceIds = snapshot.sourceIds();
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < sourceIds.size(); i++) {
+            ordinals.put(sourceIds.get(i), i);
+        }
+        CategoryIndex.Builder categories = new CategoryIndex.Builder();
+        SuggestionIndex.Builder suggestions = new SuggestionIndex.Builder(suggestDepth);
+        for (int i = 0; i < sourceIds.size(); i++) {
+            categories.add(i, snapshot.categories(i));
+            suggestions.addTitle(snapshot.title(i));
+        }
+        CategoryIndex categoryIndex = categories.build();
+        SuggestionIndex suggestionIndex = suggest(suggestions, categoryIndex);
+        log.info("mapped corpus snapshot generation {} with {} products, {} categories and {} suggestions from {} in {} ms",
+                snapshot.generation(), sourceIds.size(), categoryIndex.size(), suggestionIndex.size(), snapshot.path(),
+                (System.nanoTime() - started) / 1_000_000);
+        return new Corpus(sourceIds, ordinals, snapshot.dimension(), snapshot, snapshot, categoryIndex,
+                suggestionIndex, snapshot.generation(), snapshot.watermark());
+    }
+
+    private Corpus fromNeo4j() {
+        long started = System.nanoTime();
+        List<Row> rows = new ArrayList<>();
+        // Read before the scan: a generation published while it runs may be newer than what it reads.
+        long generation = snapshots.latestGeneration();
+        long watermark;
+        try (Session session = driver.session()) {
+            // Changes stamped after this time are picked up by the change feed, whether or not the scan saw them.
+            watermark = session.readTransaction(tx -> {
+                long now = tx.run("RETURN timestamp() AS now").single().get("now").asLong();
+                tx.run("MATCH (p:Product) WHERE p.embedding IS NOT NULL " +
+                                "RETURN p.sourceId AS sourceId, p.embedding AS embedding, p.title AS title, " +
+                                "p.categories AS categories",
+                        Map.of())
+                        .forEachRemaining(record -> {
+                            try {
+                                rows.add(Row.of(record));
+                            } catch (RuntimeException e) {
+                                log.warn("skipping product {} with an unreadable embedding: {}",
+                                        record.get("sourceId").asString(""), e.getMessage());
+                            }
+                        });
+                return now;
+            });
+        }
+        // The first non-empty embedding sets the dimension; rows that disagree with it are skipped below.
+        int dimension = rows.stream().mapToInt(row -> row.vector().length).filter(length -> length > 0)
+                .findFirst().orElse(0);
+        if (dimension == 0) {
+            return new Corpus(List.of(), Map.of(), 0, null, null, CategoryIndex.EMPTY, SuggestionIndex.EMPTY,
+                    generation, watermark);
+        }
+        List<float[]> vectors = new ArrayList<>(rows.size());
+        List<String> indexedIds = new ArrayList<>(rows.size());
+        Map<String, Integer> ordinals = new HashMap<>();
+        CategoryIndex.Builder categories = new CategoryIndex.Builder();
+        SuggestionIndex.Builder suggestions = new SuggestionIndex.Builder(suggestDepth);
+        for (Row row : rows) {
+            if (row.vector().length != dimension) {
+                log.warn("skipping product {} with embedding dimension {}", row.sourceId(), row.vector().length);
+                continue;
+            }
+            int ordinal = vectors.size();
+            vectors.add(VectorUtils.normalize(row.vector()));
+            categories.add(ordinal, row.categories());
+            suggestions.addTitle(row.title());
+            ordinals.put(row.sourceId(), ordinal);
+            indexedIds.add(row.sourceId());
+        }
+        CategoryIndex categoryIndex = categories.build();
+        SuggestionIndex suggestionIndex = suggest(suggestions, categoryIndex);
+        log.info("loaded {} vectors, {} category bitmaps ({} KiB) and {} suggestions ({} KiB) from Neo4j in {} ms",
+                vectors.size(), categoryIndex.size(), categoryIndex.sizeInBytes() / 1024, suggestionIndex.size(),
+                suggestionIndex.sizeInBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+        return new Corpus(indexedIds, ordinals, dimension,
+                VectorSource.onHeap(vectors.toArray(float[][]::new), dimension), null, categoryIndex,
+                suggestionIndex, generation, watermark);
+    }
+
+    private static SuggestionIndex suggest(SuggestionIndex.Builder suggestions, CategoryIndex categories) {
+        categories.counts(null).forEach(suggestions::addCategory);
+        return suggestions.build();
+    }
+
+    private record Row(String sourceId, float[] vector, String title, List<String> categories) {
+
+        static Row of(Record record) {
+            org.neo4j.driver.Value categories = record.get("categories");
+            return new Row(record.get("sourceId").asString(""), toVector(record.get("embedding")),
+                    record.get("title").asString(""),
+                    categories.isNull() ? List.of() : categories.asList(org.neo4j.driver.Value::asString));
+        }
+    }
+
+    static float[] toVector(org.neo4j.driver.Value embedding) {
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i).asFloat();
+        }
+        return vector;
+    }
+
+    public record Hit(String sourceId, double score) {
+    }
+
+    /**
+     * One generation of the corpus. Vectors live either on the heap (loaded from Neo4j) or in the mapped
+     * snapshot; the graph and the quantized codes are built over them on first use and read them in
+     * place. Ordinals from {@code sourceIds.size()} on address products of the delta segment.
+     */
+    private final class Corpus {
+        private final List<String> sourceIds;
+        private final Map<String, Integer> ordinals;
+        private final int dimension;
+        private final VectorSource vectors;
+        private final CorpusSnapshot mapped;
+        private final CategoryIndex categories;
+        private final SuggestionIndex suggestions;
+        private final long generation;
+        private final long loadWatermark;
+        private volatile HnswIndex graph;
+        private volatile QuantizedVectorStore quantized;
+        private volatile DeltaSegment delta = DeltaSegment.EMPTY;
+        private volatile long watermark;
+
+        private Corpus(List<String> sourceIds, Map<String, Integer> ordinals, int dimension, VectorSource vectors,
+                       CorpusSnapshot mapped, CategoryIndex categories, SuggestionIndex suggestions, long generation,
+                       long watermark) {
+            this.sourceIds = sourceIds;
+            this.ordinals = ordinals;
+            this.dimension = dimension;
+            this.vectors = vectors;
+            this.mapped = mapped;
+            this.categories = categories;
+            this.suggestions = suggestions;
+            this.generation = generation;
+            this.loadWatermark = watermark;
+            this.watermark = watermark;
+        }
+
+        /**
+         * Ordinals in any of {@code selected}, or {@code null} when there is no filter.
+         */
+        private OrdinalBitmap filter(Collection<String> selected) {
+            return selected == null || selected.isEmpty() ? null : categories.anyOf(selected);
+        }
+
+        private boolean isEmpty() {
+            return sourceIds.isEmpty();
+        }
+
+        private boolean isGraphBuilt() {
+            return isEmpty() || graph != null;
+        }
+
+        private boolean isQuantized() {
+            return isEmpty() || quantized != null;
+        }
+
+        private float dot(float[] unitQuery, int ordinal) {
+            return vectors.dot(unitQuery, ordinal);
+        }
+
+        private List<DeltaSegment.Change> pending(DeltaSegment delta, List<DeltaSegment.Change> changes) {
+            Map<String, DeltaSegment.Change> newest = new LinkedHashMap<>();
+            for (DeltaSegment.Change change : changes) {
+                newest.merge(change.sourceId(), change, (seen, next) -> next.version() > seen.version() ? next : seen);
+            }
+            List<DeltaSegment.Change> pending = new ArrayList<>(newest.size());
+            for (DeltaSegment.Change change : newest.values()) {
+                long applied = delta.version(change.sourceId());
+                if (applied >= 0 ? change.version() > applied : !holds(change)) {
+                    pending.add(change);
+                }
+            }
+            return pending;
+        }
+
+        /**
+         * Whether the corpus, as loaded, already holds the product in the state {@code change} leaves it.
+         */
+        private boolean holds(DeltaSegment.Change change) {
+            Integer ordinal = ordinals.get(change.sourceId());
+            if (change.deleted() || ordinal == null) {
+                return change.deleted() && ordinal == null;
+            }
+            if (change.vector().length != dimension) {
+                return false;
+            }
+            float[] unit = VectorUtils.normalize(change.vector());
+            float[] stored = vectors.row(ordinal, new float[dimension]);
+            for (int i = 0; i < dimension; i++) {
+                // Snapshots may be written by another instance, whose normalization can round differently.
+                if (Math.abs(unit[i] - stored[i]) > 1e-6f) {
+                    return false;
+                }
+            }
+            return categories.hasExactly(ordinal, change.categories());
+        }
+
+        /**
+         * The ordinal serving {@code sourceId} with {@code delta} layered over the corpus, or {@code -1}.
+         */
+        private int ordinal(DeltaSegment delta, String sourceId) {
+            int position = delta.position(sourceId);
+            if (position >= 0) {
+                return sourceIds.size() + position;
+            }
+            Integer ordinal = ordinals.get(sourceId);
+            return ordinal == null || delta.isRetired(ordinal) ? -1 : ordinal;
+        }
+
+        private String sourceId(DeltaSegment delta, int ordinal) {
+            return ordinal < sourceIds.size() ? sourceIds.get(ordinal) : delta.sourceId(ordinal - sourceIds.size());
+        }
+
+        private float dot(DeltaSegment delta, float[] unitQuery, int ordinal) {
+            return ordinal < sourceIds.size()
+                    ? dot(unitQuery, ordinal)
+                    : VectorUtils.dot(unitQuery, delta.vector(ordinal - sourceIds.size()));
+        }
+
+        private float[] row(int ordinal, float[] scratch) {
+            return vectors.row(ordinal, scratch);
+        }
+
+        private HnswIndex graph() {
+            HnswIndex built = graph;
+            if (built != null || isEmpty()) {
+                return built;
+            }
+            synchronized (this) {
+                if (graph == null) {
+                    long started = System.nanoTime();
+                    graph = HnswIndex.build(vectors, m, efConstruction);
+                    log.info("built HNSW index over {} products of generation {} in {} ms", sourceIds.size(),
+                            generation, (System.nanoTime() - started) / 1_000_000);
+                }
+                return graph;
+            }
+        }
+
+        private QuantizedVectorStore quantized() {
+            QuantizedVectorStore built = quantized;
+            if (built != null || isEmpty()) {
+                return built;
+            }
+            synchronized (this) {
+                if (quantized == null) {
+                    long started = System.nanoTime();
+                    quantized = QuantizedVectorStore.encode(quantization, vectors);
+                    log.info("encoded {} {} codes ({} KiB) for generation {} in {} ms", sourceIds.size(),
+                            quantization, quantized.codeBytes() / 1024, generation,
+                            (System.nanoTime() - started) / 1_000_000);
+                }
+                return quantized;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.desertrosedesigns.delta.search.service;
+
+import net.desertrosedesigns.delta.search.index.CategoryIndex;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Per-request search settings. {@code null} values fall back to the configured defaults, and
+ * {@code fields} selects the product properties that are read from Neo4j and returned.
+ * {@code categories} restricts results to products in any of them, matched case-insensitively;
+ * {@code null} or empty means no filter.
+ */
+public record SearchOptions(int limit, Integer ef, VectorSearchMode mode, FusionStrategy fusion, Set<ProductField> fields,
+                            Set<String> categories) {
+
+    public SearchOptions {
+        EnumSet<ProductField> selected = fields == null || fields.isEmpty()
+                ? EnumSet.allOf(ProductField.class)
+                : EnumSet.copyOf(fields);
+        // Results are keyed and deduplicated by sourceId, so it is always read.
+        selected.add(ProductField.SOURCE_ID);
+        fields = Collections.unmodifiableSet(selected);
+        Set<String> normalized = new LinkedHashSet<>();
+        if (categories != null) {
+            for (String category : categories) {
+                String key = CategoryIndex.normalize(category);
+                if (key != null) {
+                    normalized.add(key);
+                }
+            }
+        }
+        categories = normalized.isEmpty() ? null : Collections.unmodifiableSet(normalized);
+    }
+
+    public SearchOptions(int limit, Integer ef, VectorSearchMode mode, FusionStrategy fusion, Set<ProductField> fields) {
+        this(limit, ef, mode, fusion, fields, null);
+    }
+
+    /**
+     * These options with the mode and fusion a search resolved, so requests that spell out a default
+     * and requests that leave it out compare equal.
+     */
+    public SearchOptions withDefaults(VectorSearchMode defaultMode, FusionStrategy defaultFusion) {
+        return new SearchOptions(limit, ef, mode == null ? defaultMode : mode, fusion == null ? defaultFusion : fusion,
+                fields, categories);
+    }
+
+    public static SearchOptions of(int limit) {
+        return new SearchOptions(limit, null, null, null, ProductField.ALL);
+    }
+}
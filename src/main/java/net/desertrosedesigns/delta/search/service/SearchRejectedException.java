@@ -0,0 +1,11 @@
+package net.desertrosedesigns.delta.search.service;
+
+/**
+ * Thrown when a search is shed because its operation is already running at its concurrency limit.
+ */
+public class SearchRejectedException extends IllegalStateException {
+
+    public SearchRejectedException(String message) {
+        super(message);
+    }
+}
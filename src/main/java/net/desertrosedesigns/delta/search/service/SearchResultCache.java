@@ -0,0 +1,224 @@
+package net.desertrosedesigns.delta.search.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.SearchResultDto;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Search results by normalized query and options, bounded by an estimate of their heap footprint.
+ * Concurrent misses for the same key share one search.
+ * <p>
+ * Entries belong to a catalog generation, a counter stored in Neo4j that an import advances once it has
+ * changed products. The instance that ran the import drops its entries at once; every other instance
+ * polls the counter every {@code search.result-cache.generation-poll-interval} and drops them when it
+ * moves, so all instances stop serving pre-import results. Changes the {@link ProductChangeFeed} layers
+ * over this instance's corpus drop its entries through {@link #invalidate()} instead, without touching
+ * the shared generation.
+ * <p>
+ * A shared search belongs to no single caller. It runs under its own {@code search.deadline} with none
+ * of the first caller's context, such as a shorter client deadline or its trace. Each caller stops
+ * waiting at its own deadline instead.
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+    private static final String READ_GENERATION = "MATCH (c:CatalogGeneration {id: $id}) RETURN c.value AS generation";
+    private static final String ADVANCE_GENERATION = "MERGE (c:CatalogGeneration {id: $id}) " +
+            "SET c.value = coalesce(c.value, 0) + 1 RETURN c.value AS generation";
+    private static final String CATALOG = "products";
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int RESULT_OVERHEAD_BYTES = 96;
+
+    private final Driver driver;
+    private final boolean enabled;
+    private final Duration deadline;
+    private final AsyncCache<Key, List<SearchResultDto>> cache;
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile long generation = -1;
+
+    public SearchResultCache(Driver driver,
+                             @Value("${search.result-cache.enabled:true}") boolean enabled,
+                             @Value("${search.result-cache.max-weight-bytes:33554432}") long maxWeightBytes,
+                             @Value("${search.deadline:PT5S}") Duration deadline) {
+        this.driver = driver;
+        this.enabled = enabled;
+        this.deadline = deadline;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, List<SearchResultDto> results) -> (int) Math.min(Integer.MAX_VALUE,
+                        weightOf(key, results)))
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * The cached results for {@code options} of an {@code operation} on {@code query}, running
+     * {@code search} on a miss. A search that fails is not cached. A caller that cancels, or whose
+     * deadline passes first, does not cancel a search other callers are waiting on.
+     */
+    public Mono<List<SearchResultDto>> get(String operation, String query, SearchOptions options,
+                                           Supplier<Mono<List<SearchResultDto>>> search) {
+        return get(operation, query, options, search, () -> true);
+    }
+
+    /**
+     * As {@link #get(String, String, SearchOptions, Supplier)}, but a result for which {@code cacheable}
+     * answers false once the search has completed, such as a degraded fallback, is handed to the callers
+     * waiting on it and then dropped rather than served to later ones.
+     */
+    public Mono<List<SearchResultDto>> get(String operation, String query, SearchOptions options,
+                                           Supplier<Mono<List<SearchResultDto>>> search,
+                                           BooleanSupplier cacheable) {
+        if (!enabled) {
+            return search.get();
+        }
+        Key key = new Key(generation, epoch.get(), operation, EmbeddingCache.normalizeKey(query), options);
+        return Mono.deferContextual(context -> Mono.fromFuture(cache.get(key, (k, executor) -> {
+            CompletableFuture<List<SearchResultDto>> future = search.get()
+                    .contextWrite(shared -> Deadline.within(shared, Deadline.after(deadline)))
+                    .toFuture();
+            future.thenRunAsync(() -> {
+                if (!cacheable.getAsBoolean()) {
+                    cache.asMap().remove(k, future);
+                }
+            }, executor);
+            return future;
+        }), true).timeout(Deadline.cap(context, deadline)));
+    }
+
+    /**
+     * Advances the catalog generation in Neo4j after an import changed products, and drops this
+     * instance's entries straight away.
+     */
+    public void advanceGeneration() {
+        try (Session session = driver.session()) {
+            long advanced = session.writeTransaction(tx -> tx.run(ADVANCE_GENERATION, Map.of("id", CATALOG))
+                    .single().get("generation").asLong());
+            onGeneration(advanced);
+        } catch (RuntimeException e) {
+            log.warn("could not advance the catalog generation; other instances keep cached results until it moves",
+                    e);
+            cache.synchronous().invalidateAll();
+        }
+    }
+
+    /**
+     * Drops this instance's entries after its corpus changed in place. Keys carry the epoch this
+     * advances, so a search that started before the change cannot be served after it.
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Picks up a generation advanced by an import on any instance.
+     */
+    @Scheduled(fixedDelayString = "${search.result-cache.generation-poll-interval:PT5S}")
+    public void pollGeneration() {
+        if (!enabled) {
+            return;
+        }
+        try (Session session = driver.session()) {
+            long current = session.readTransaction(tx -> tx.run(READ_GENERATION, Map.of("id", CATALOG)).list())
+                    .stream()
+                    .findFirst()
+                    .map(record -> record.get("generation").asLong(0))
+                    .orElse(0L);
+            onGeneration(current);
+        } catch (RuntimeException e) {
+            log.debug("could not read the catalog generation", e);
+        }
+    }
+
+    /**
+     * Switches to {@code current} when it differs from the generation being served. Keys carry their
+     * generation, so a search that started before the switch cannot be served after it.
+     */
+    void onGeneration(long current) {
+        if (current != generation) {
+            log.debug("catalog generation {} -> {}, dropping {} cached results", generation, current,
+                    cache.synchronous().estimatedSize());
+            generation = current;
+            cache.synchronous().invalidateAll();
+        }
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Publishes Caffeine's {@code cache.gets}, {@code cache.evictions} and {@code cache.size} meters
+     * tagged {@code cache=search.results}, plus the hit ratio and the weighted size in bytes.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "search.results");
+        Gauge.builder("search.result-cache.hit.ratio", this, self -> self.stats().hitRate()).register(registry);
+        Gauge.builder("search.result-cache.weight", this, self -> self.stats().weightBytes())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.synchronous().stats();
+        long weight = cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.synchronous().estimatedSize(), weight, generation);
+    }
+
+    static long weightOf(Key key, List<SearchResultDto> results) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.query().length();
+        for (SearchResultDto result : results) {
+            bytes += RESULT_OVERHEAD_BYTES;
+            ProductDto product = result.getProduct();
+            if (product != null) {
+                bytes += 2L * (length(product.getSourceId()) + length(product.getTitle())
+                        + length(product.getDescription()) + length(product.getItemDetails())
+                        + length(product.getText()));
+                if (product.getCategories() != null) {
+                    for (String category : product.getCategories()) {
+                        bytes += 2L * length(category) + 40;
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    record Key(long generation, long epoch, String operation, String query, SearchOptions options) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, double hitRate, long entries, long weightBytes,
+                        long generation) {
+    }
+}
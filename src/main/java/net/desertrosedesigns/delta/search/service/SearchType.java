@@ -0,0 +1,13 @@
+package net.desertrosedesigns.delta.search.service;
+
+import java.util.Locale;
+
+public enum SearchType {
+    TEXT,
+    EMBEDDING,
+    HYBRID;
+
+    public static SearchType parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
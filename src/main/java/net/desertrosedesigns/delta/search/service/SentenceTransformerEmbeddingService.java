@@ -1,66 +1,217 @@
 package net.desertrosedesigns.delta.search.service;
 
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import net.desertrosedesigns.delta.search.util.VectorUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class SentenceTransformerEmbeddingService implements EmbeddingService {
 
     private static final int MAX_RETRIES = 5;
     private static final Duration RETRY_DELAY = Duration.ofSeconds(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final MediaType JSON_FALLBACK = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.5"));
 
     private final WebClient webClient;
     private final String serviceUrl;
-    private final Map<String, List<Double>> cache = new ConcurrentHashMap<>();
+    private final EmbeddingCache cache;
+    private final EmbeddingBatcher batcher;
+    private final Instrumentation instrumentation;
+    private final MediaType[] accept;
+    private final Duration queryDeadline;
+    private final int queryRetries;
+    private final Duration queryRetryDelay;
 
     public SentenceTransformerEmbeddingService(WebClient webClient,
-                                               @Value("${embedding.service-url}") String serviceUrl) {
+                                               @Value("${embedding.service-url}") String serviceUrl,
+                                               EmbeddingCache cache,
+                                               Instrumentation instrumentation,
+                                               @Value("${embedding.coalesce.window:PT0.002S}") Duration coalesceWindow,
+                                               @Value("${embedding.coalesce.max-batch:32}") int coalesceMaxBatch,
+                                               @Value("${embedding.coalesce.max-concurrent-batches:4}") int maxConcurrentBatches,
+                                               @Value("${embedding.coalesce.max-queued-batches:16}") int maxQueuedBatches,
+                                               @Value("${embedding.query-deadline:PT2S}") Duration queryDeadline,
+                                               @Value("${embedding.query-retries:2}") int queryRetries,
+                                               @Value("${embedding.query-retry-delay:PT0.05S}") Duration queryRetryDelay,
+                                               @Value("${embedding.wire-format:binary}") String wireFormat) {
         this.webClient = webClient;
         this.serviceUrl = serviceUrl;
+        this.cache = cache;
+        this.instrumentation = instrumentation;
+        this.queryDeadline = queryDeadline;
+        this.queryRetries = queryRetries;
+        this.queryRetryDelay = queryRetryDelay;
+        // Binary is only preferred, so a service that still answers JSON keeps working.
+        this.accept = switch (wireFormat.trim().toLowerCase(Locale.ROOT)) {
+            case "binary" -> new MediaType[]{EmbeddingWireFormat.MEDIA_TYPE, JSON_FALLBACK};
+            case "json" -> new MediaType[]{MediaType.APPLICATION_JSON};
+            default -> throw new IllegalArgumentException("unknown embedding wire format: " + wireFormat);
+        };
+        this.batcher = new EmbeddingBatcher(keys -> embedMisses(keys, queryDeadline, "query").toFuture(),
+                coalesceWindow, coalesceMaxBatch, maxConcurrentBatches, maxQueuedBatches);
     }
 
     @Override
     public List<Double> embed(String text) {
-        return cache.computeIfAbsent(text, this::callService);
+        return boxed(embedVector(text));
     }
 
-    private List<Double> callService(String text) {
-        EmbedRequest request = new EmbedRequest(List.of(text));
-        int attempts = 0;
-        while (true) {
-            attempts++;
-            try {
-                EmbedResponse response = webClient.post()
-                        .uri(serviceUrl)
-                        .bodyValue(request)
-                        .retrieve()
-                        .bodyToMono(EmbedResponse.class)
-                        .timeout(Duration.ofSeconds(30))
-                        .block();
-                if (response == null || response.embeddings().isEmpty()) {
-                    return Collections.emptyList();
-                }
-                return response.embeddings().get(0);
-            } catch (Throwable t) {
-                if (attempts >= MAX_RETRIES) {
-                    throw t;
-                }
-                try {
-                    Thread.sleep(RETRY_DELAY.toMillis());
-                } catch (InterruptedException interrupted) {
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException("Interrupted while backing off to the embedding service", interrupted);
-                }
+    @Override
+    public float[] embedVector(String text) {
+        return embedVectorAsync(text).block();
+    }
+
+    @Override
+    public Mono<float[]> embedVectorAsync(String text) {
+        float[] cached = cache.getIfPresent(text);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        String key = EmbeddingCache.normalizeKey(text);
+        // The future is this caller's own, so a timeout cancels only its wait; the text is still embedded
+        // while other callers want it. A caller with less time left than the query deadline stops sooner.
+        return Mono.deferContextual(context -> Mono.fromFuture(() -> batcher.submit(key))
+                .timeout(Deadline.cap(context, queryDeadline)));
+    }
+
+    /**
+     * Serves cached texts directly and sends every distinct miss in one {@code /embed} call. The call
+     * gets the bulk request timeout rather than the per-query deadline, since it carries many inputs,
+     * capped by the caller's {@link Deadline} when it has one.
+     */
+    @Override
+    public Mono<List<float[]>> embedVectorsAsync(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            float[] cached = cache.getIfPresent(texts.get(i));
+            if (cached != null) {
+                vectors[i] = cached;
+            } else {
+                misses.computeIfAbsent(EmbeddingCache.normalizeKey(texts.get(i)), key -> new ArrayList<>()).add(i);
             }
         }
+        if (misses.isEmpty()) {
+            return Mono.just(Arrays.asList(vectors));
+        }
+        List<String> keys = new ArrayList<>(misses.keySet());
+        return Mono.deferContextual(context -> embedMisses(keys, Deadline.cap(context, REQUEST_TIMEOUT), "batch"))
+                .map(embedded -> {
+                    if (embedded.size() != keys.size()) {
+                        throw new IllegalStateException("embedding service returned " + embedded.size()
+                                + " vectors for " + keys.size() + " inputs");
+                    }
+                    for (int k = 0; k < keys.size(); k++) {
+                        for (int index : misses.get(keys.get(k))) {
+                            vectors[index] = embedded.get(k);
+                        }
+                    }
+                    return Arrays.asList(vectors);
+                });
+    }
+
+    @Override
+    public List<List<Double>> embedAll(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        List<float[]> embeddings = post(texts, "bulk")
+                .timeout(REQUEST_TIMEOUT)
+                .retryWhen(Retry.fixedDelay(MAX_RETRIES - 1, RETRY_DELAY)
+                        .doBeforeRetry(signal -> retries("bulk").increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .block();
+        if (embeddings == null || embeddings.size() != texts.size()) {
+            throw new IllegalStateException("embedding service returned " + (embeddings == null ? 0 : embeddings.size())
+                    + " vectors for " + texts.size() + " inputs");
+        }
+        return embeddings.stream().map(SentenceTransformerEmbeddingService::boxed).toList();
+    }
+
+    @PreDestroy
+    public void close() {
+        batcher.close();
+    }
+
+    /**
+     * @param operation {@code query} for coalesced single queries, {@code batch} for batch searches
+     */
+    private Mono<List<float[]>> embedMisses(List<String> keys, Duration deadline, String operation) {
+        return post(keys, operation)
+                .retryWhen(Retry.backoff(queryRetries, queryRetryDelay)
+                        .doBeforeRetry(signal -> retries(operation).increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(deadline)
+                .map(vectors -> {
+                    for (int i = 0; i < vectors.size() && i < keys.size(); i++) {
+                        if (vectors.get(i).length > 0) {
+                            cache.put(keys.get(i), vectors.get(i));
+                        }
+                    }
+                    return vectors;
+                });
+    }
+
+    /**
+     * One {@code /embed} call, observed per attempt as {@code embedding.requests}.
+     */
+    private Mono<List<float[]>> post(List<String> inputs, String operation) {
+        Mono<List<float[]>> request = webClient.post()
+                .uri(serviceUrl)
+                .accept(accept)
+                .bodyValue(new EmbedRequest(inputs))
+                .exchangeToMono(SentenceTransformerEmbeddingService::readVectors)
+                .defaultIfEmpty(Collections.emptyList())
+                .doOnSubscribe(subscription -> instrumentation.summary("embedding.inputs", "operation", operation)
+                        .record(inputs.size()));
+        return instrumentation.observe("embedding.requests", request, "operation", operation);
+    }
+
+    /**
+     * Decodes whichever format the service chose: the float32 matrix straight into primitive arrays, or
+     * the JSON {@code embeddings} array.
+     */
+    private static Mono<List<float[]>> readVectors(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return response.createException().flatMap(Mono::error);
+        }
+        boolean binary = response.headers().contentType()
+                .map(EmbeddingWireFormat.MEDIA_TYPE::isCompatibleWith)
+                .orElse(false);
+        if (binary) {
+            return response.bodyToMono(byte[].class).map(EmbeddingWireFormat::decode);
+        }
+        return response.bodyToMono(EmbedResponse.class).map(body -> body.embeddings() == null
+                ? Collections.<float[]>emptyList()
+                : body.embeddings().stream().map(VectorUtils::toFloatArray).toList());
+    }
+
+    private static List<Double> boxed(float[] vector) {
+        List<Double> embedding = new ArrayList<>(vector.length);
+        for (float v : vector) {
+            embedding.add((double) v);
+        }
+        return embedding;
+    }
+
+    private Counter retries(String operation) {
+        return instrumentation.counter("embedding.retries", "operation", operation);
     }
 
     private record EmbedRequest(List<String> inputs) {}
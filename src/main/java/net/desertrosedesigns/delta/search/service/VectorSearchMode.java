@@ -0,0 +1,18 @@
+package net.desertrosedesigns.delta.search.service;
+
+import java.util.Locale;
+
+public enum VectorSearchMode {
+    /** Client-side scoring against the in-memory HNSW index. */
+    HNSW,
+    /** Top-K neighbours from Neo4j's native vector index; only ids, scores and projected fields are returned. */
+    NATIVE,
+    /** Scan of the in-memory quantized codes, with the shortlist re-ranked at full precision. */
+    QUANTIZED,
+    /** Brute-force cosine over every in-memory vector: the accurate baseline for the approximate modes. */
+    EXACT;
+
+    public static VectorSearchMode parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
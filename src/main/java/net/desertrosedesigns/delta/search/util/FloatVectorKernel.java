@@ -0,0 +1,11 @@
+package net.desertrosedesigns.delta.search.util;
+
+interface FloatVectorKernel {
+    String name();
+
+    float dot(float[] a, float[] b);
+
+    float squaredNorm(float[] vector);
+
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+}
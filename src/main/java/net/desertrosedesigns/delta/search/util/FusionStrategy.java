@@ -0,0 +1,14 @@
+package net.desertrosedesigns.delta.search.util;
+
+import java.util.Locale;
+
+public enum FusionStrategy {
+    /** Weighted sum of max-normalized text scores and cosine similarities. */
+    WEIGHTED,
+    /** Reciprocal rank fusion: only the rank in each candidate list matters. */
+    RRF;
+
+    public static FusionStrategy parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,5 +1,11 @@
 package net.desertrosedesigns.delta.search.util;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public final class HybridScorer {
     private static final double TEXT_WEIGHT = 0.4;
     private static final double VECTOR_WEIGHT = 0.6;
@@ -10,4 +16,65 @@ public final class HybridScorer {
     public static double compute(double textScore, double vectorScore) {
         return textScore * TEXT_WEIGHT + vectorScore * VECTOR_WEIGHT;
     }
+
+    /**
+     * Merges text and vector candidate lists, each ordered best first, into at most {@code limit} results
+     * deduplicated by id. Vector scores for text-only candidates may be supplied in {@code extraVectorScores}
+     * so the weighted strategy does not treat them as orthogonal.
+     */
+    public static List<Fused> fuse(List<Candidate> textCandidates,
+                                   List<Candidate> vectorCandidates,
+                                   Map<String, Double> extraVectorScores,
+                                   FusionStrategy strategy,
+                                   int rrfK,
+                                   int limit) {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (Candidate candidate : textCandidates) {
+            scores.computeIfAbsent(candidate.id(), id -> new double[]{0, 0, 0})[0] = candidate.score();
+        }
+        extraVectorScores.forEach((id, score) -> {
+            double[] entry = scores.get(id);
+            if (entry != null) {
+                entry[1] = score;
+            }
+        });
+        for (Candidate candidate : vectorCandidates) {
+            scores.computeIfAbsent(candidate.id(), id -> new double[]{0, 0, 0})[1] = candidate.score();
+        }
+
+        if (strategy == FusionStrategy.RRF) {
+            addReciprocalRanks(textCandidates, scores, rrfK);
+            addReciprocalRanks(vectorCandidates, scores, rrfK);
+        } else {
+            double maxText = textCandidates.stream().mapToDouble(Candidate::score).max().orElse(0);
+            for (double[] entry : scores.values()) {
+                double text = maxText > 0 ? entry[0] / maxText : 0;
+                entry[2] = compute(text, Math.max(0, entry[1]));
+            }
+        }
+
+        List<Fused> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, entry) -> fused.add(new Fused(id, entry[0], entry[1], entry[2])));
+        fused.sort(Comparator.comparingDouble(Fused::combinedScore).reversed());
+        return fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+
+    public static double reciprocalRank(int rank, int k) {
+        return 1.0 / (k + rank);
+    }
+
+    private static void addReciprocalRanks(List<Candidate> candidates, Map<String, double[]> scores, int k) {
+        for (int i = 0; i < candidates.size(); i++) {
+            double[] entry = scores.get(candidates.get(i).id());
+            if (entry != null) {
+                entry[2] += reciprocalRank(i + 1, k);
+            }
+        }
+    }
+
+    public record Candidate(String id, double score) {
+    }
+
+    public record Fused(String id, double textScore, double vectorScore, double combinedScore) {
+    }
 }
@@ -0,0 +1,72 @@
+package net.desertrosedesigns.delta.search.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernel. Only loadable when the JVM runs with {@code --add-modules jdk.incubator.vector};
+ * {@link VectorUtils} falls back to {@link ScalarFloatVectorKernel} otherwise.
+ */
+final class SimdFloatVectorKernel implements FloatVectorKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    // Bytes are widened lane-for-lane into ints, so the byte species has as many lanes as the int one.
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INT_SPECIES.length() * Byte.SIZE));
+
+    SimdFloatVectorKernel() {
+        if (SPECIES.length() < 2) {
+            throw new UnsupportedOperationException("no SIMD lanes available for float");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        int upperBound = SPECIES.loopBound(length);
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    @Override
+    public float squaredNorm(float[] vector) {
+        return dot(vector, vector);
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int upperBound = BYTE_SPECIES.loopBound(length);
+        IntVector sum = IntVector.zero(INT_SPECIES);
+        int i = 0;
+        for (; i < upperBound; i += BYTE_SPECIES.length()) {
+            IntVector va = (IntVector) ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i).castShape(INT_SPECIES, 0);
+            IntVector vb = (IntVector) ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i).castShape(INT_SPECIES, 0);
+            sum = va.mul(vb).add(sum);
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+}
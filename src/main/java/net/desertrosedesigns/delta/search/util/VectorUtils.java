@@ -1,8 +1,14 @@
 package net.desertrosedesigns.delta.search.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.List;
 
 public final class VectorUtils {
+    private static final Logger log = LoggerFactory.getLogger(VectorUtils.class);
+    private static final FloatVectorKernel KERNEL = selectKernel();
+
     private VectorUtils() {
     }
 
@@ -15,7 +21,11 @@ public final class VectorUtils {
     }
 
     public static double norm(List<Double> vector) {
-        return Math.sqrt(vector.stream().mapToDouble(v -> v * v).sum());
+        double sum = 0;
+        for (Double v : vector) {
+            sum += v * v;
+        }
+        return Math.sqrt(sum);
     }
 
     public static double cosineSimilarity(List<Double> a, List<Double> b) {
@@ -25,4 +35,75 @@ public final class VectorUtils {
         }
         return dotProduct(a, b) / denom;
     }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNEL.dot(a, b);
+    }
+
+    /**
+     * Integer dot product of two int8 code slices, as used by scalar-quantized vectors.
+     */
+    public static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return KERNEL.dot(a, aOffset, b, bOffset, length);
+    }
+
+    public static float norm(float[] vector) {
+        return (float) Math.sqrt(KERNEL.squaredNorm(vector));
+    }
+
+    public static float cosineSimilarity(float[] a, float[] b) {
+        float denom = norm(a) * norm(b);
+        if (denom == 0) {
+            return 0f;
+        }
+        return KERNEL.dot(a, b) / denom;
+    }
+
+    /**
+     * Scales the vector to unit length in place so later cosine comparisons reduce to {@link #dot}.
+     * A zero vector is left untouched.
+     */
+    public static float[] normalizeInPlace(float[] vector) {
+        float length = norm(vector);
+        if (length == 0) {
+            return vector;
+        }
+        float inverse = 1 / length;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inverse;
+        }
+        return vector;
+    }
+
+    public static float[] normalize(float[] vector) {
+        return normalizeInPlace(vector.clone());
+    }
+
+    public static float[] toFloatArray(List<? extends Number> vector) {
+        float[] result = new float[vector.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i).floatValue();
+        }
+        return result;
+    }
+
+    public static String kernelName() {
+        return KERNEL.name();
+    }
+
+    private static FloatVectorKernel selectKernel() {
+        if (!Boolean.getBoolean("vector.simd.disabled")) {
+            try {
+                FloatVectorKernel simd = (FloatVectorKernel) Class
+                        .forName("net.desertrosedesigns.delta.search.util.SimdFloatVectorKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("using {} vector kernel", simd.name());
+                return simd;
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                log.info("Vector API unavailable ({}), using scalar vector kernel", e.toString());
+            }
+        }
+        return new ScalarFloatVectorKernel();
+    }
 }
@@ -1,20 +1,54 @@
 package net.desertrosedesigns.delta.search.controller;
 
+import net.desertrosedesigns.delta.search.ingest.ImportJob;
+import net.desertrosedesigns.delta.search.ingest.ImportJobs;
+import net.desertrosedesigns.delta.search.ingest.ImportMode;
+import net.desertrosedesigns.delta.search.ingest.ImportProgress;
+import net.desertrosedesigns.delta.search.ingest.ImportSummary;
 import net.desertrosedesigns.delta.search.ingest.ProductCsvImporter;
+import net.desertrosedesigns.delta.search.ingest.UnknownImportJobException;
+import net.desertrosedesigns.delta.search.model.BatchSearchRequest;
+import net.desertrosedesigns.delta.search.model.BatchSearchResult;
+import net.desertrosedesigns.delta.search.model.FacetedSearchResult;
+import net.desertrosedesigns.delta.search.model.ProductField;
 import net.desertrosedesigns.delta.search.model.SearchResultDto;
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import net.desertrosedesigns.delta.search.service.BatchQuery;
+import net.desertrosedesigns.delta.search.service.Deadline;
+import net.desertrosedesigns.delta.search.service.EmbeddingCache;
 import net.desertrosedesigns.delta.search.service.ProductSearchService;
+import net.desertrosedesigns.delta.search.service.SearchOptions;
+import net.desertrosedesigns.delta.search.service.SearchRejectedException;
+import net.desertrosedesigns.delta.search.service.SearchType;
+import net.desertrosedesigns.delta.search.service.VectorSearchMode;
+import net.desertrosedesigns.delta.search.util.FusionStrategy;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
@@ -24,41 +58,221 @@ class ProductSearchControllerTest {
     @Mock
     private ProductCsvImporter importer;
 
+    @Mock
+    private ImportJobs importJobs;
+
     @Mock
     private ProductSearchService searchService;
 
+    @Mock
+    private EmbeddingCache embeddingCache;
+
     @InjectMocks
     private ProductSearchController controller;
 
     @Test
     void importProductsReportsCount() throws IOException {
-        doReturn(5).when(importer).importProducts();
-        ResponseEntity<Map<String, Object>> response = controller.importProducts();
+        doReturn(new ImportSummary(7, 5, 2, 1)).when(importer).importProducts(ImportMode.DELTA);
+        ResponseEntity<Map<String, Object>> response = controller.importProducts("delta");
         assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
-        assertThat(response.getBody()).containsEntry("imported", 5);
+        assertThat(response.getBody()).containsEntry("imported", 5)
+                .containsEntry("unchanged", 2)
+                .containsEntry("deleted", 1);
+    }
+
+    @Test
+    void importProductsRejectsUnknownMode() {
+        ResponseEntity<Map<String, Object>> response = controller.importProducts("sideways");
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+    }
+
+    @Test
+    void startImportStreamsProgressOfTheNewJob() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        ImportJob job = new ImportJob("job-1", ImportMode.FULL, false);
+        Flux<ImportProgress> progress = Flux.just(job.progress());
+        when(importJobs.start(ImportMode.FULL, body, null)).thenReturn(job);
+        when(importJobs.progress(job)).thenReturn(progress);
+
+        ResponseEntity<Flux<ImportProgress>> response = controller.startImport("full", null, body);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(202);
+        assertThat(response.getHeaders().getLocation()).hasToString("/api/products/import/jobs/job-1");
+        assertThat(response.getBody()).isSameAs(progress);
+        assertThatThrownBy(() -> controller.startImport("sideways", null, body))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void startImportRejectsResumingAnUnknownJob() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(importJobs.start(ImportMode.DELTA, body, "nope"))
+                .thenThrow(new UnknownImportJobException("unknown import job: nope"));
+
+        assertThatThrownBy(() -> controller.startImport("delta", "nope", body))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+    }
+
+    @Test
+    void cancelImportJobRequestsCancellation() {
+        ImportJob job = new ImportJob("job-1", ImportMode.DELTA, false);
+        when(importJobs.find("job-1")).thenReturn(Optional.of(job));
+        when(importJobs.find("nope")).thenReturn(Optional.empty());
+
+        assertThat(controller.cancelImportJob("job-1").getStatusCode().value()).isEqualTo(202);
+        assertThat(job.cancelRequested()).isTrue();
+        assertThatThrownBy(() -> controller.importJob("nope"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
     }
 
     @Test
     void textSearchDelegatesToService() {
         SearchResultDto dto = new SearchResultDto(null, 1.0, 0.0, 1.0);
-        when(searchService.textSearch("q", 20)).thenReturn(List.of(dto));
-        List<SearchResultDto> results = controller.textSearch("q", 20);
+        when(searchService.textSearch("q", SearchOptions.of(20))).thenReturn(Mono.just(List.of(dto)));
+        List<SearchResultDto> results = controller.textSearch("q", 20, null, null).block();
         assertThat(results).containsExactly(dto);
     }
 
     @Test
     void embeddingSearchDelegatesToService() {
         SearchResultDto dto = new SearchResultDto(null, 0.0, 1.0, 1.0);
-        when(searchService.embeddingSearch("q", 10)).thenReturn(List.of(dto));
-        List<SearchResultDto> results = controller.embeddingSearch("q", 10);
+        when(searchService.embeddingSearch("q", SearchOptions.of(10))).thenReturn(Mono.just(List.of(dto)));
+        List<SearchResultDto> results = controller.embeddingSearch("q", 10, null, null, null, null).block();
+        assertThat(results).containsExactly(dto);
+    }
+
+    @Test
+    void embeddingSearchPassesEfToService() {
+        SearchResultDto dto = new SearchResultDto(null, 0.0, 0.9, 0.9);
+        when(searchService.embeddingSearch("q", new SearchOptions(10, 200, null, null, null))).thenReturn(Mono.just(List.of(dto)));
+        List<SearchResultDto> results = controller.embeddingSearch("q", 10, 200, null, null, null).block();
         assertThat(results).containsExactly(dto);
     }
 
+    @Test
+    void embeddingSearchParsesVectorMode() {
+        SearchResultDto dto = new SearchResultDto(null, 0.0, 0.8, 0.8);
+        when(searchService.embeddingSearch("q", new SearchOptions(10, null, VectorSearchMode.NATIVE, null, null))).thenReturn(Mono.just(List.of(dto)));
+        assertThat(controller.embeddingSearch("q", 10, null, "native", null, null).block()).containsExactly(dto);
+        assertThatThrownBy(() -> controller.embeddingSearch("q", 10, null, "psychic", null, null).block())
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
     @Test
     void hybridSearchDelegatesToService() {
         SearchResultDto dto = new SearchResultDto(null, 0.4, 0.6, 0.56);
-        when(searchService.hybridSearch("q", 5)).thenReturn(List.of(dto));
-        List<SearchResultDto> results = controller.hybridSearch("q", 5);
+        when(searchService.hybridSearch("q", SearchOptions.of(5))).thenReturn(Mono.just(List.of(dto)));
+        List<SearchResultDto> results = controller.hybridSearch("q", 5, null, null, null, null).block();
         assertThat(results).containsExactly(dto);
     }
+
+    @Test
+    void hybridSearchParsesFusionStrategy() {
+        SearchResultDto dto = new SearchResultDto(null, 0.4, 0.6, 0.03);
+        when(searchService.hybridSearch("q", new SearchOptions(5, null, null, FusionStrategy.RRF, null))).thenReturn(Mono.just(List.of(dto)));
+        assertThat(controller.hybridSearch("q", 5, "rrf", null, null, null).block()).containsExactly(dto);
+    }
+
+    @Test
+    void hybridSearchRejectsUnknownFusionStrategy() {
+        assertThatThrownBy(() -> controller.hybridSearch("q", 5, "median", null, null, null).block())
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void textSearchNarrowsRequestedFields() {
+        SearchResultDto dto = new SearchResultDto(null, 1.0, 0.0, 1.0);
+        SearchOptions options = new SearchOptions(20, null, null, null, EnumSet.of(ProductField.TITLE));
+        when(searchService.textSearch("q", options)).thenReturn(Mono.just(List.of(dto)));
+        assertThat(controller.textSearch("q", 20, "title", null).block()).containsExactly(dto);
+        assertThat(options.fields()).containsExactlyInAnyOrder(ProductField.SOURCE_ID, ProductField.TITLE);
+    }
+
+    @Test
+    void facetedSearchParsesCategoriesAndType() {
+        FacetedSearchResult result = new FacetedSearchResult(List.of(), Map.of("Shoes", 3));
+        SearchOptions options = new SearchOptions(10, null, null, null, null, Set.of("shoes", "hats"));
+        when(searchService.facetedSearch(SearchType.HYBRID, "q", options)).thenReturn(Mono.just(result));
+        assertThat(controller.facetedSearch("q", "hybrid", 10, null, null, null, null, " Shoes, HATS ,").block())
+                .isEqualTo(result);
+    }
+
+    @Test
+    void suggestDelegatesToService() {
+        Suggestion suggestion = new Suggestion("Hoop Earrings", Suggestion.TITLE, 1);
+        when(searchService.suggest("hoo", 10)).thenReturn(Mono.just(List.of(suggestion)));
+        assertThat(controller.suggest("hoo", 10).block()).containsExactly(suggestion);
+    }
+
+    @Test
+    void searchRejectsUnknownFields() {
+        assertThatThrownBy(() -> controller.textSearch("q", 20, "title,embedding", null).block())
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void batchSearchParsesQueriesAndDefaults() {
+        BatchSearchResult result = BatchSearchResult.success(0, "a", List.of());
+        List<BatchQuery> expected = List.of(
+                new BatchQuery("a", "lamp", SearchType.EMBEDDING, SearchOptions.of(20)),
+                new BatchQuery(null, "desk", SearchType.HYBRID, new SearchOptions(5, null, null, FusionStrategy.RRF, null)));
+        when(searchService.batchSearch(expected)).thenReturn(Flux.just(result));
+        BatchSearchRequest request = new BatchSearchRequest(List.of(
+                new BatchSearchRequest.Query("a", "lamp", null, null, null, null),
+                new BatchSearchRequest.Query(null, "desk", "hybrid", 5, "rrf", null)));
+        assertThat(controller.batchSearch(request).collectList().block()).containsExactly(result);
+    }
+
+    @Test
+    void batchSearchRejectsBadQueries() {
+        assertThatThrownBy(() -> controller.batchSearch(new BatchSearchRequest(List.of())).blockLast())
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> controller.batchSearch(new BatchSearchRequest(List.of(
+                new BatchSearchRequest.Query(null, " ", null, null, null, null)))).blockLast())
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> controller.batchSearch(new BatchSearchRequest(List.of(
+                new BatchSearchRequest.Query(null, "lamp", "fuzzy", null, null, null)))).blockLast())
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void embeddingCacheStatsDelegatesToCache() {
+        EmbeddingCache.Stats stats = new EmbeddingCache.Stats(3, 1, 0, 0.75, 1, 1632);
+        when(embeddingCache.stats()).thenReturn(stats);
+        assertThat(controller.embeddingCacheStats()).isEqualTo(stats);
+    }
+
+    @Test
+    void requestTimeoutHeaderBoundsTheSearch() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ProductSearchController.REQUEST_TIMEOUT_HEADER, "250");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            AtomicReference<Duration> remaining = new AtomicReference<>();
+            when(searchService.textSearch("q", SearchOptions.of(20))).thenReturn(Mono.deferContextual(context -> {
+                remaining.set(Deadline.from(context).orElseThrow().remaining());
+                return Mono.just(List.of());
+            }));
+            controller.textSearch("q", 20, null, null).block();
+            assertThat(remaining.get()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(250));
+
+            request.removeHeader(ProductSearchController.REQUEST_TIMEOUT_HEADER);
+            request.addHeader(ProductSearchController.REQUEST_TIMEOUT_HEADER, "soon");
+            assertThatThrownBy(() -> controller.textSearch("q", 20, null, null))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .hasMessageContaining("400");
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void shedAndTimedOutSearchesMapTo503And504() {
+        ResponseEntity<Map<String, Object>> rejected = controller.searchRejected(new SearchRejectedException("full"));
+        assertThat(rejected.getStatusCode().value()).isEqualTo(503);
+        assertThat(rejected.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(controller.searchTimedOut(new TimeoutException()).getStatusCode().value()).isEqualTo(504);
+    }
 }
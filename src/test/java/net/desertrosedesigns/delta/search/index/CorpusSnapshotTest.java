@@ -0,0 +1,82 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.ProductField;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class CorpusSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsVectorsIdsAndMetadata() throws IOException {
+        Path file = write(directory.resolve("corpus-1.snap"), 7);
+
+        CorpusSnapshot snapshot = CorpusSnapshot.open(file, true);
+
+        assertThat(snapshot.generation()).isEqualTo(7);
+        assertThat(snapshot.watermark()).isEqualTo(1234);
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.dimension()).isEqualTo(3);
+        assertThat(snapshot.sourceIds()).containsExactly("a", "b\u00e9");
+        assertThat(snapshot.vector(0)).containsExactly(0.6f, 0.8f, 0f);
+        assertThat(snapshot.dot(new float[]{0, 0, 1}, 1)).isCloseTo(1f, within(1e-6f));
+        assertThat(snapshot.dot(0, 1)).isCloseTo(0f, within(1e-6f));
+        assertThat(snapshot.dot(0, 0)).isCloseTo(1f, within(1e-6f));
+
+        ProductDto product = snapshot.product(1, ProductField.ALL);
+        assertThat(product.getSourceId()).isEqualTo("b\u00e9");
+        assertThat(product.getTitle()).isEqualTo("Hoop");
+        assertThat(product.getDescription()).isEmpty();
+        assertThat(product.getCategories()).containsExactly("sports", "outdoor");
+
+        ProductDto light = snapshot.product(0, Set.of(ProductField.SOURCE_ID, ProductField.TITLE));
+        assertThat(light.getTitle()).isEqualTo("Lamp");
+        assertThat(light.getText()).isNull();
+    }
+
+    @Test
+    void rejectsCorruptedBody() throws IOException {
+        Path file = write(directory.resolve("corpus-1.snap"), 1);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(CorpusSnapshot.HEADER_BYTES + 1);
+            raf.write(0x7f);
+        }
+        assertThatThrownBy(() -> CorpusSnapshot.open(file, true)).hasMessageContaining("checksum");
+    }
+
+    @Test
+    void abandonedWriterLeavesNoFiles() throws IOException {
+        try (CorpusSnapshotWriter writer = new CorpusSnapshotWriter(directory.resolve("corpus-1.snap"), 1, 3)) {
+            writer.add("a", new float[]{1, 0, 0}, product("a", "Lamp", List.of()));
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static Path write(Path target, long generation) throws IOException {
+        try (CorpusSnapshotWriter writer = new CorpusSnapshotWriter(target, generation, 3, 1234)) {
+            writer.add("a", new float[]{3, 4, 0}, product("a", "Lamp", List.of()));
+            writer.add("b\u00e9", new float[]{0, 0, 2}, product("b\u00e9", "Hoop", List.of("sports", "outdoor")));
+            return writer.commit();
+        }
+    }
+
+    private static ProductDto product(String sourceId, String title, List<String> categories) {
+        return new ProductDto(sourceId, title, null, "details", categories, title + " text");
+    }
+}
@@ -0,0 +1,52 @@
+package net.desertrosedesigns.delta.search.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeltaSegmentTest {
+
+    private static final Map<String, Integer> BASE = Map.of("a", 0, "b", 1, "c", 2);
+
+    @Test
+    void upsertsAndDeletesRetireBaseOrdinals() {
+        DeltaSegment delta = DeltaSegment.EMPTY.apply(List.of(
+                DeltaSegment.Change.upsert("b", 10, new float[]{0, 3}, List.of("Sports", "sports ")),
+                DeltaSegment.Change.upsert("d", 11, new float[]{1, 1}, List.of("Garden")),
+                DeltaSegment.Change.delete("c", 12)), this::base);
+
+        assertThat(delta.retired().toArray()).containsExactly(1, 2);
+        assertThat(delta.size()).isEqualTo(2);
+        assertThat(delta.position("c")).isEqualTo(-1);
+        assertThat(delta.vector(delta.position("b"))).containsExactly(0f, 1f);
+        assertThat(delta.categories(delta.position("b"))).containsExactly("Sports");
+        assertThat(delta.inAny(delta.position("d"), List.of("GARDEN"))).isTrue();
+
+        List<VectorHit> hits = delta.search(new float[]{0, 1}, 5, position -> true);
+        assertThat(hits).extracting(VectorHit::ordinal).containsExactly(delta.position("b"), delta.position("d"));
+    }
+
+    @Test
+    void appliesOnlyChangesNewerThanTheLastOne() {
+        DeltaSegment first = DeltaSegment.EMPTY.apply(List.of(
+                DeltaSegment.Change.upsert("d", 10, new float[]{1, 0}, List.of()),
+                DeltaSegment.Change.delete("d", 9)), this::base);
+        assertThat(first.position("d")).isZero();
+
+        // Overlapping polls read the same changes again.
+        assertThat(first.apply(List.of(DeltaSegment.Change.upsert("d", 10, new float[]{0, 1}, List.of())), this::base))
+                .isSameAs(first);
+
+        DeltaSegment second = first.apply(List.of(DeltaSegment.Change.delete("d", 11)), this::base);
+        assertThat(second.position("d")).isEqualTo(-1);
+        assertThat(second.size()).isZero();
+        assertThat(first.position("d")).isZero();
+    }
+
+    private int base(String sourceId) {
+        return BASE.getOrDefault(sourceId, -1);
+    }
+}
@@ -0,0 +1,105 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExactVectorScanTest {
+
+    @Test
+    void topKKeepsHighestScoresAndSortsThem() {
+        TopK top = new TopK(3);
+        float[] scores = {0.1f, 0.9f, 0.4f, 0.7f, 0.2f, 0.8f};
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+        assertThat(top.threshold()).isEqualTo(0.7f);
+        assertThat(top.toSortedHits()).extracting(VectorHit::ordinal).containsExactly(1, 5, 3);
+    }
+
+    @Test
+    void mergedHeapsEqualOneHeap() {
+        TopK left = new TopK(2);
+        TopK right = new TopK(2);
+        left.offer(0, 0.5f);
+        left.offer(1, 0.1f);
+        right.offer(2, 0.3f);
+        right.offer(3, 0.9f);
+        left.addAll(right);
+        assertThat(left.toSortedHits()).extracting(VectorHit::ordinal).containsExactly(3, 0);
+    }
+
+    @Test
+    void parallelScanMatchesFullSort() {
+        Random random = new Random(5);
+        float[][] vectors = new float[5000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = VectorUtils.normalize(randomVector(random, 16));
+        }
+        float[] query = VectorUtils.normalize(randomVector(random, 16));
+        List<Integer> expected = IntStream.range(0, vectors.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> VectorUtils.dot(query, vectors[i])).reversed())
+                .limit(10)
+                .toList();
+
+        ExactVectorScan scan = new ExactVectorScan(ForkJoinPool.commonPool(), 128);
+        List<VectorHit> hits = scan.search(vectors.length, 10, ordinal -> VectorUtils.dot(query, vectors[ordinal]));
+
+        assertThat(hits).extracting(VectorHit::ordinal).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void batchScanMatchesSingleQueryScans() {
+        Random random = new Random(9);
+        float[][] vectors = new float[3000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = VectorUtils.normalize(randomVector(random, 16));
+        }
+        float[][] queries = new float[5][];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q] = VectorUtils.normalize(randomVector(random, 16));
+        }
+
+        ExactVectorScan scan = new ExactVectorScan(ForkJoinPool.commonPool(), 256);
+        List<List<VectorHit>> batch = scan.searchBatch(vectors.length, queries, 10, (ordinal, scratch) -> vectors[ordinal]);
+
+        assertThat(batch).hasSize(queries.length);
+        for (int q = 0; q < queries.length; q++) {
+            float[] query = queries[q];
+            List<VectorHit> single = scan.search(vectors.length, 10, ordinal -> VectorUtils.dot(query, vectors[ordinal]));
+            assertThat(batch.get(q)).extracting(VectorHit::ordinal)
+                    .containsExactlyElementsOf(single.stream().map(VectorHit::ordinal).toList());
+        }
+    }
+
+    @Test
+    void memberScanOnlyScoresGivenOrdinals() {
+        ExactVectorScan scan = new ExactVectorScan(ForkJoinPool.commonPool(), 2);
+        int[] members = {1, 4, 6, 9, 12};
+        assertThat(scan.search(members, 3, ordinal -> ordinal)).extracting(VectorHit::ordinal)
+                .containsExactly(12, 9, 6);
+        assertThat(scan.search(new int[0], 3, ordinal -> ordinal)).isEmpty();
+    }
+
+    @Test
+    void smallCorpusReturnsEverything() {
+        ExactVectorScan scan = new ExactVectorScan(ForkJoinPool.commonPool(), 4);
+        assertThat(scan.search(3, 10, ordinal -> ordinal)).extracting(VectorHit::ordinal).containsExactly(2, 1, 0);
+        assertThat(scan.search(0, 10, ordinal -> ordinal)).isEmpty();
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
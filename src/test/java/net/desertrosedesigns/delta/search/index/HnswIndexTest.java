@@ -0,0 +1,134 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HnswIndexTest {
+
+    @Test
+    void searchFindsExactMatchFirst() {
+        HnswIndex index = new HnswIndex(3, 4, 4, 16);
+        index.add(new float[]{1, 0, 0});
+        index.add(new float[]{0, 1, 0});
+        index.add(new float[]{0, 0, 1});
+        List<VectorHit> hits = index.search(new float[]{0, 2, 0}, 1, 10);
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0).ordinal()).isEqualTo(1);
+        assertThat(hits.get(0).score()).isEqualTo(1.0f);
+    }
+
+    @Test
+    void searchOnEmptyIndexReturnsNothing() {
+        HnswIndex index = new HnswIndex(3, 0, 4, 16);
+        assertThat(index.search(new float[]{1, 0, 0}, 5, 10)).isEmpty();
+    }
+
+    @Test
+    void addRejectsWrongDimension() {
+        HnswIndex index = new HnswIndex(3, 0, 4, 16);
+        assertThatThrownBy(() -> index.add(new float[]{1, 0})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void recallAgainstBruteForceIsHigh() {
+        Random random = new Random(7);
+        int dimension = 32;
+        float[][] vectors = new float[2000][];
+        HnswIndex index = new HnswIndex(dimension, vectors.length, 16, 200);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random, dimension);
+            index.add(vectors[i]);
+        }
+        int k = 10;
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random, dimension);
+            Set<Integer> expected = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> cosine(query, vectors[i])).reversed())
+                    .limit(k)
+                    .collect(Collectors.toSet());
+            found += (int) index.search(query, k, 100).stream().filter(hit -> expected.contains(hit.ordinal())).count();
+        }
+        assertThat(found / (double) (queries * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void filteredSearchOnlyReturnsAcceptedNodes() {
+        Random random = new Random(11);
+        int dimension = 16;
+        float[][] vectors = new float[1000][];
+        HnswIndex index = new HnswIndex(dimension, vectors.length, 16, 100);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random, dimension);
+            index.add(vectors[i]);
+        }
+        float[] query = randomVector(random, dimension);
+        List<Integer> expected = IntStream.range(0, vectors.length).filter(i -> i % 10 == 3).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> cosine(query, vectors[i])).reversed())
+                .limit(5)
+                .toList();
+
+        List<VectorHit> hits = index.search(query, 5, 200, ordinal -> ordinal % 10 == 3);
+
+        assertThat(hits).extracting(VectorHit::ordinal).allMatch(ordinal -> ordinal % 10 == 3);
+        assertThat(hits).extracting(VectorHit::ordinal).containsAnyElementsOf(expected.subList(0, 1));
+        assertThat(index.search(query, 5, 200, ordinal -> false)).isEmpty();
+    }
+
+    @Test
+    void graphBuiltOverASourceMatchesOneBuiltByAdding() {
+        Random random = new Random(13);
+        int dimension = 16;
+        float[][] unit = new float[500][];
+        HnswIndex added = new HnswIndex(dimension, unit.length, 8, 64);
+        for (int i = 0; i < unit.length; i++) {
+            unit[i] = VectorUtils.normalize(randomVector(random, dimension));
+            added.add(unit[i]);
+        }
+
+        HnswIndex built = HnswIndex.build(VectorSource.onHeap(unit, dimension), 8, 64);
+
+        assertThat(built.size()).isEqualTo(unit.length);
+        for (int q = 0; q < 10; q++) {
+            float[] query = randomVector(random, dimension);
+            assertThat(built.search(query, 5, 50)).extracting(VectorHit::ordinal)
+                    .isEqualTo(added.search(query, 5, 50).stream().map(VectorHit::ordinal).toList());
+        }
+        assertThatThrownBy(() -> built.add(unit[0])).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot / Math.sqrt(norm(a) * norm(b));
+    }
+
+    private static double norm(float[] v) {
+        double sum = 0;
+        for (float f : v) {
+            sum += f * f;
+        }
+        return sum;
+    }
+}
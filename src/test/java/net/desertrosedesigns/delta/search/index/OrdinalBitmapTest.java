@@ -0,0 +1,66 @@
+package net.desertrosedesigns.delta.search.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class OrdinalBitmapTest {
+
+    @Test
+    void sparseAndDenseChunksRoundTrip() {
+        // Evens below 20000 fill one chunk densely; a few ordinals land in a later, sparse chunk.
+        int[] ordinals = IntStream.concat(IntStream.range(0, 10000).map(i -> i * 2), IntStream.of(70000, 70001, 200000))
+                .toArray();
+        OrdinalBitmap bitmap = OrdinalBitmap.of(ordinals);
+
+        assertThat(bitmap.cardinality()).isEqualTo(ordinals.length);
+        assertThat(bitmap.toArray()).containsExactly(ordinals);
+        assertThat(bitmap.contains(19998)).isTrue();
+        assertThat(bitmap.contains(19999)).isFalse();
+        assertThat(bitmap.contains(70001)).isTrue();
+        assertThat(bitmap.contains(-1)).isFalse();
+    }
+
+    @Test
+    void setOperationsMatchAcrossChunkKinds() {
+        OrdinalBitmap evens = OrdinalBitmap.of(IntStream.range(0, 6000).map(i -> i * 2).toArray());
+        OrdinalBitmap threes = OrdinalBitmap.of(IntStream.range(0, 40).map(i -> i * 3).toArray());
+
+        int[] both = IntStream.range(0, 120).filter(i -> i % 6 == 0).toArray();
+        assertThat(evens.and(threes).toArray()).containsExactly(both);
+        assertThat(evens.andCardinality(threes)).isEqualTo(both.length);
+        assertThat(threes.andCardinality(evens)).isEqualTo(both.length);
+        assertThat(evens.or(threes).cardinality()).isEqualTo(6000 + 40 - both.length);
+        assertThat(threes.or(OrdinalBitmap.EMPTY).toArray()).containsExactly(threes.toArray());
+    }
+
+    @Test
+    void builderRejectsOrdinalsOutOfOrder() {
+        OrdinalBitmap.Builder builder = new OrdinalBitmap.Builder().add(5);
+        assertThatThrownBy(() -> builder.add(5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.add(2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void categoryIndexMatchesCaseInsensitivelyAndCountsWithinCandidates() {
+        CategoryIndex index = new CategoryIndex.Builder()
+                .add(0, List.of("Shoes", "Sale"))
+                .add(1, List.of("shoes ", "SHOES"))
+                .add(2, List.of("Hats"))
+                .add(3, List.of("Sale", " "))
+                .build();
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.anyOf(List.of("SHOES", "unknown")).toArray()).containsExactly(0, 1);
+        assertThat(index.anyOf(List.of("hats", "sale")).toArray()).containsExactly(0, 2, 3);
+        assertThat(index.counts(null)).containsExactly(entry("Sale", 2), entry("Shoes", 2), entry("Hats", 1));
+        Map<String, Integer> within = index.counts(OrdinalBitmap.of(1, 2));
+        assertThat(within).containsExactly(entry("Hats", 1), entry("Shoes", 1));
+    }
+}
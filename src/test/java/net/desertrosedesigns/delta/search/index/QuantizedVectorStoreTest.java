@@ -0,0 +1,94 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuantizedVectorStoreTest {
+
+    @Test
+    void bothEncodingsFindExactMatchFirstWithFullPrecisionScore() {
+        float[][] vectors = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+        for (Quantization quantization : Quantization.values()) {
+            QuantizedVectorStore store = new QuantizedVectorStore(quantization, 3, 3, i -> vectors[i]);
+            for (float[] vector : vectors) {
+                store.add(vector);
+            }
+            List<VectorHit> hits = store.search(new float[]{0, 2, 0}, 1, 2);
+            assertThat(hits).hasSize(1);
+            assertThat(hits.get(0).ordinal()).isEqualTo(1);
+            assertThat(hits.get(0).score()).isEqualTo(1.0f);
+        }
+    }
+
+    @Test
+    void codesAreAFractionOfFloat32() {
+        QuantizedVectorStore int8 = new QuantizedVectorStore(Quantization.INT8, 384, 10, i -> null);
+        QuantizedVectorStore binary = new QuantizedVectorStore(Quantization.BINARY, 384, 10, i -> null);
+        float[] vector = new float[384];
+        vector[0] = 1;
+        for (int i = 0; i < 10; i++) {
+            int8.add(vector);
+            binary.add(vector);
+        }
+        assertThat(int8.codeBytes()).isEqualTo(10 * (384 + 4));
+        assertThat(binary.codeBytes()).isEqualTo(10 * 48);
+    }
+
+    @Test
+    void addRejectsWrongDimension() {
+        QuantizedVectorStore store = new QuantizedVectorStore(Quantization.BINARY, 3, 0, i -> null);
+        assertThatThrownBy(() -> store.add(new float[]{1, 0})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rerankedRecallAgainstBruteForceIsHigh() {
+        Random random = new Random(11);
+        int dimension = 64;
+        float[][] vectors = new float[2000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = VectorUtils.normalize(randomVector(random, dimension));
+        }
+        float[][] queries = new float[50][];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q] = randomVector(random, dimension);
+        }
+        assertThat(recall(Quantization.INT8, vectors, queries, 40)).isGreaterThan(0.95);
+        assertThat(recall(Quantization.BINARY, vectors, queries, 400)).isGreaterThan(0.85);
+    }
+
+    private static double recall(Quantization quantization, float[][] vectors, float[][] queries, int rerankDepth) {
+        QuantizedVectorStore store = new QuantizedVectorStore(quantization, vectors[0].length, vectors.length,
+                i -> vectors[i]);
+        for (float[] vector : vectors) {
+            store.add(vector);
+        }
+        int k = 10;
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Integer> expected = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> VectorUtils.cosineSimilarity(query, vectors[i])).reversed())
+                    .limit(k)
+                    .collect(Collectors.toSet());
+            found += (int) store.search(query, k, rerankDepth).stream().filter(hit -> expected.contains(hit.ordinal())).count();
+        }
+        return found / (double) (queries.length * k);
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,72 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.model.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionIndexTest {
+
+    private final SuggestionIndex index = new SuggestionIndex.Builder(5)
+            .addTitle("Bamboo Hoop Earrings")
+            .addTitle("Hoop Earrings")
+            .addTitle("hoop earrings!")
+            .addTitle("Horseshoe Wall Art")
+            .addTitle("Silver Hoops, Large")
+            .addCategory("Home Decor", 12)
+            .addCategory("Jewelry", 30)
+            .build();
+
+    @Test
+    void completesPrefixesByWeightThenWholeEntryFirst() {
+        List<Suggestion> suggestions = index.suggest("ho", 10, 0);
+
+        assertThat(suggestions).extracting(Suggestion::text)
+                .containsExactly("Home Decor", "Hoop Earrings", "Horseshoe Wall Art", "Silver Hoops, Large",
+                        "Bamboo Hoop Earrings");
+        assertThat(suggestions.get(0).type()).isEqualTo(Suggestion.CATEGORY);
+        assertThat(suggestions.get(1)).isEqualTo(new Suggestion("Hoop Earrings", Suggestion.TITLE, 2));
+    }
+
+    @Test
+    void matchesLaterWordsAndNormalizesPunctuation() {
+        assertThat(index.suggest("EARRINGS", 10, 0)).extracting(Suggestion::text)
+                .containsExactly("Hoop Earrings", "Bamboo Hoop Earrings");
+        assertThat(index.suggest("silver-hoops la", 10, 0)).extracting(Suggestion::text)
+                .containsExactly("Silver Hoops, Large");
+        assertThat(index.suggest("   ", 10, 0)).isEmpty();
+        assertThat(index.suggest("jewelry box", 10, 0)).isEmpty();
+    }
+
+    @Test
+    void limitsResultsToRequestAndDepth() {
+        assertThat(index.suggest("h", 2, 0)).hasSize(2);
+        assertThat(index.suggest("h", 50, 0)).hasSize(5);
+    }
+
+    @Test
+    void toleratesTyposOnLongerPrefixesOnly() {
+        assertThat(index.suggest("jewlery", 10, 1)).isEmpty();
+        assertThat(index.suggest("jewelery", 10, 1)).extracting(Suggestion::text).containsExactly("Jewelry");
+        assertThat(index.suggest("jewelery", 10, 0)).isEmpty();
+        assertThat(index.suggest("hpo", 10, 1)).isEmpty();
+        assertThat(index.suggest("horsw", 10, 1)).extracting(Suggestion::text)
+                .containsExactly("Horseshoe Wall Art");
+    }
+
+    @Test
+    void largeIndexAgreesWithLinearScan() {
+        SuggestionIndex.Builder builder = new SuggestionIndex.Builder(10);
+        List<String> titles = IntStream.range(0, 3000).mapToObj(i -> "item " + Integer.toString(i * 7919, 36)).toList();
+        titles.forEach(builder::addTitle);
+        SuggestionIndex large = builder.build();
+
+        List<String> expected = titles.stream().filter(title -> title.startsWith("item 1a")).sorted(
+                Comparator.comparingInt(String::length).thenComparing(title -> title)).limit(10).toList();
+        assertThat(large.suggest("item 1a", 10, 0)).extracting(Suggestion::text).containsExactlyElementsOf(expected);
+    }
+}
@@ -0,0 +1,120 @@
+package net.desertrosedesigns.delta.search.index;
+
+import net.desertrosedesigns.delta.search.util.VectorUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Measures each approximate search mode against the exact parallel scan. For every mode and setting
+ * (HNSW {@code ef}, quantized re-rank depth) it reports recall@k, vector or code memory and mean query
+ * latency. The corpus is synthetic and clustered, which is closer to sentence embeddings than
+ * isotropic noise.
+ * <p>
+ * Arguments (all optional): corpus size, dimension, query count.
+ */
+public final class VectorSearchBenchmark {
+
+    private static final int K = 10;
+    private static final int[] EF_VALUES = {16, 64, 200};
+    private static final int[] RERANK_DEPTHS = {K, 50, 100, 400};
+
+    private VectorSearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 384;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        Random random = new Random(42);
+        float[][] centers = new float[Math.max(1, size / 100)][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = gaussian(random, dimension, 1);
+        }
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = VectorUtils.normalize(around(random, centers[random.nextInt(centers.length)], 0.6f));
+        }
+        float[][] queries = new float[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            queries[q] = VectorUtils.normalize(around(random, centers[random.nextInt(centers.length)], 0.6f));
+        }
+
+        ExactVectorScan exact = new ExactVectorScan(ForkJoinPool.commonPool(), 4096);
+        Function<float[], List<VectorHit>> exactSearch =
+                query -> exact.search(size, K, ordinal -> VectorUtils.dot(query, vectors[ordinal]));
+        List<Set<Integer>> truth = new ArrayList<>(queryCount);
+        for (float[] query : queries) {
+            Set<Integer> ordinals = new HashSet<>();
+            exactSearch.apply(query).forEach(hit -> ordinals.add(hit.ordinal()));
+            truth.add(ordinals);
+        }
+
+        long floatBytes = (long) size * dimension * Float.BYTES;
+        System.out.printf("corpus=%d dimension=%d queries=%d k=%d kernel=%s parallelism=%d%n", size, dimension,
+                queryCount, K, VectorUtils.kernelName(), ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%-8s %10s %12s %10s %12s%n", "mode", "setting", "bytes", "recall@" + K, "mean us");
+        report("exact", "-", floatBytes, queries, truth, exactSearch);
+
+        HnswIndex graph = new HnswIndex(dimension, size, 16, 200);
+        for (float[] vector : vectors) {
+            graph.add(vector);
+        }
+        for (int ef : EF_VALUES) {
+            report("hnsw", "ef=" + ef, floatBytes, queries, truth, query -> graph.search(query, K, ef));
+        }
+
+        for (Quantization quantization : Quantization.values()) {
+            QuantizedVectorStore store = new QuantizedVectorStore(quantization, dimension, size, i -> vectors[i]);
+            for (float[] vector : vectors) {
+                store.add(vector);
+            }
+            for (int depth : RERANK_DEPTHS) {
+                report(quantization.name().toLowerCase(), "rerank=" + depth, store.codeBytes(), queries, truth,
+                        query -> store.search(query, K, depth));
+            }
+        }
+    }
+
+    private static void report(String mode, String setting, long bytes, float[][] queries, List<Set<Integer>> truth,
+                               Function<float[], List<VectorHit>> search) {
+        // One untimed pass warms the JIT for this configuration.
+        for (float[] query : queries) {
+            search.apply(query);
+        }
+        int found = 0;
+        long started = System.nanoTime();
+        for (int q = 0; q < queries.length; q++) {
+            for (VectorHit hit : search.apply(queries[q])) {
+                if (truth.get(q).contains(hit.ordinal())) {
+                    found++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.printf("%-8s %10s %12d %10.3f %12.1f%n", mode, setting, bytes,
+                found / (double) (queries.length * K), elapsed / 1000.0 / queries.length);
+    }
+
+    private static float[] around(Random random, float[] center, float spread) {
+        float[] vector = gaussian(random, center.length, spread);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float scale) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+}
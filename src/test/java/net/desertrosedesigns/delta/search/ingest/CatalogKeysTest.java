@@ -0,0 +1,90 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogKeysTest {
+
+    private static final String TITLE = "Reserved listing- Custom order";
+
+    @Test
+    void collidingRowsGetTheSameKeysInAnyOrder() {
+        ProductRecord ann = record(null, "For Ann");
+        ProductRecord bea = record(null, "For Bea");
+
+        List<String> forward = keys(Set.of(), ann, bea);
+        List<String> backward = keys(Set.of(), bea, ann);
+
+        assertThat(forward).doesNotHaveDuplicates().doesNotContain(ann.sourceId());
+        assertThat(backward).containsExactly(forward.get(1), forward.get(0));
+    }
+
+    @Test
+    void groupSplitByAnEarlierImportKeepsItsKeys() {
+        ProductRecord ann = record(null, "For Ann");
+        String annKey = ProductKeys.distinctSourceId(ann.sourceId(), ann.contentHash());
+        CatalogKeys keys = new CatalogKeys(Set.of(annKey, "gone"));
+
+        // Only one row of the group is left, but it keeps the key the group gave it.
+        assertThat(keys.assign(ann, null).sourceId()).isEqualTo(annKey);
+        assertThat(keys.renames()).isEmpty();
+        assertThat(keys.missing()).containsExactly("gone");
+    }
+
+    @Test
+    void renamedProductsAreNotMissing() {
+        ProductRecord ann = record(null, "For Ann");
+        CatalogKeys keys = new CatalogKeys(Set.of(ann.sourceId()));
+
+        keys.assign(ann, null);
+        keys.assign(record(null, "For Bea"), null);
+
+        assertThat(keys.renames()).containsOnlyKeys(ann.sourceId());
+        assertThat(keys.missing()).isEmpty();
+    }
+
+    @Test
+    void skipsRepeatedRowsAndExplicitIds() {
+        CatalogKeys keys = new CatalogKeys(Set.of());
+        assertThat(keys.assign(record(null, "For Ann"), null)).isNotNull();
+        assertThat(keys.assign(record(null, "For Ann"), null)).isNull();
+
+        ProductRecord explicit = record("sku-1", "For Ann");
+        assertThat(keys.assign(explicit, "sku-1")).isSameAs(explicit);
+        assertThat(keys.assign(record("sku-1", "For Bea"), "sku-1")).isNull();
+    }
+
+    @Test
+    void unreadableRowKeepsStoredProductsItMayHold() {
+        ProductRecord lamp = new ProductRecord("sku-1", "hash", "Lamp", "", "", List.of(), "Lamp");
+        CatalogKeys keys = new CatalogKeys(Set.of("sku-1", "sku-2"));
+
+        keys.assign(lamp, "sku-1");
+        // The row for sku-2 is malformed, so it cannot be told apart from a product the file dropped.
+        keys.unreadable();
+
+        assertThat(keys.unreadableRows()).isEqualTo(1);
+        assertThat(keys.missing()).isEmpty();
+    }
+
+    private static List<String> keys(Set<String> existing, ProductRecord... rows) {
+        CatalogKeys keys = new CatalogKeys(existing);
+        List<String> assigned = new ArrayList<>();
+        for (ProductRecord row : rows) {
+            assigned.add(keys.assign(row, null).sourceId());
+        }
+        Map<String, String> renames = keys.renames();
+        return assigned.stream().map(key -> renames.getOrDefault(key, key)).toList();
+    }
+
+    private static ProductRecord record(String explicitId, String description) {
+        return new ProductRecord(ProductKeys.sourceId(explicitId, TITLE, ""),
+                ProductKeys.contentHash(TITLE, description, "", List.of()), TITLE, description, "", List.of(), TITLE);
+    }
+}
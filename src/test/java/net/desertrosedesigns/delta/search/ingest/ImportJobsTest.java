@@ -0,0 +1,118 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobsTest {
+
+    private static final String CSV = "id,title\n1,Lamp\n2,Desk\n";
+
+    @Mock
+    private ProductCsvImporter importer;
+
+    @Test
+    void decompressesGzipUploadsAndPassesPlainOnesThrough() throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(ImportJobs.decompress(new ByteArrayInputStream(gzipped.toByteArray())).readAllBytes())
+                .asString(StandardCharsets.UTF_8).isEqualTo(CSV);
+        assertThat(ImportJobs.decompress(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8))).readAllBytes())
+                .asString(StandardCharsets.UTF_8).isEqualTo(CSV);
+    }
+
+    @Test
+    void progressStreamsUntilTheJobFinishes() throws IOException {
+        AtomicReference<String> read = new AtomicReference<>();
+        doAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            StringWriter text = new StringWriter();
+            invocation.<Reader>getArgument(1).transferTo(text);
+            read.set(text.toString());
+            job.parsed.addAndGet(2);
+            job.written.addAndGet(2);
+            job.finish(ImportJob.Status.SUCCEEDED, null);
+            return new ImportSummary(2, 2, 0, 0);
+        }).when(importer).importProducts(any(ImportJob.class), any(Reader.class));
+        ImportJobs jobs = new ImportJobs(importer, Duration.ofMillis(10));
+
+        ImportJob job = jobs.start(ImportMode.FULL, new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), null);
+        ImportProgress last = jobs.progress(job).blockLast(Duration.ofSeconds(5));
+
+        assertThat(read).hasValue(CSV);
+        assertThat(last.status()).isEqualTo(ImportJob.Status.SUCCEEDED);
+        assertThat(last.written()).isEqualTo(2);
+        assertThat(last.finishedAt()).isNotNull();
+        assertThat(jobs.find(job.id())).containsSame(job);
+        jobs.close();
+    }
+
+    @Test
+    void rejectsASecondImportAndResumesACancelledOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            started.countDown();
+            while (!job.cancelRequested()) {
+                Thread.sleep(5);
+            }
+            job.finish(ImportJob.Status.CANCELLED, null);
+            throw new CancellationException();
+        }).when(importer).importProducts(any(ImportJob.class), any(Reader.class));
+        ImportJobs jobs = new ImportJobs(importer, Duration.ofMillis(10));
+
+        ImportJob first = jobs.start(ImportMode.DELTA, new ByteArrayInputStream(new byte[0]), null);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> jobs.start(ImportMode.DELTA, new ByteArrayInputStream(new byte[0]), null))
+                .isInstanceOf(ImportAlreadyRunningException.class);
+
+        first.cancel();
+        assertThat(jobs.progress(first).blockLast(Duration.ofSeconds(5)).status()).isEqualTo(ImportJob.Status.CANCELLED);
+
+        ImportJob resumed = jobs.start(ImportMode.DELTA, new ByteArrayInputStream(new byte[0]), first.id());
+        assertThat(resumed.id()).isEqualTo(first.id());
+        assertThat(resumed.resumed()).isTrue();
+        assertThat(jobs.find(first.id())).containsSame(resumed);
+        resumed.cancel();
+        jobs.close();
+    }
+
+    @Test
+    void resumesOnlyJobsItKnowsOrThatLeftProducts() {
+        when(importer.hasWrittenBy("typo")).thenReturn(false);
+        when(importer.hasWrittenBy("before-restart")).thenReturn(true);
+        ImportJobs jobs = new ImportJobs(importer, Duration.ofMillis(10));
+
+        assertThatThrownBy(() -> jobs.start(ImportMode.DELTA, new ByteArrayInputStream(new byte[0]), "typo"))
+                .isInstanceOf(UnknownImportJobException.class)
+                .hasMessageContaining("typo");
+        assertThat(jobs.find("typo")).isEmpty();
+
+        ImportJob resumed = jobs.start(ImportMode.DELTA, new ByteArrayInputStream(new byte[0]), "before-restart");
+        assertThat(resumed.resumed()).isTrue();
+        jobs.close();
+    }
+}
@@ -0,0 +1,72 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.desertrosedesigns.delta.search.service.EmbeddingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestPipelineTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final Timer embedTimer = meters.timer("import.embed.batch");
+
+    @Test
+    void embedsInBatchesAndWritesEveryRecord() {
+        List<Integer> embedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+        EmbeddingService embeddingService = new EmbeddingService() {
+            @Override
+            public List<Double> embed(String text) {
+                throw new AssertionError("records must be embedded in batches");
+            }
+
+            @Override
+            public List<List<Double>> embedAll(List<String> texts) {
+                embedBatchSizes.add(texts.size());
+                return texts.stream().map(text -> List.of((double) text.length())).toList();
+            }
+        };
+        List<List<Map<String, Object>>> writes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger embedded = new AtomicInteger();
+        IngestPipeline pipeline = new IngestPipeline(embeddingService, rows -> writes.add(List.copyOf(rows)), 10, 25, 3, 2, embedTimer, embedded::addAndGet);
+
+        int written = pipeline.run(records(103));
+
+        assertThat(written).isEqualTo(103);
+        assertThat(embedBatchSizes).hasSize(11).allMatch(size -> size <= 10);
+        assertThat(embedTimer.count()).isEqualTo(11);
+        assertThat(embedded).hasValue(103);
+        assertThat(writes).allMatch(rows -> rows.size() <= 35);
+        assertThat(writes.stream().flatMap(List::stream).map(row -> row.get("sourceId")).distinct()).hasSize(103);
+        assertThat(writes.get(0).get(0).get("embedding")).isInstanceOf(List.class);
+    }
+
+    @Test
+    void embeddingFailureAbortsTheImport() {
+        EmbeddingService failing = text -> {
+            throw new IllegalStateException("embedder down");
+        };
+        IngestPipeline pipeline = new IngestPipeline(failing, rows -> {
+        }, 5, 5, 2, 1, embedTimer, count -> {
+        });
+
+        assertThatThrownBy(() -> pipeline.run(records(50)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("embedder down");
+    }
+
+    private static List<ProductRecord> records(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new ProductRecord("id-" + i, "hash-" + i, "title " + i, "", "", List.of(), "text " + i))
+                .toList();
+    }
+}
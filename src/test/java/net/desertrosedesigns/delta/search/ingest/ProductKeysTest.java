@@ -0,0 +1,45 @@
+package net.desertrosedesigns.delta.search.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductKeysTest {
+
+    @Test
+    void sourceIdPrefersExplicitId() {
+        assertThat(ProductKeys.sourceId(" sku-42 ", "Red hoops", "14k")).isEqualTo("sku-42");
+    }
+
+    @Test
+    void sourceIdIsStableForSameTitleAndDetails() {
+        String first = ProductKeys.sourceId(null, "Red hoops", "Gold plated");
+        String second = ProductKeys.sourceId("", "Red hoops ", "Gold plated");
+        assertThat(first).isEqualTo(second).hasSize(32);
+        assertThat(ProductKeys.sourceId(null, "Blue hoops", "Gold plated")).isNotEqualTo(first);
+    }
+
+    @Test
+    void collidingRowsGetDistinctKeys() {
+        String first = ProductKeys.sourceId(null, "Reserved listing- Custom order", "");
+        String second = ProductKeys.sourceId(null, "Reserved listing- Custom order", "");
+        assertThat(second).isEqualTo(first);
+
+        String firstHash = ProductKeys.contentHash("Reserved listing- Custom order", "For Ann", "", List.of());
+        String secondHash = ProductKeys.contentHash("Reserved listing- Custom order", "For Bea", "", List.of());
+        String distinct = ProductKeys.distinctSourceId(second, secondHash);
+        assertThat(distinct).isNotEqualTo(first).hasSize(32)
+                .isEqualTo(ProductKeys.distinctSourceId(second, secondHash))
+                .isNotEqualTo(ProductKeys.distinctSourceId(first, firstHash));
+    }
+
+    @Test
+    void contentHashChangesWithAnyField() {
+        String base = ProductKeys.contentHash("Red hoops", "Fun", "Gold", List.of("Earrings"));
+        assertThat(ProductKeys.contentHash("Red hoops", "Fun", "Gold", List.of("Earrings"))).isEqualTo(base);
+        assertThat(ProductKeys.contentHash("Red hoops", "Fun!", "Gold", List.of("Earrings"))).isNotEqualTo(base);
+        assertThat(ProductKeys.contentHash("Red hoops", "Fun", "Gold", List.of("Earrings", "Hoops"))).isNotEqualTo(base);
+    }
+}
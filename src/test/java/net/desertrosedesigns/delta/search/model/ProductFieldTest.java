@@ -0,0 +1,44 @@
+package net.desertrosedesigns.delta.search.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductFieldTest {
+
+    @Test
+    void blankSelectsEveryField() {
+        assertThat(ProductField.parseList(null)).isEqualTo(ProductField.ALL);
+        assertThat(ProductField.parseList(" ")).isEqualTo(ProductField.ALL);
+    }
+
+    @Test
+    void parsesJsonAndPropertyNamesAndAlwaysKeepsSourceId() {
+        assertThat(ProductField.parseList("title, item_details,itemDetails"))
+                .containsExactlyInAnyOrder(ProductField.SOURCE_ID, ProductField.TITLE, ProductField.ITEM_DETAILS);
+    }
+
+    @Test
+    void rejectsUnknownField() {
+        assertThatThrownBy(() -> ProductField.parseList("title,embedding"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void projectionLeavesUnrequestedFieldsOutOfJson() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("sourceId", "p1");
+        row.put("title", null);
+        ProductDto product = ProductDto.fromProjection(row, Set.of(ProductField.SOURCE_ID, ProductField.TITLE));
+
+        assertThat(product.getTitle()).isEmpty();
+        assertThat(product.getDescription()).isNull();
+        assertThat(new ObjectMapper().writeValueAsString(product)).isEqualTo("{\"sourceId\":\"p1\",\"title\":\"\"}");
+    }
+}
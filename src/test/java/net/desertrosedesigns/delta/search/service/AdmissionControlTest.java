@@ -0,0 +1,95 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.ClientException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private final AdmissionControl admission = new AdmissionControl(Instrumentation.noop(), true,
+            4, 2, 8, 0.5, Duration.ofSeconds(1), Duration.ofMillis(200));
+
+    @Test
+    void shedsSearchesOverTheLimitAndAdmitsThemOnceSlotsFree() {
+        Sinks.Empty<Void> blocked = Sinks.empty();
+        for (int i = 0; i < 4; i++) {
+            admission.admit("text", blocked.asMono().then(Mono.just("slow"))).subscribe();
+        }
+
+        assertThatThrownBy(() -> admission.admit("text", Mono.just("fast")).block())
+                .isInstanceOf(SearchRejectedException.class)
+                .hasMessageContaining("limit of 4");
+        // Limits are per operation.
+        assertThat(admission.admit("hybrid", Mono.just("fast")).block()).isEqualTo("fast");
+
+        blocked.tryEmitEmpty();
+        assertThat(admission.admit("text", Mono.just("fast")).block()).isEqualTo("fast");
+    }
+
+    @Test
+    void timesOutAtTheDeadlineAndBacksOff() {
+        assertThatThrownBy(() -> admission.admit("embedding", Mono.never()).block())
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(admission.limit("embedding")).isEqualTo(2);
+    }
+
+    @Test
+    void passesAnEarlierCallerDeadlineDownstream() {
+        Deadline caller = Deadline.after(Duration.ofMillis(50));
+        Mono<Duration> remaining = admission.admit("text", Mono.deferContextual(context ->
+                Mono.just(Deadline.from(context).orElseThrow().remaining())));
+
+        assertThat(remaining.contextWrite(context -> Deadline.within(context, caller)).block())
+                .isLessThanOrEqualTo(Duration.ofMillis(50));
+        assertThat(admission.admit("text", remaining).block())
+                .isGreaterThan(Duration.ofMillis(50))
+                .isLessThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void streamsCarryTheDeadlineDownstream() {
+        Flux<Boolean> withDeadline = admission.admit("batch", Flux.range(0, 3)
+                .flatMap(i -> Mono.deferContextual(context -> Mono.just(Deadline.from(context).isPresent()))));
+        assertThat(withDeadline.collectList().block()).containsExactly(true, true, true);
+    }
+
+    @Test
+    void streamsTimeOutAsAWholeAndBackOff() {
+        // Every element arrives well within the deadline, but the stream as a whole does not.
+        Flux<Long> slow = Flux.interval(Duration.ofMillis(60)).take(10);
+        List<Long> received = new ArrayList<>();
+
+        assertThatThrownBy(() -> admission.admit("batch", slow).doOnNext(received::add).blockLast())
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(received).hasSizeBetween(1, 3);
+        assertThat(admission.limit("batch")).isEqualTo(2);
+    }
+
+    @Test
+    void capsTimeoutsByTheTimeLeft() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(100));
+        assertThat(Deadline.cap(Deadline.within(Context.empty(), deadline), Duration.ofSeconds(2)))
+                .isLessThanOrEqualTo(Duration.ofMillis(100));
+        assertThat(Deadline.cap(Context.empty(), Duration.ofSeconds(2)))
+                .isEqualTo(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void treatsTimeoutsAsOverloadButNotBadQueries() {
+        assertThat(AdmissionControl.overload(new IllegalStateException(new TimeoutException()))).isTrue();
+        assertThat(AdmissionControl.overload(new ClientException(
+                "Neo.ClientError.Transaction.TransactionTimedOutClientConfiguration", "timed out"))).isTrue();
+        assertThat(AdmissionControl.overload(new ClientException("Neo.ClientError.Statement.SyntaxError", "bad"))).isFalse();
+    }
+}
@@ -0,0 +1,67 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 2, 8, 0.5, Duration.ofSeconds(1));
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(4);
+
+        limiter.release(FAST, ConcurrencyLimiter.Outcome.IGNORED);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsWhileSaturatedAndFastUpToTheMaximum() {
+        for (int round = 0; round < 20; round++) {
+            int slots = limiter.limit();
+            for (int i = 0; i < slots; i++) {
+                limiter.tryAcquire();
+            }
+            for (int i = 0; i < slots; i++) {
+                limiter.release(FAST, ConcurrencyLimiter.Outcome.SUCCESS);
+            }
+        }
+        assertThat(limiter.limit()).isEqualTo(8);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void idleSuccessesDoNotRaiseTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, ConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void backsOffOnTimeoutsAndSlowCallsDownToTheMinimum() {
+        limiter.tryAcquire();
+        limiter.release(FAST, ConcurrencyLimiter.Outcome.DROPPED);
+        assertThat(limiter.limit()).isEqualTo(2);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, ConcurrencyLimiter.Outcome.SUCCESS);
+        assertThat(limiter.limit()).isEqualTo(2);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, ConcurrencyLimiter.Outcome.IGNORED);
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+}
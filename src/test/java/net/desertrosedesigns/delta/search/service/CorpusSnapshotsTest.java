@@ -0,0 +1,94 @@
+package net.desertrosedesigns.delta.search.service;
+
+import net.desertrosedesigns.delta.search.index.CorpusSnapshot;
+import net.desertrosedesigns.delta.search.index.CorpusSnapshotWriter;
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Values;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CorpusSnapshotsTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Long> floors = new ArrayList<>();
+    private long counter;
+    private CorpusSnapshots snapshots;
+
+    @BeforeEach
+    void setUp() {
+        Transaction tx = mock(Transaction.class);
+        // The counter query: raised to the floor, or advanced past it.
+        when(tx.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            long floor = ((Number) invocation.<Map<String, Object>>getArgument(1).get("floor")).longValue();
+            floors.add(floor);
+            counter = counter < floor ? floor : counter + 1;
+            return single(Map.of("generation", counter));
+        });
+        Session session = mock(Session.class);
+        when(session.writeTransaction(any())).thenAnswer(invocation ->
+                invocation.<TransactionWork<?>>getArgument(0).execute(tx));
+        when(session.run(anyString())).thenAnswer(invocation -> single(Map.of("now", 5000L)));
+        Result noProducts = mock(Result.class);
+        when(session.run(anyString(), anyMap())).thenReturn(noProducts);
+        Driver driver = mock(Driver.class);
+        when(driver.session()).thenReturn(session);
+        snapshots = new CorpusSnapshots(driver, directory.toString(), 5, true);
+    }
+
+    @Test
+    void generationsComeFromTheCounterAboveTheNewestFile() throws IOException {
+        try (CorpusSnapshotWriter writer = new CorpusSnapshotWriter(directory.resolve("corpus-000000000003.snap"),
+                3, 2, 1000)) {
+            writer.add("a", new float[]{1, 0}, new ProductDto("a", "A", null, null, List.of(), null));
+            writer.commit();
+        }
+        // Another publisher already took generation 4 but has not written it yet.
+        counter = 4;
+
+        assertThat(snapshots.publish()).contains(5L);
+        assertThat(floors).containsExactly(4L);
+        assertThat(Files.exists(directory.resolve("corpus-000000000005.snap"))).isTrue();
+    }
+
+    @Test
+    void emptyCatalogPublishesAnEmptyGeneration() {
+        assertThat(snapshots.publish()).contains(1L);
+
+        CorpusSnapshot snapshot = snapshots.openNewerThan(0).orElseThrow();
+        assertThat(snapshot.generation()).isEqualTo(1);
+        assertThat(snapshot.size()).isZero();
+        assertThat(snapshot.watermark()).isEqualTo(5000);
+    }
+
+    private static Result single(Map<String, Object> values) {
+        Record record = mock(Record.class);
+        when(record.get(anyString())).thenAnswer(invocation ->
+                Values.value(values.get(invocation.<String>getArgument(0))));
+        Result result = mock(Result.class);
+        when(result.single()).thenReturn(record);
+        return result;
+    }
+}
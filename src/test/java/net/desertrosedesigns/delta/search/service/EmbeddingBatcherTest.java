@@ -0,0 +1,132 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingBatcherTest {
+
+    @Test
+    void concurrentMissesShareOneCall() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(batch -> {
+            calls.add(batch);
+            return CompletableFuture.completedFuture(batch.stream().map(text -> new float[]{text.length()}).toList());
+        }, Duration.ofMillis(50), 32, 2, 4)) {
+            CompletableFuture<float[]> ring = batcher.submit("ring");
+            CompletableFuture<float[]> hoops = batcher.submit("hoops");
+            CompletableFuture<float[]> ringAgain = batcher.submit("ring");
+
+            assertThat(ring.join()).containsExactly(4f);
+            assertThat(hoops.join()).containsExactly(5f);
+            assertThat(ringAgain.join()).isSameAs(ring.join());
+            assertThat(calls).containsExactly(List.of("ring", "hoops"));
+        }
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForWindow() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(batch -> {
+            calls.add(batch);
+            return CompletableFuture.completedFuture(batch.stream().map(text -> new float[]{1}).toList());
+        }, Duration.ofMinutes(1), 2, 1, 4)) {
+            CompletableFuture<float[]> a = batcher.submit("a");
+            CompletableFuture<float[]> b = batcher.submit("b");
+            CompletableFuture.allOf(a, b).join();
+            assertThat(calls).containsExactly(List.of("a", "b"));
+        }
+    }
+
+    @Test
+    void failureCompletesEveryWaiterAndAllowsRetry() {
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(
+                batch -> CompletableFuture.failedFuture(new IllegalStateException("embedder down")),
+                Duration.ZERO, 8, 1, 4)) {
+            CompletableFuture<float[]> first = batcher.submit("ring");
+            assertThatThrownBy(first::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasRootCauseMessage("embedder down");
+            CompletableFuture<float[]> retry = batcher.submit("ring");
+            assertThat(retry).isNotSameAs(first);
+            assertThatThrownBy(retry::join).isInstanceOf(CompletionException.class);
+        }
+    }
+
+    @Test
+    void batchesBeyondConcurrencyLimitWaitForEarlierCalls() {
+        List<CompletableFuture<List<float[]>>> calls = Collections.synchronizedList(new ArrayList<>());
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(batch -> {
+            CompletableFuture<List<float[]>> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, Duration.ZERO, 1, 1, 4)) {
+            CompletableFuture<float[]> first = batcher.submit("first");
+            CompletableFuture<float[]> second = batcher.submit("second");
+            assertThat(calls).hasSize(1);
+
+            calls.get(0).complete(List.of(new float[]{1}));
+            assertThat(first.join()).containsExactly(1f);
+            assertThat(calls).hasSize(2);
+            calls.get(1).complete(List.of(new float[]{2}));
+            assertThat(second.join()).containsExactly(2f);
+        }
+    }
+
+    @Test
+    void rejectsTextsOnceTheQueueIsFull() {
+        List<CompletableFuture<List<float[]>>> calls = Collections.synchronizedList(new ArrayList<>());
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(batch -> {
+            CompletableFuture<List<float[]>> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, Duration.ZERO, 1, 1, 1)) {
+            CompletableFuture<float[]> running = batcher.submit("running");
+            CompletableFuture<float[]> queued = batcher.submit("queued");
+
+            assertThatThrownBy(batcher.submit("rejected")::join).hasCauseInstanceOf(SearchRejectedException.class);
+            // A text already in flight is shared rather than queued again.
+            CompletableFuture<float[]> queuedAgain = batcher.submit("queued");
+
+            calls.get(0).complete(List.of(new float[]{1}));
+            calls.get(1).complete(List.of(new float[]{2}));
+            assertThat(running.join()).containsExactly(1f);
+            assertThat(queued.join()).containsExactly(2f);
+            assertThat(queuedAgain.join()).containsExactly(2f);
+        }
+    }
+
+    @Test
+    void textsEveryCallerCancelledAreNotSent() {
+        List<List<String>> sent = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<List<float[]>>> calls = Collections.synchronizedList(new ArrayList<>());
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(batch -> {
+            sent.add(batch);
+            CompletableFuture<List<float[]>> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, Duration.ZERO, 1, 1, 4)) {
+            CompletableFuture<float[]> running = batcher.submit("running");
+            CompletableFuture<float[]> abandoned = batcher.submit("abandoned");
+            CompletableFuture<float[]> shared = batcher.submit("shared");
+            CompletableFuture<float[]> sharedAgain = batcher.submit("shared");
+
+            abandoned.cancel(false);
+            shared.cancel(false);
+            calls.get(0).complete(List.of(new float[]{1}));
+
+            assertThat(running.join()).containsExactly(1f);
+            assertThat(sent).containsExactly(List.of("running"), List.of("shared"));
+            calls.get(1).complete(List.of(new float[]{3}));
+            assertThat(sharedAgain.join()).containsExactly(3f);
+        }
+    }
+}
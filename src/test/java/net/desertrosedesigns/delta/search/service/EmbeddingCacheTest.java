@@ -0,0 +1,44 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void normalizeKeyIgnoresCaseAndWhitespace() {
+        assertThat(EmbeddingCache.normalizeKey("  Red   Hoop\tEarrings ")).isEqualTo("red hoop earrings");
+    }
+
+    @Test
+    void equivalentQueriesShareOneEntry() {
+        EmbeddingCache cache = new EmbeddingCache(100, 1 << 20, "");
+        float[] vector = {1, 2};
+        assertThat(cache.getIfPresent("Hoop")).isNull();
+        cache.put("Hoop", vector);
+        assertThat(cache.getIfPresent(" hoop ")).isSameAs(vector);
+        EmbeddingCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(1);
+    }
+
+    @Test
+    void snapshotRoundTripsEntries() {
+        String snapshot = tempDir.resolve("cache.bin").toString();
+        EmbeddingCache original = new EmbeddingCache(100, 1 << 20, snapshot);
+        original.put("ring", new float[]{0.5f, -0.25f, 1f});
+        original.snapshot();
+
+        EmbeddingCache restored = new EmbeddingCache(100, 1 << 20, snapshot);
+        restored.load();
+        assertThat(restored.getIfPresent("RING")).containsExactly(0.5f, -0.25f, 1f);
+    }
+}
@@ -0,0 +1,32 @@
+package net.desertrosedesigns.delta.search.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Writes the {@link EmbeddingWireFormat} matrix the way the embedding service does, for tests and for
+ * the embedding stub the load tests run against.
+ */
+public final class EmbeddingWireEncoder {
+
+    public static final String MEDIA_TYPE = EmbeddingWireFormat.MEDIA_TYPE.toString();
+
+    private EmbeddingWireEncoder() {
+    }
+
+    public static byte[] encode(List<float[]> vectors) {
+        int dimension = vectors.isEmpty() ? 0 : vectors.get(0).length;
+        int bytes = EmbeddingWireFormat.HEADER_BYTES + vectors.size() * dimension * Float.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(EmbeddingWireFormat.MAGIC).putInt(vectors.size()).putInt(dimension);
+        for (float[] vector : vectors) {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("rows must share one dimension");
+            }
+            buffer.asFloatBuffer().put(vector);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+        }
+        return buffer.array();
+    }
+}
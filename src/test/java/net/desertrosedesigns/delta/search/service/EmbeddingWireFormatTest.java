@@ -0,0 +1,81 @@
+package net.desertrosedesigns.delta.search.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingWireFormatTest {
+
+    @Test
+    void encodedMatrixDecodesToTheSameRows() {
+        List<float[]> vectors = List.of(new float[]{0.25f, -1f, 3.5f}, new float[]{1e-7f, Float.MAX_VALUE, 0f});
+        byte[] body = EmbeddingWireEncoder.encode(vectors);
+
+        assertThat(body).hasSize(EmbeddingWireFormat.HEADER_BYTES + 6 * Float.BYTES);
+        assertThat(new String(body, 0, 4, StandardCharsets.US_ASCII)).isEqualTo("F32M");
+        List<float[]> decoded = EmbeddingWireFormat.decode(body);
+        assertThat(decoded).hasSize(2);
+        assertThat(decoded.get(0)).containsExactly(vectors.get(0));
+        assertThat(decoded.get(1)).containsExactly(vectors.get(1));
+        assertThat(EmbeddingWireFormat.decode(EmbeddingWireEncoder.encode(List.of()))).isEmpty();
+    }
+
+    @Test
+    void rejectsForeignOrTruncatedBodies() {
+        byte[] body = EmbeddingWireEncoder.encode(List.of(new float[]{1f, 2f}));
+
+        assertThatThrownBy(() -> EmbeddingWireFormat.decode(Arrays.copyOf(body, body.length - 1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1 x 2");
+        byte[] json = "{\"embeddings\": [[1.0, 2.0]]}".getBytes(StandardCharsets.US_ASCII);
+        assertThatThrownBy(() -> EmbeddingWireFormat.decode(json))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("magic");
+    }
+
+    @Test
+    void clientPrefersBinaryAndStillReadsJson() {
+        AtomicReference<String> accept = new AtomicReference<>();
+        AtomicReference<ClientResponse> reply = new AtomicReference<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    accept.set(request.headers().getFirst(HttpHeaders.ACCEPT));
+                    return Mono.just(reply.get());
+                })
+                .build();
+        SentenceTransformerEmbeddingService service = new SentenceTransformerEmbeddingService(webClient,
+                "http://embedder/embed", new EmbeddingCache(100, 1 << 20, ""), Instrumentation.noop(),
+                Duration.ofMillis(1), 16, 1, 16, Duration.ofSeconds(1), 0, Duration.ZERO, "binary");
+
+        reply.set(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, EmbeddingWireFormat.MEDIA_TYPE.toString())
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                        EmbeddingWireEncoder.encode(List.of(new float[]{0.5f, 0.25f})))))
+                .build());
+        assertThat(service.embedVector("binary")).containsExactly(0.5f, 0.25f);
+        assertThat(MediaType.parseMediaTypes(accept.get()))
+                .extracting(MediaType::toString)
+                .containsExactly("application/x-float32-matrix", "application/json;q=0.5");
+
+        reply.set(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"embeddings\": [[0.75, 1.0]]}")
+                .build());
+        assertThat(service.embedVector("json")).containsExactly(0.75f, 1.0f);
+    }
+}
@@ -0,0 +1,69 @@
+package net.desertrosedesigns.delta.search.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentationTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ObservationRegistry observations = ObservationRegistry.create();
+    private final Instrumentation instrumentation = new Instrumentation(observations, meters);
+
+    InstrumentationTest() {
+        observations.observationConfig().observationHandler(new DefaultMeterObservationHandler(meters));
+    }
+
+    @Test
+    void observedMonoRecordsTaggedTimer() {
+        String value = instrumentation.observe("search.stage", Mono.just("hit"), "stage", "embed").block();
+
+        assertThat(value).isEqualTo("hit");
+        Timer timer = meters.get("search.stage").tag("stage", "embed").tag("error", "none").timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresAreTaggedWithTheError() {
+        Mono<String> failing = Mono.error(new IllegalStateException("down"));
+
+        assertThatThrownBy(() -> instrumentation.observe("search.stage", failing, "stage", "neo4j").block())
+                .hasMessage("down");
+        assertThat(meters.get("search.stage").tag("error", "IllegalStateException").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void nestedStagesShareTheRequestAsParent() {
+        List<Observation> parents = new ArrayList<>();
+        observations.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStart(Observation.Context context) {
+                if (context.getName().equals("search.stage")) {
+                    parents.add(context.getParentObservation() == null ? null : (Observation) context.getParentObservation());
+                }
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        Mono<String> stage = instrumentation.observe("search.stage", Mono.just("x"), "stage", "vector");
+        instrumentation.observe("search.requests", stage, "operation", "embedding").block();
+
+        assertThat(parents).hasSize(1);
+        assertThat(parents.get(0)).isNotNull();
+        assertThat(parents.get(0).getContext().getName()).isEqualTo("search.requests");
+    }
+}
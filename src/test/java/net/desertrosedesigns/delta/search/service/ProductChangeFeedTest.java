@@ -0,0 +1,243 @@
+package net.desertrosedesigns.delta.search.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import net.desertrosedesigns.delta.search.ingest.ProductCsvImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Values;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductChangeFeedTest {
+
+    private static final long LOADED = 1_000_000;
+
+    private final Map<String, Map<String, Object>> products = new HashMap<>();
+    private final Map<String, Long> tombstones = new HashMap<>();
+    private final List<Long> reads = new ArrayList<>();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final SearchResultCache resultCache = mock(SearchResultCache.class);
+    private final ProductCsvImporter importer = mock(ProductCsvImporter.class);
+    private long now = LOADED;
+    private ProductVectorIndex index;
+    private ProductChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        Transaction tx = mock(Transaction.class);
+        when(tx.run(anyString())).thenAnswer(invocation -> result(List.of(record(Map.of("now", now)))));
+        when(tx.run(anyString(), anyMap())).thenAnswer(invocation -> query(invocation.getArgument(0),
+                invocation.getArgument(1)));
+        Session session = mock(Session.class);
+        when(session.readTransaction(any())).thenAnswer(invocation ->
+                invocation.<TransactionWork<?>>getArgument(0).execute(tx));
+        Driver driver = mock(Driver.class);
+        when(driver.session()).thenReturn(session);
+        CorpusSnapshots snapshots = new CorpusSnapshots(driver, "", 2, true);
+        index = new ProductVectorIndex(driver, snapshots, 16, 200, 64, "int8", 100, 1, 4096, 5000, 10);
+        feed = new ProductChangeFeed(driver, index, snapshots, resultCache, importer,
+                new Instrumentation(ObservationRegistry.create(), meters), true, Duration.ofSeconds(30), 3,
+                Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void close() {
+        index.close();
+    }
+
+    @Test
+    void firstPollAfterALoadRereadsTheOverlapWithoutChangingTheCorpus() {
+        write("a", LOADED - 10_000, 1, 0);
+        write("b", LOADED - 5_000, 0, 1);
+        index.rebuild();
+
+        now = LOADED + 5_000;
+        feed.poll();
+
+        assertThat(reads).containsExactly(LOADED - 30_000);
+        assertThat(index.deltaSize()).isZero();
+        assertThat(index.watermark()).isEqualTo(now);
+        verify(resultCache, never()).invalidate();
+    }
+
+    @Test
+    void pollsAdvanceTheWatermarkAndReadTheOverlapAgain() {
+        write("a", LOADED - 10_000, 1, 0);
+        index.rebuild();
+
+        write("b", LOADED + 35_000, 0, 1);
+        now = LOADED + 40_000;
+        feed.poll();
+        assertThat(index.watermark()).isEqualTo(LOADED + 40_000);
+        assertThat(index.deltaSize()).isEqualTo(1);
+
+        // Committed after the last poll with an earlier stamp: only the overlap finds it.
+        tombstones.put("a", LOADED + 20_000);
+        now = LOADED + 45_000;
+        feed.poll();
+        assertThat(index.search(new float[]{1, 0}, 5, null, null)).extracting(ProductVectorIndex.Hit::sourceId)
+                .containsExactly("b");
+
+        // Nothing new: the overlap reads both changes again and they are recognised as applied.
+        now = LOADED + 50_000;
+        feed.poll();
+
+        assertThat(reads).containsExactly(LOADED - 30_000, LOADED + 10_000, LOADED + 15_000);
+        assertThat(index.watermark()).isEqualTo(LOADED + 50_000);
+        verify(resultCache, times(2)).invalidate();
+        assertThat(meters.counter("search.changes.applied", "type", "upsert").count()).isEqualTo(1);
+        assertThat(meters.counter("search.changes.applied", "type", "delete").count()).isEqualTo(1);
+    }
+
+    @Test
+    void lateCommitStampedBeforeTheLoadIsPickedUp() {
+        write("a", LOADED - 10_000, 1, 0);
+        index.rebuild();
+
+        // Stamped before the load read Neo4j, but committed after it.
+        write("c", LOADED - 2_000, 0, 1);
+        now = LOADED + 5_000;
+        feed.poll();
+
+        assertThat(index.deltaSize()).isEqualTo(1);
+        assertThat(index.search(new float[]{0, 1}, 1, null, null)).extracting(ProductVectorIndex.Hit::sourceId)
+                .containsExactly("c");
+        verify(resultCache).invalidate();
+    }
+
+    @Test
+    void fullPageMovesTheWatermarkOnlyToItsLastVersion() {
+        List<Record> upserts = new ArrayList<>();
+        for (long version = 1; version <= 4; version++) {
+            upserts.add(record(Map.of("sourceId", "p" + version, "embedding", List.of(1.0, 0.0),
+                    "categories", List.of(), "version", version)));
+        }
+        List<Record> deletes = List.of(record(Map.of("sourceId", "gone", "version", 5L)));
+
+        ProductChangeFeed.Changes changes = ProductChangeFeed.Changes.of(100, 0, upserts, deletes, 4);
+
+        assertThat(changes.watermark()).isEqualTo(4);
+        assertThat(changes.truncated()).isTrue();
+        assertThat(changes.changes()).hasSize(4).noneMatch(change -> change.deleted());
+        assertThat(ProductChangeFeed.Changes.of(100, 0, upserts.subList(0, 3), deletes, 4).watermark()).isEqualTo(100);
+        // Versions read again from the overlap are not part of the page.
+        assertThat(ProductChangeFeed.Changes.of(100, 1, upserts, deletes, 4).watermark()).isEqualTo(100);
+    }
+
+    @Test
+    void overflowCompactsIntoARebuiltCorpus() {
+        write("a", LOADED - 10_000, 1, 0);
+        index.rebuild();
+
+        for (int i = 0; i < 4; i++) {
+            write("new-" + i, LOADED + 1_000 + i, 0, 1);
+        }
+        now = LOADED + 10_000;
+        feed.poll();
+
+        assertThat(index.deltaSize()).isZero();
+        assertThat(index.loadWatermark()).isEqualTo(LOADED + 10_000);
+        assertThat(index.search(new float[]{0, 1}, 10, null, null)).hasSize(5);
+        assertThat(meters.counter("search.changes.compactions").count()).isEqualTo(1);
+        verify(resultCache).invalidate();
+
+        // The rebuilt corpus holds those products, so reading them again in the overlap changes nothing.
+        now = LOADED + 15_000;
+        feed.poll();
+        assertThat(reads).containsExactly(LOADED - 30_000, LOADED - 20_000);
+        assertThat(index.deltaSize()).isZero();
+        assertThat(meters.counter("search.changes.compactions").count()).isEqualTo(1);
+    }
+
+    @Test
+    void pausesWhileAnImportRuns() {
+        index.rebuild();
+        write("a", LOADED + 1_000, 1, 0);
+        when(importer.running()).thenReturn(true);
+
+        now = LOADED + 5_000;
+        feed.poll();
+
+        assertThat(reads).isEmpty();
+        assertThat(index.watermark()).isEqualTo(LOADED);
+        verify(resultCache, never()).invalidate();
+    }
+
+    private void write(String sourceId, long updatedAt, double x, double y) {
+        products.put(sourceId, Map.of("sourceId", sourceId, "embedding", List.of(x, y), "title", sourceId,
+                "categories", List.of(), "version", updatedAt));
+    }
+
+    private Result query(String query, Map<String, Object> parameters) {
+        if (query.contains("p.embedding IS NOT NULL")) {
+            return result(products.values().stream().map(ProductChangeFeedTest::record).toList());
+        }
+        long since = (Long) parameters.get("since");
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (query.contains("ProductTombstone")) {
+            tombstones.forEach((sourceId, deletedAt) -> rows.add(Map.of("sourceId", sourceId, "version", deletedAt)));
+        } else {
+            rows.addAll(products.values());
+        }
+        if (parameters.containsKey("from")) {
+            long from = (Long) parameters.get("from");
+            if (!query.contains("ProductTombstone")) {
+                reads.add(from);
+            }
+            return result(rows.stream()
+                    .filter(row -> (Long) row.get("version") > from && (Long) row.get("version") <= since)
+                    .map(ProductChangeFeedTest::record)
+                    .toList());
+        }
+        long limit = ((Number) parameters.get("limit")).longValue();
+        return result(rows.stream()
+                .filter(row -> (Long) row.get("version") > since)
+                .sorted(Comparator.comparingLong(row -> (Long) row.get("version")))
+                .limit(limit)
+                .map(ProductChangeFeedTest::record)
+                .toList());
+    }
+
+    private static Record record(Map<String, Object> values) {
+        Record record = mock(Record.class);
+        when(record.get(anyString())).thenAnswer(invocation ->
+                Values.value(values.get(invocation.<String>getArgument(0))));
+        return record;
+    }
+
+    private static Result result(List<Record> records) {
+        Result result = mock(Result.class);
+        when(result.list()).thenReturn(records);
+        when(result.single()).thenAnswer(invocation -> records.get(0));
+        doAnswer(invocation -> {
+            records.forEach(invocation.<Consumer<Record>>getArgument(0));
+            return null;
+        }).when(result).forEachRemaining(any());
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package net.desertrosedesigns.delta.search.service;
+
+import net.desertrosedesigns.delta.search.index.CorpusSnapshotWriter;
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductVectorIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private ProductVectorIndex index;
+
+    @AfterEach
+    void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void refreshKeepsACorpusLoadedAfterAFailedPublish() throws IOException {
+        Path old = directory.resolve("corpus-000000000001.snap");
+        try (CorpusSnapshotWriter writer = new CorpusSnapshotWriter(old, 1, 2, 1000)) {
+            writer.add("stale", new float[]{1, 0}, new ProductDto("stale", "Stale", null, null, List.of(), null));
+            writer.commit();
+        }
+        Driver driver = mock(Driver.class);
+        Session session = mock(Session.class);
+        when(driver.session()).thenReturn(session);
+        // Publishing fails; the fallback load finds no products, stamped well after the old generation.
+        when(session.run(anyString())).thenThrow(new ServiceUnavailableException("neo4j went away"));
+        doReturn(5000L).when(session).readTransaction(any());
+        CorpusSnapshots snapshots = new CorpusSnapshots(driver, directory.toString(), 2, true);
+        index = new ProductVectorIndex(driver, snapshots, 16, 200, 64, "int8", 100, 1, 4096, 5000, 10);
+
+        index.rebuild();
+        index.refresh();
+
+        assertThat(index.generation()).isEqualTo(1);
+        assertThat(index.watermark()).isEqualTo(5000);
+        assertThat(index.isEmpty()).isTrue();
+    }
+
+    @Test
+    void loadSkipsEmptyCorruptAndMismatchedEmbeddings() {
+        List<Record> rows = List.of(
+                record("empty", List.of()),
+                record("corrupt", List.of("not", "numbers")),
+                record("a", List.of(1.0, 0.0)),
+                record("wide", List.of(0.0, 0.0, 1.0)),
+                record("b", List.of(0.0, 1.0)));
+        Transaction tx = mock(Transaction.class);
+        Result now = mock(Result.class);
+        Record nowRecord = record("now", List.of());
+        when(nowRecord.get("now")).thenReturn(Values.value(5000L));
+        when(now.single()).thenReturn(nowRecord);
+        when(tx.run(anyString())).thenReturn(now);
+        Result products = mock(Result.class);
+        doAnswer(invocation -> {
+            rows.forEach(invocation.<Consumer<Record>>getArgument(0));
+            return null;
+        }).when(products).forEachRemaining(any());
+        when(tx.run(anyString(), anyMap())).thenReturn(products);
+        Session session = mock(Session.class);
+        when(session.readTransaction(any())).thenAnswer(invocation ->
+                invocation.<TransactionWork<?>>getArgument(0).execute(tx));
+        Driver driver = mock(Driver.class);
+        when(driver.session()).thenReturn(session);
+        index = new ProductVectorIndex(driver, new CorpusSnapshots(driver, "", 2, true), 16, 200, 64, "int8", 100,
+                1, 4096, 5000, 10);
+
+        index.rebuild();
+        // The graph and the codes wait for the first search that needs them.
+        assertThat(index.isReady(VectorSearchMode.EXACT)).isTrue();
+        assertThat(index.isReady(VectorSearchMode.HNSW)).isFalse();
+        assertThat(index.isReady(VectorSearchMode.QUANTIZED)).isFalse();
+
+        assertThat(index.search(new float[]{1, 0}, 10, null, null)).extracting(ProductVectorIndex.Hit::sourceId)
+                .containsExactly("a", "b");
+        assertThat(index.isReady(VectorSearchMode.HNSW)).isTrue();
+        assertThat(index.searchQuantized(new float[]{0, 1}, 1, null, null)).extracting(ProductVectorIndex.Hit::sourceId)
+                .containsExactly("b");
+        assertThat(index.isReady(VectorSearchMode.QUANTIZED)).isTrue();
+    }
+
+    private static Record record(String sourceId, List<?> embedding) {
+        Record record = mock(Record.class);
+        when(record.get(anyString())).thenReturn(Values.NULL);
+        when(record.get("sourceId")).thenReturn(Values.value(sourceId));
+        when(record.get("embedding")).thenReturn(Values.value(embedding));
+        return record;
+    }
+}
@@ -0,0 +1,145 @@
+package net.desertrosedesigns.delta.search.service;
+
+import net.desertrosedesigns.delta.search.model.ProductDto;
+import net.desertrosedesigns.delta.search.model.SearchResultDto;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Driver;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SearchResultCacheTest {
+
+    private static final List<SearchResultDto> RESULTS = List.of(new SearchResultDto(
+            new ProductDto("p1", "Hoop Earrings", null, null, List.of("Jewelry"), null), 1.0, 0.0, 1.0));
+
+    private final SearchResultCache cache = new SearchResultCache(mock(Driver.class), true, 1 << 20,
+            Duration.ofSeconds(5));
+
+    @Test
+    void concurrentMissesShareOneSearchAndLaterCallsHit() {
+        AtomicInteger searches = new AtomicInteger();
+        Sinks.One<List<SearchResultDto>> pending = Sinks.one();
+        AtomicReference<List<SearchResultDto>> first = new AtomicReference<>();
+        AtomicReference<List<SearchResultDto>> second = new AtomicReference<>();
+
+        cache.get("text", "Hoop", SearchOptions.of(10), () -> {
+            searches.incrementAndGet();
+            return pending.asMono();
+        }).subscribe(first::set);
+        Disposable cancelled = cache.get("text", " hoop ", SearchOptions.of(10), () -> {
+            searches.incrementAndGet();
+            return Mono.just(List.of());
+        }).subscribe();
+        cache.get("text", "HOOP", SearchOptions.of(10), () -> {
+            searches.incrementAndGet();
+            return Mono.just(List.of());
+        }).subscribe(second::set);
+        // One waiter giving up must not cancel the search the others are waiting on.
+        cancelled.dispose();
+        pending.tryEmitValue(RESULTS);
+
+        assertThat(searches).hasValue(1);
+        assertThat(first.get()).isSameAs(RESULTS);
+        assertThat(second.get()).isSameAs(RESULTS);
+        assertThat(cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.error(new AssertionError())).block())
+                .isSameAs(RESULTS);
+        assertThat(cache.stats().hits()).isEqualTo(3);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void sharedSearchRunsUnderItsOwnDeadlineAndEachCallerTimesOutAlone() {
+        Sinks.One<List<SearchResultDto>> pending = Sinks.one();
+        AtomicReference<Duration> searchDeadline = new AtomicReference<>();
+        Supplier<Mono<List<SearchResultDto>>> search = () -> Mono.deferContextual(context -> {
+            searchDeadline.set(Deadline.from(context).orElseThrow().remaining());
+            return pending.asMono();
+        });
+        Deadline hurried = Deadline.after(Duration.ofMillis(50));
+
+        Mono<List<SearchResultDto>> first = cache.get("text", "hoop", SearchOptions.of(10), search)
+                .contextWrite(context -> Deadline.within(context, hurried));
+        assertThatThrownBy(first::block).hasCauseInstanceOf(TimeoutException.class);
+
+        // The first caller's 50ms deadline neither bounded the search nor cancelled it for the next caller.
+        assertThat(searchDeadline.get()).isGreaterThan(Duration.ofSeconds(1));
+        AtomicReference<List<SearchResultDto>> second = new AtomicReference<>();
+        cache.get("text", "hoop", SearchOptions.of(10), search).subscribe(second::set);
+        pending.tryEmitValue(RESULTS);
+        assertThat(second.get()).isSameAs(RESULTS);
+    }
+
+    @Test
+    void keysSeparateOperationsAndOptions() {
+        cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(RESULTS)).block();
+        assertThat(cache.get("hybrid", "hoop", SearchOptions.of(10), () -> Mono.just(List.of())).block()).isEmpty();
+        assertThat(cache.get("text", "hoop", SearchOptions.of(5), () -> Mono.just(List.of())).block()).isEmpty();
+    }
+
+    @Test
+    void newGenerationDropsEntries() {
+        cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(RESULTS)).block();
+        cache.onGeneration(7);
+
+        assertThat(cache.generation()).isEqualTo(7);
+        assertThat(cache.stats().entries()).isZero();
+        assertThat(cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(List.of())).block()).isEmpty();
+    }
+
+    @Test
+    void invalidatingDropsEntriesWithoutMovingTheGeneration() {
+        cache.onGeneration(3);
+        cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(RESULTS)).block();
+        cache.invalidate();
+
+        assertThat(cache.generation()).isEqualTo(3);
+        assertThat(cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(List.of())).block()).isEmpty();
+    }
+
+    @Test
+    void uncacheableResultsReachTheirCallerButAreDropped() throws InterruptedException {
+        assertThat(cache.get("hybrid", "hoop", SearchOptions.of(10), () -> Mono.just(RESULTS), () -> false).block())
+                .isSameAs(RESULTS);
+        // The entry is removed off the caller's thread once the search completes.
+        for (int i = 0; i < 500 && cache.stats().entries() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(cache.get("hybrid", "hoop", SearchOptions.of(10), () -> Mono.just(List.of())).block()).isEmpty();
+    }
+
+    @Test
+    void failedSearchesAreNotCached() {
+        assertThatThrownBy(() -> cache.get("text", "hoop", SearchOptions.of(10),
+                () -> Mono.error(new IllegalStateException("neo4j down"))).block())
+                .hasMessageContaining("neo4j down");
+        assertThat(cache.get("text", "hoop", SearchOptions.of(10), () -> Mono.just(RESULTS)).block())
+                .isSameAs(RESULTS);
+    }
+
+    @Test
+    void disabledCacheAlwaysSearches() {
+        SearchResultCache disabled = new SearchResultCache(mock(Driver.class), false, 1 << 20,
+                Duration.ofSeconds(5));
+        AtomicInteger searches = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            disabled.get("text", "hoop", SearchOptions.of(10), () -> Mono.fromSupplier(() -> {
+                searches.incrementAndGet();
+                return RESULTS;
+            })).block();
+        }
+        assertThat(searches).hasValue(3);
+    }
+}
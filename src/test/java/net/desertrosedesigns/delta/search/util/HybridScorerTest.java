@@ -2,6 +2,9 @@ package net.desertrosedesigns.delta.search.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class HybridScorerTest {
@@ -13,4 +16,38 @@ class HybridScorerTest {
         double combined = HybridScorer.compute(textScore, vectorScore);
         assertThat(combined).isEqualTo(0.5 * 0.4 + 0.8 * 0.6);
     }
+
+    @Test
+    void weightedFusionNormalizesTextScoresAndDeduplicates() {
+        List<HybridScorer.Candidate> text = List.of(
+                new HybridScorer.Candidate("a", 8.0),
+                new HybridScorer.Candidate("b", 4.0));
+        List<HybridScorer.Candidate> vector = List.of(
+                new HybridScorer.Candidate("c", 0.9),
+                new HybridScorer.Candidate("a", 0.5));
+
+        List<HybridScorer.Fused> fused = HybridScorer.fuse(text, vector, Map.of("b", 0.2),
+                FusionStrategy.WEIGHTED, 60, 10);
+
+        assertThat(fused).extracting(HybridScorer.Fused::id).containsExactly("a", "c", "b");
+        assertThat(fused.get(0).combinedScore()).isEqualTo(HybridScorer.compute(1.0, 0.5));
+        assertThat(fused.get(1).combinedScore()).isEqualTo(HybridScorer.compute(0.0, 0.9));
+        assertThat(fused.get(2).combinedScore()).isEqualTo(HybridScorer.compute(0.5, 0.2));
+        assertThat(fused.get(0).textScore()).isEqualTo(8.0);
+    }
+
+    @Test
+    void reciprocalRankFusionRewardsAgreementAndHonorsLimit() {
+        List<HybridScorer.Candidate> text = List.of(
+                new HybridScorer.Candidate("a", 8.0),
+                new HybridScorer.Candidate("b", 4.0));
+        List<HybridScorer.Candidate> vector = List.of(
+                new HybridScorer.Candidate("b", 0.9),
+                new HybridScorer.Candidate("c", 0.8));
+
+        List<HybridScorer.Fused> fused = HybridScorer.fuse(text, vector, Map.of(), FusionStrategy.RRF, 60, 2);
+
+        assertThat(fused).extracting(HybridScorer.Fused::id).containsExactly("b", "a");
+        assertThat(fused.get(0).combinedScore()).isEqualTo(1.0 / 62 + 1.0 / 61);
+    }
 }
@@ -3,8 +3,10 @@ package net.desertrosedesigns.delta.search.util;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class VectorUtilsTest {
 
@@ -21,4 +23,61 @@ class VectorUtilsTest {
         List<Double> b = List.of(0.0, 1.0);
         assertThat(VectorUtils.cosineSimilarity(a, b)).isEqualTo(0.0);
     }
+
+    @Test
+    void floatCosineMatchesListCosine() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            List<Double> a = randomList(random, 384);
+            List<Double> b = randomList(random, 384);
+            double expected = VectorUtils.cosineSimilarity(a, b);
+            float[] fa = VectorUtils.toFloatArray(a);
+            float[] fb = VectorUtils.toFloatArray(b);
+            assertThat((double) VectorUtils.cosineSimilarity(fa, fb)).isCloseTo(expected, within(1e-5));
+            assertThat((double) VectorUtils.dot(VectorUtils.normalize(fa), VectorUtils.normalize(fb)))
+                    .isCloseTo(expected, within(1e-5));
+        }
+    }
+
+    @Test
+    void floatCosineHandlesZeroVector() {
+        float[] zero = new float[3];
+        assertThat(VectorUtils.cosineSimilarity(zero, new float[]{1, 2, 3})).isEqualTo(0f);
+        assertThat(VectorUtils.normalize(zero)).containsExactly(0f, 0f, 0f);
+    }
+
+    @Test
+    void simdKernelAgreesWithScalarKernelIncludingTails() {
+        FloatVectorKernel scalar = new ScalarFloatVectorKernel();
+        FloatVectorKernel simd = new SimdFloatVectorKernel();
+        Random random = new Random(11);
+        for (int length = 1; length <= 67; length++) {
+            float[] a = VectorUtils.toFloatArray(randomList(random, length));
+            float[] b = VectorUtils.toFloatArray(randomList(random, length));
+            assertThat(simd.dot(a, b)).isCloseTo(scalar.dot(a, b), within(1e-4f));
+        }
+    }
+
+    @Test
+    void byteDotAgreesAcrossKernelsWithOffsets() {
+        FloatVectorKernel scalar = new ScalarFloatVectorKernel();
+        FloatVectorKernel simd = new SimdFloatVectorKernel();
+        Random random = new Random(13);
+        byte[] a = new byte[80];
+        byte[] b = new byte[160];
+        random.nextBytes(a);
+        random.nextBytes(b);
+        for (int length = 1; length <= 67; length++) {
+            int expected = 0;
+            for (int i = 0; i < length; i++) {
+                expected += a[i] * b[90 + i];
+            }
+            assertThat(scalar.dot(a, 0, b, 90, length)).isEqualTo(expected);
+            assertThat(simd.dot(a, 0, b, 90, length)).isEqualTo(expected);
+        }
+    }
+
+    private static List<Double> randomList(Random random, int size) {
+        return random.doubles(size, -1, 1).boxed().toList();
+    }
 }